@@ -0,0 +1,39 @@
+package com.haibazo.bff.mock.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.Main;
+
+/**
+ * Entry point of the benchmarks jar.
+ *
+ * <p>
+ * Accepts the usual JMH command line, for example
+ * {@code java -jar haibazo-bff-mock-benchmarks/target/benchmarks.jar RouteMatching -p rows=50,50000}.
+ * Unless a result format is given, results are also written as JSON to
+ * {@code target/jmh-result.json} so runs can be compared release to release,
+ * e.g. with the JMH Visualizer.
+ * </p>
+ */
+public final class ApiMockBenchmarks {
+
+    private ApiMockBenchmarks() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.contains("-rf") && !arguments.contains("-rff")) {
+            Path result = Path.of("target", "jmh-result.json");
+            Files.createDirectories(result.getParent());
+            arguments.addAll(List.of("-rf", "json", "-rff", result.toString()));
+        }
+
+        Main.main(arguments.toArray(String[]::new));
+    }
+
+}
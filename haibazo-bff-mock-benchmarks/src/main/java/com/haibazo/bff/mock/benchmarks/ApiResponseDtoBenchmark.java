@@ -0,0 +1,61 @@
+package com.haibazo.bff.mock.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.haibazo.bff.mock.webapi.dto.response.ApiResponseDto;
+import com.haibazo.bff.mock.webapi.dto.response.MetadataDto;
+
+/**
+ * Cost of building an envelope with {@code ApiResponseDto.build} and
+ * serializing it the way the message converter does, for an already parsed
+ * list payload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApiResponseDtoBenchmark {
+
+    @Param({ "10", "1000" })
+    public int items;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private List<?> data;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path fixture = Files.createTempFile("mock-envelope", ".json");
+        MockFixtureGenerator.writeFixture(fixture, items);
+        data = objectMapper.readValue(fixture.toFile(), List.class);
+    }
+
+    @Benchmark
+    public byte[] buildAndSerialize() throws IOException {
+        ApiResponseDto responseDto = ApiResponseDto.status(HttpStatus.OK).body(data);
+        responseDto.metadata(new MetadataDto(1, 1, data.size()));
+        return objectMapper.writeValueAsBytes(responseDto.build().getBody());
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.haibazo.bff.mock.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpMethod;
+
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockSettingMatchDto;
+
+/**
+ * Cost of {@code ApiMockSettingService.getMockFilePathWithFallback} by number
+ * of path variables, for a request whose own fixture exists and for one that
+ * falls back to the all-zero fixture.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilePathFallbackBenchmark {
+
+    @Param({ "0", "1", "2", "3", "4" })
+    public int variables;
+
+    private MockPipeline pipeline;
+
+    private ApiMockSettingMatchDto primaryMatch;
+
+    private ApiMockSettingMatchDto fallbackMatch;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path folder = Files.createTempDirectory("mock-fallback");
+        String path = MockFixtureGenerator.generateVariableRoute(folder, variables);
+        pipeline = new MockPipeline(folder, true);
+
+        primaryMatch = pipeline.settingService.findMatchingMock(path, HttpMethod.GET);
+        fallbackMatch = pipeline.settingService.findMatchingMock(path.replace("/1/", "/2/"), HttpMethod.GET);
+    }
+
+    @Benchmark
+    public String primary() {
+        return pipeline.settingService.getMockFilePathWithFallback(primaryMatch);
+    }
+
+    @Benchmark
+    public String fallback() {
+        return pipeline.settingService.getMockFilePathWithFallback(fallbackMatch);
+    }
+
+}
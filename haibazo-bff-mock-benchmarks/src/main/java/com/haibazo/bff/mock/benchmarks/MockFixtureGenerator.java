@@ -0,0 +1,150 @@
+package com.haibazo.bff.mock.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic mock settings and fixtures for benchmarks.
+ *
+ * <p>
+ * Can also be run on its own to produce a data set for manual testing:
+ * {@code java -cp benchmarks.jar com.haibazo.bff.mock.benchmarks.MockFixtureGenerator <folder> <rows> <items>}
+ * </p>
+ */
+public final class MockFixtureGenerator {
+
+    public static final String SETTING_FILE_NAME = "bff-mock-setting.csv";
+
+    private static final String HEADER = "URI,File,Charset,Method,Status,DelayMs";
+
+    private static final String[] NAMES = { "countries", "cities", "districts", "wards", "products", "reviews",
+            "orders", "items" };
+
+    private MockFixtureGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path folder = Path.of(args.length > 0 ? args[0] : "target/mock-fixtures");
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int items = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+
+        generateRoutes(folder, rows, items);
+        System.out.println("Generated " + rows + " settings in " + folder.toAbsolutePath());
+    }
+
+    /**
+     * Writes a settings file with the given number of rows and the fixtures it
+     * refers to. Rows cycle through literal routes and routes with one to four
+     * path variables, spread over the same kind of prefixes as the real settings.
+     *
+     * @param folder The mock base folder
+     * @param rows   The number of settings
+     * @param items  The number of items in each list fixture
+     * @return Sample request paths, one per row, that match their own row
+     * @throws IOException If the files cannot be written
+     */
+    public static List<String> generateRoutes(Path folder, int rows, int items) throws IOException {
+        Files.createDirectories(folder.resolve("its-rct"));
+        List<String> paths = new ArrayList<>(rows);
+
+        try (BufferedWriter writer = Files.newBufferedWriter(folder.resolve(SETTING_FILE_NAME),
+                StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+
+            for (int row = 0; row < rows; row++) {
+                int variables = row % 5;
+                StringBuilder uri = new StringBuilder("/its-rct/v1/r").append(row);
+                StringBuilder path = new StringBuilder(uri);
+                StringBuilder file = new StringBuilder("./its-rct/r").append(row % 100);
+                for (int i = 0; i < variables; i++) {
+                    uri.append('/').append(NAMES[i]).append("/{").append(NAMES[i]).append("_id}");
+                    path.append('/').append(NAMES[i]).append('/').append(i + 1);
+                    file.append('_').append(NAMES[i]).append("_0");
+                }
+                file.append(".json");
+
+                writer.write(uri + "," + file + ",UTF-8,GET,200,");
+                writer.newLine();
+                paths.add(path.toString());
+
+                Path fixture = folder.resolve(file.toString()).normalize();
+                if (Files.notExists(fixture)) {
+                    writeFixture(fixture, items);
+                }
+            }
+        }
+
+        return paths;
+    }
+
+    /**
+     * Writes a settings file with a single route that has the given number of
+     * path variables, plus its fallback fixture and the fixture for path
+     * variable values of 1.
+     *
+     * @param folder    The mock base folder
+     * @param variables The number of path variables, 0 to 4
+     * @return The request path whose primary fixture exists
+     * @throws IOException If the files cannot be written
+     */
+    public static String generateVariableRoute(Path folder, int variables) throws IOException {
+        Files.createDirectories(folder.resolve("its-rct"));
+
+        StringBuilder uri = new StringBuilder("/its-rct/v1");
+        StringBuilder path = new StringBuilder(uri);
+        StringBuilder fallbackFile = new StringBuilder("./its-rct/resources");
+        StringBuilder primaryFile = new StringBuilder(fallbackFile);
+        for (int i = 0; i < variables; i++) {
+            uri.append('/').append(NAMES[i]).append("/{").append(NAMES[i]).append("_id}");
+            path.append('/').append(NAMES[i]).append("/1");
+            fallbackFile.append('_').append(NAMES[i]).append("_0");
+            primaryFile.append('_').append(NAMES[i]).append("_1");
+        }
+        uri.append("/resources");
+        path.append("/resources");
+
+        Files.writeString(folder.resolve(SETTING_FILE_NAME), HEADER + "\n" + uri + "," + fallbackFile
+                + ".json,UTF-8,GET,200,\n", StandardCharsets.UTF_8);
+        writeFixture(folder.resolve(fallbackFile + ".json").normalize(), 10);
+        writeFixture(folder.resolve(primaryFile + ".json").normalize(), 10);
+
+        return path.toString();
+    }
+
+    /**
+     * Writes a pretty-printed list fixture shaped like the real product fixtures.
+     *
+     * @param file  The fixture file
+     * @param items The number of list items
+     * @throws IOException If the file cannot be written
+     */
+    public static void writeFixture(Path file, int items) throws IOException {
+        Files.createDirectories(file.getParent());
+        Random random = new Random(items);
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("[\n");
+            for (int i = 0; i < items; i++) {
+                writer.write("  {\n");
+                writer.write("    \"id\": " + i + ",\n");
+                writer.write("    \"name\": \"Product " + i + " \\u00e9dition\",\n");
+                writer.write("    \"price\": " + random.nextInt(100_000) + "." + random.nextInt(100) + ",\n");
+                writer.write("    \"available\": " + random.nextBoolean() + ",\n");
+                writer.write("    \"tags\": [\"tag" + random.nextInt(50) + "\", \"tag" + random.nextInt(50)
+                        + "\"],\n");
+                writer.write("    \"shop\": { \"id\": " + random.nextInt(1000) + ", \"name\": \"Shop "
+                        + random.nextInt(1000) + "\", \"rating\": null }\n");
+                writer.write(i + 1 < items ? "  },\n" : "  }\n");
+            }
+            writer.write("]\n");
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.haibazo.bff.mock.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.haibazo.bff.mock.webapi.metrics.ApiMockMetrics;
+import com.haibazo.bff.mock.webapi.tracing.ApiMockTracing;
+import com.haibazo.bff.mock.webapi.service.ApiMockBundleService;
+import com.haibazo.bff.mock.webapi.service.ApiMockCompressionService;
+import com.haibazo.bff.mock.webapi.service.ApiMockEnvelopeService;
+import com.haibazo.bff.mock.webapi.service.ApiMockEnvironmentService;
+import com.haibazo.bff.mock.webapi.service.ApiMockFileIndex;
+import com.haibazo.bff.mock.webapi.service.ApiMockLocalStorageService;
+import com.haibazo.bff.mock.webapi.service.ApiMockProxyService;
+import com.haibazo.bff.mock.webapi.service.ApiMockRawFileService;
+import com.haibazo.bff.mock.webapi.service.ApiMockRequestJournal;
+import com.haibazo.bff.mock.webapi.service.ApiMockResponseCache;
+import com.haibazo.bff.mock.webapi.service.ApiMockScenarioService;
+import com.haibazo.bff.mock.webapi.service.ApiMockService;
+import com.haibazo.bff.mock.webapi.service.ApiMockSettingService;
+import com.haibazo.bff.mock.webapi.service.ApiMockStreamingService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import jakarta.validation.Validation;
+
+/**
+ * The mock serving services wired by hand for local storage, without starting
+ * a Spring context, with the same defaults as application.properties.
+ */
+final class MockPipeline {
+
+    final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    final ApiMockSettingService settingService;
+
+    final ApiMockResponseCache responseCache = new ApiMockResponseCache();
+
+    final ApiMockEnvelopeService envelopeService = new ApiMockEnvelopeService();
+
+    final ApiMockCompressionService compressionService = new ApiMockCompressionService();
+
+    final ApiMockRawFileService rawFileService = new ApiMockRawFileService();
+
+    final ApiMockStreamingService streamingService = new ApiMockStreamingService();
+
+    final ApiMockRequestJournal journal = new ApiMockRequestJournal();
+
+    final ApiMockMetrics metrics = new ApiMockMetrics(new SimpleMeterRegistry());
+
+    final ApiMockService mockService = new ApiMockService();
+
+    MockPipeline(Path folder, boolean cacheEnabled) throws IOException {
+        ApiMockLocalStorageService localStorageService = new ApiMockLocalStorageService(folder.toString());
+
+        ApiMockFileIndex fileIndex = new ApiMockFileIndex("local", folder.toString(), true);
+        fileIndex.initialize();
+
+        settingService = new ApiMockSettingService("local", MockFixtureGenerator.SETTING_FILE_NAME, true, null,
+                localStorageService, null, fileIndex, null, Validation.buildDefaultValidatorFactory().getValidator(),
+                metrics);
+        settingService.reload();
+
+        ReflectionTestUtils.setField(responseCache, "enabled", cacheEnabled);
+        ReflectionTestUtils.setField(responseCache, "maxBytes", 64L * 1024 * 1024);
+        ReflectionTestUtils.setField(responseCache, "revalidateIntervalMs", 2000L);
+
+        ReflectionTestUtils.setField(envelopeService, "objectMapper", objectMapper);
+
+        ReflectionTestUtils.setField(compressionService, "enabled", true);
+        ReflectionTestUtils.setField(compressionService, "minBytes", 1024);
+
+        ReflectionTestUtils.setField(rawFileService, "sendfileMinBytes", 49152L);
+
+        ReflectionTestUtils.setField(streamingService, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(streamingService, "envelopeService", envelopeService);
+        ReflectionTestUtils.setField(streamingService, "minBytes", 16L * 1024 * 1024);
+        ReflectionTestUtils.setField(streamingService, "revalidateIntervalMs", 2000L);
+
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "capacity", 1024);
+        journal.initialize();
+
+        ReflectionTestUtils.setField(mockService, "apiMockSettingService", settingService);
+        ApiMockEnvironmentService environmentService = new ApiMockEnvironmentService();
+        ReflectionTestUtils.setField(environmentService, "basePath", "/its-rct");
+        ReflectionTestUtils.setField(mockService, "environmentService", environmentService);
+        ReflectionTestUtils.setField(mockService, "responseCache", responseCache);
+        ReflectionTestUtils.setField(mockService, "envelopeService", envelopeService);
+        ReflectionTestUtils.setField(mockService, "rawFileService", rawFileService);
+        ReflectionTestUtils.setField(mockService, "compressionService", compressionService);
+        ReflectionTestUtils.setField(mockService, "streamingService", streamingService);
+        ReflectionTestUtils.setField(mockService, "bundleService", new ApiMockBundleService());
+        ReflectionTestUtils.setField(mockService, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(mockService, "metrics", metrics);
+        ReflectionTestUtils.setField(mockService, "tracing", new ApiMockTracing(OpenTelemetry.noop()));
+        ReflectionTestUtils.setField(mockService, "journal", journal);
+
+        ApiMockScenarioService scenarioService = new ApiMockScenarioService();
+        ReflectionTestUtils.setField(scenarioService, "sessionHeader", "X-Mock-Session");
+        ReflectionTestUtils.setField(scenarioService, "sessionCookie", "MOCK_SESSION");
+        ReflectionTestUtils.setField(scenarioService, "ttlMs", 1_800_000L);
+        ReflectionTestUtils.setField(scenarioService, "maxSessions", 10_000);
+        ReflectionTestUtils.setField(mockService, "scenarioService", scenarioService);
+        ReflectionTestUtils.setField(mockService, "proxyService", new ApiMockProxyService());
+    }
+
+}
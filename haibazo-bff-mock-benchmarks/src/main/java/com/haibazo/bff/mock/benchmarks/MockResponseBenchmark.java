@@ -0,0 +1,61 @@
+package com.haibazo.bff.mock.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * End-to-end cost of {@code ApiMockService.mockItsRctApi} for list fixtures of
+ * growing size, with the response cache enabled (steady state) and disabled
+ * (every request reads, validates and wraps the fixture).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MockResponseBenchmark {
+
+    @Param({ "10", "1000", "10000" })
+    public int items;
+
+    @Param({ "true", "false" })
+    public boolean cache;
+
+    private MockPipeline pipeline;
+
+    private MockHttpServletRequest request;
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Setup
+    public void setUp() throws IOException {
+        Path folder = Files.createTempDirectory("mock-response");
+        String path = MockFixtureGenerator.generateRoutes(folder, 1, items).get(0);
+        pipeline = new MockPipeline(folder, cache);
+        request = new MockHttpServletRequest("GET", path);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> mockItsRctApi() {
+        return pipeline.mockService.mockItsRctApi(request, response);
+    }
+
+}
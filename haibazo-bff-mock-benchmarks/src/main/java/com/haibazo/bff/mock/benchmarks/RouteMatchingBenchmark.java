@@ -0,0 +1,70 @@
+package com.haibazo.bff.mock.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpMethod;
+
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockSettingMatchDto;
+
+/**
+ * Cost of {@code ApiMockSettingService.findMatchingMock} as the route table
+ * grows. Requests are spread evenly over the table, with one in sixteen
+ * matching no route.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteMatchingBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    @Param({ "50", "500", "5000", "50000" })
+    public int rows;
+
+    private MockPipeline pipeline;
+
+    private String[] paths;
+
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path folder = Files.createTempDirectory("mock-routes");
+        List<String> rowPaths = MockFixtureGenerator.generateRoutes(folder, rows, 1);
+        pipeline = new MockPipeline(folder, true);
+
+        Random random = new Random(rows);
+        List<String> samples = new ArrayList<>(SAMPLES);
+        for (int i = 0; i < SAMPLES; i++) {
+            samples.add(i % 16 == 15 ? "/its-rct/v1/unknown/" + i : rowPaths.get(random.nextInt(rows)));
+        }
+        paths = samples.toArray(String[]::new);
+    }
+
+    @Benchmark
+    public ApiMockSettingMatchDto findMatchingMock() {
+        String path = paths[next++ & (SAMPLES - 1)];
+        return pipeline.settingService.findMatchingMock(path, HttpMethod.GET);
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.haibazo.bff.mock.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time from launching the mock server until it answers its first
+ * mock request, to compare startup options such as the {@code faststart}
+ * profile.
+ *
+ * <p>
+ * Usage:
+ * {@code java -cp haibazo-bff-mock-benchmarks/target/benchmarks.jar com.haibazo.bff.mock.benchmarks.TimeToFirstResponse <jar> [--runs=5] [--port=18080] [--path=/its-rct/v1/configs] [--jvm=<option>]... [<application argument>]...}.
+ * Every run launches a fresh JVM with the given options, polls the path until
+ * it answers {@code 200 OK} and stops the server. The time of each run and the
+ * median are printed.
+ * </p>
+ */
+public final class TimeToFirstResponse {
+
+    private TimeToFirstResponse() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.err.println("Usage: TimeToFirstResponse <jar> [--runs=N] [--port=P] [--path=/uri] "
+                    + "[--jvm=<option>]... [<application argument>]...");
+            System.exit(2);
+        }
+
+        String jar = args[0];
+        int runs = 5;
+        int port = 18080;
+        String path = "/its-rct/v1/configs";
+        List<String> jvmOptions = new ArrayList<>();
+        List<String> applicationArguments = new ArrayList<>();
+        for (String arg : Arrays.asList(args).subList(1, args.length)) {
+            if (arg.startsWith("--runs=")) {
+                runs = Integer.parseInt(arg.substring("--runs=".length()));
+            } else if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--path=")) {
+                path = arg.substring("--path=".length());
+            } else if (arg.startsWith("--jvm=")) {
+                jvmOptions.add(arg.substring("--jvm=".length()));
+            } else {
+                applicationArguments.add(arg);
+            }
+        }
+
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.addAll(List.of("-jar", jar, "--server.port=" + port));
+        command.addAll(applicationArguments);
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build();
+
+        long[] millis = new long[runs];
+        for (int run = 0; run < runs; run++) {
+            millis[run] = measure(command, client, request);
+            System.out.printf("run %d: %d ms%n", run + 1, millis[run]);
+        }
+
+        Arrays.sort(millis);
+        System.out.printf("time to first response over %d runs: min %d ms, median %d ms, max %d ms%n", runs,
+                millis[0], millis[runs / 2], millis[runs - 1]);
+    }
+
+    private static long measure(List<String> command, HttpClient client, HttpRequest request)
+            throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(new File("target/time-to-first-response.log")))
+                .start();
+        try {
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("SERVER_EXITED: " + process.exitValue()
+                            + ", see target/time-to-first-response.log");
+                }
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() == 200) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                    }
+                } catch (ConnectException e) {
+                    // Not listening yet.
+                }
+                Thread.sleep(5);
+            }
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+}
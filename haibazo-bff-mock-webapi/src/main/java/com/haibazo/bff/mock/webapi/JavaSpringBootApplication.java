@@ -2,6 +2,7 @@ package com.haibazo.bff.mock.webapi;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Main Spring Boot application class for the API mock service.
@@ -15,8 +16,11 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  *                        classpath settings
  *                        - @ComponentScan: Scans for Spring components in the
  *                        package hierarchy
+ * 
+ * @EnableScheduling runs the periodic S3 mock folder sync.
  */
 @SpringBootApplication
+@EnableScheduling
 public class JavaSpringBootApplication {
 
     /**
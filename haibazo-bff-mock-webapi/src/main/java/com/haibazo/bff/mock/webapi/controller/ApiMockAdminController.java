@@ -0,0 +1,123 @@
+package com.haibazo.bff.mock.webapi.controller;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.haibazo.bff.mock.webapi.dto.response.ApiMockRequestRecordDto;
+import com.haibazo.bff.mock.webapi.dto.response.ApiResponseBaseDto;
+import com.haibazo.bff.mock.webapi.dto.response.ApiResponseDto;
+import com.haibazo.bff.mock.webapi.exception.BadRequestException;
+import com.haibazo.bff.mock.webapi.exception.NotFoundException;
+import com.haibazo.bff.mock.webapi.service.ApiMockEnvironmentService;
+import com.haibazo.bff.mock.webapi.service.ApiMockEnvironmentService.MockEnvironment;
+import com.haibazo.bff.mock.webapi.service.ApiMockRequestJournal;
+import com.haibazo.bff.mock.webapi.service.ApiMockScenarioService;
+import com.haibazo.bff.mock.webapi.service.ApiMockSettingService;
+
+/**
+ * Administrative endpoints for operating the mock server at runtime.
+ */
+@RestController
+@RequestMapping("${haibazo.bff.admin.base-path}")
+public class ApiMockAdminController {
+
+    @Autowired
+    private ApiMockSettingService apiMockSettingService;
+
+    @Autowired
+    private ApiMockEnvironmentService environmentService;
+
+    @Autowired
+    private ApiMockRequestJournal requestJournal;
+
+    @Autowired
+    private ApiMockScenarioService scenarioService;
+
+    /**
+     * Reloads the mock settings file and publishes the new route table.
+     *
+     * @param environment The mock environment whose settings are reloaded, the
+     *                    default environment if absent
+     * @return ResponseEntity containing the number of loaded settings
+     * @throws BadRequestException if the settings file cannot be read or is
+     *                             invalid, in which case the current route table
+     *                             is kept
+     * @throws NotFoundException   if there is no such environment
+     */
+    @PostMapping("/mock-settings/reload")
+    public ResponseEntity<ApiResponseBaseDto<Object>> reloadMockSettings(
+            @RequestParam(required = false) String environment) {
+        ApiMockSettingService settingService = apiMockSettingService;
+        if (environment != null) {
+            MockEnvironment mockEnvironment = environmentService.getEnvironment(environment);
+            if (mockEnvironment == null) {
+                throw new NotFoundException("MOCK_ENVIRONMENT_NOT_FOUND");
+            }
+            settingService = mockEnvironment.getSettingService();
+        }
+
+        try {
+            return ApiResponseDto.ok(Map.of("settings", settingService.reload()));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new BadRequestException("MOCK_SETTING_RELOAD_FAILED", e);
+        }
+    }
+
+    /**
+     * Lists the most recent mock requests kept by the request journal, newest
+     * first.
+     *
+     * @param limit         The maximum number of requests listed, at most the
+     *                      journal capacity
+     * @param path          Only requests whose path contains this text
+     * @param status        Only requests answered with this status
+     * @param minDurationMs Only requests that took at least this many
+     *                      milliseconds
+     * @return ResponseEntity containing the matching requests
+     */
+    @GetMapping("/requests")
+    public ResponseEntity<ApiResponseBaseDto<Object>> getRecentRequests(
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String path,
+            @RequestParam(required = false) Integer status,
+            @RequestParam(name = "min_duration_ms", defaultValue = "0") long minDurationMs) {
+        List<ApiMockRequestRecordDto> requests = requestJournal.find(limit, path, status, minDurationMs);
+        return ApiResponseDto.ok(requests);
+    }
+
+    /**
+     * Lists the scenarios of a session that have left their initial state.
+     *
+     * @param session The session, the session of the requests without a
+     *                session header or cookie if absent
+     * @return ResponseEntity containing the states by scenario
+     */
+    @GetMapping("/scenarios")
+    public ResponseEntity<ApiResponseBaseDto<Object>> getScenarioStates(
+            @RequestParam(defaultValue = ApiMockScenarioService.DEFAULT_SESSION) String session) {
+        return ApiResponseDto.ok(scenarioService.getStates(session));
+    }
+
+    /**
+     * Moves the scenarios of a session, or of every session, back to their
+     * initial state.
+     *
+     * @param session The session, every session if absent
+     * @return ResponseEntity containing the number of sessions reset
+     */
+    @DeleteMapping("/scenarios")
+    public ResponseEntity<ApiResponseBaseDto<Object>> resetScenarios(@RequestParam(required = false) String session) {
+        return ApiResponseDto.ok(Map.of("sessions", scenarioService.reset(session)));
+    }
+
+}
@@ -7,7 +7,6 @@ import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.haibazo.bff.mock.webapi.dto.response.ApiResponseBaseDto;
 import com.haibazo.bff.mock.webapi.service.ApiMockService;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -26,14 +25,15 @@ public class ApiMockController {
     private ApiMockService apiMockService;
 
     /**
-     * Handles all incoming requests and returns mock responses.
+     * Handles all incoming requests and returns mock responses, including the
+     * requests addressed to a named mock environment by a path prefix.
      * 
      * @param request  The HTTP request
      * @param response The HTTP response
      * @return ResponseEntity containing the mock response
      */
-    @RequestMapping(value = "${haibazo.bff.itsrct.base-path}/**")
-    public ResponseEntity<ApiResponseBaseDto<Object>> mockItsRctApi(HttpServletRequest request,
+    @RequestMapping(value = { "${haibazo.bff.itsrct.base-path}/**", "/*${haibazo.bff.itsrct.base-path}/**" })
+    public ResponseEntity<?> mockItsRctApi(HttpServletRequest request,
             HttpServletResponse response) {
         return apiMockService.mockItsRctApi(request, response);
     }
@@ -0,0 +1,92 @@
+package com.haibazo.bff.mock.webapi.dto.internal;
+
+import java.nio.ByteBuffer;
+
+import org.springframework.http.HttpStatus;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * A fixture stored in a mock bundle, either pre-serialized into its response
+ * envelope or kept as raw bytes. Read from a bundle, the bodies are slices of
+ * the memory-mapped bundle file.
+ */
+@Value
+@Builder(toBuilder = true)
+public class ApiMockBundleFixtureDto {
+
+    /**
+     * Path of the fixture relative to the mock folder, with {@code /}
+     * separators
+     */
+    String path;
+
+    /**
+     * The charset the fixture was read with, null for a raw fixture
+     */
+    String charset;
+
+    /**
+     * The HTTP status of the serialized envelope, null for a raw fixture
+     */
+    HttpStatus status;
+
+    /**
+     * Last modified time of the fixture file when it was packed, in epoch
+     * milliseconds
+     */
+    long lastModified;
+
+    /**
+     * MD5 hash of the fixture data, hex encoded
+     */
+    String contentHash;
+
+    /**
+     * The serialized envelope, or the raw fixture bytes
+     */
+    ByteBuffer body;
+
+    /**
+     * Position of the body in the bundle file
+     */
+    long bodyPosition;
+
+    /**
+     * The gzip-encoded envelope, null if it is not worth compressing
+     */
+    ByteBuffer gzipBody;
+
+    /**
+     * Position of the gzip-encoded envelope in the bundle file
+     */
+    long gzipPosition;
+
+    /**
+     * The deflate-encoded envelope, null if it is not worth compressing
+     */
+    ByteBuffer deflateBody;
+
+    /**
+     * Position of the deflate-encoded envelope in the bundle file
+     */
+    long deflatePosition;
+
+    /**
+     * Offset of the serialized {@code data} value within the envelope
+     */
+    int dataOffset;
+
+    /**
+     * Length of the serialized {@code data} value
+     */
+    int dataLength;
+
+    /**
+     * End offsets of the list items within the {@code data} value, null if the
+     * fixture is not a list
+     */
+    int[] itemEnds;
+
+}
@@ -0,0 +1,87 @@
+package com.haibazo.bff.mock.webapi.dto.internal;
+
+import org.springframework.http.HttpStatus;
+
+import com.haibazo.bff.mock.webapi.dto.response.MetadataDto;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Immutable cache entry for a mock fixture that has already been read,
+ * validated and serialized into a response envelope.
+ */
+@Value
+@Builder(toBuilder = true)
+public class ApiMockCachedResponseDto {
+
+    /**
+     * Pagination metadata derived from the fixture, null for non-list fixtures
+     */
+    MetadataDto metadata;
+
+    /**
+     * HTTP status the serialized envelope was built for
+     */
+    HttpStatus status;
+
+    /**
+     * Serialized response envelope
+     */
+    byte[] body;
+
+    /**
+     * Hex digest of the serialized {@code data} value, which together with the
+     * status determines the envelope, the base of the response ETags
+     */
+    String contentHash;
+
+    /**
+     * Gzip-encoded body, null when the body is not worth compressing
+     */
+    byte[] gzipBody;
+
+    /**
+     * Deflate-encoded (zlib) body, null when the body is not worth compressing
+     */
+    byte[] deflateBody;
+
+    /**
+     * Offset of the serialized {@code data} value within the body
+     */
+    int dataOffset;
+
+    /**
+     * Length of the serialized {@code data} value within the body
+     */
+    int dataLength;
+
+    /**
+     * End offset of every item of a list fixture, relative to the data value,
+     * null for non-list fixtures
+     */
+    int[] itemEnds;
+
+    /**
+     * Last modified time of the fixture file when it was loaded
+     */
+    long lastModified;
+
+    /**
+     * Size of the fixture file when it was loaded
+     */
+    long size;
+
+    /**
+     * Returns the number of bytes the entry holds on the heap, counting the
+     * identity body, every encoded variant and the item index.
+     *
+     * @return The entry weight in bytes
+     */
+    public long getWeight() {
+        return (long) body.length + (gzipBody == null ? 0 : gzipBody.length)
+                + (deflateBody == null ? 0 : deflateBody.length)
+                + (itemEnds == null ? 0 : (long) itemEnds.length * Integer.BYTES);
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.haibazo.bff.mock.webapi.dto.internal;
+
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Fixture file name of a mock setting compiled into literal pieces and path
+ * variable slots, e.g. {@code countries_0_cities_1_districts.json} becomes
+ * {@code ["countries_", "_cities_", "_districts.json"]} with two slots.
+ */
+@Value
+@Builder
+public class ApiMockFileTemplateDto {
+
+    /**
+     * Literal pieces around the slots, always one more than the slot count
+     */
+    List<String> literals;
+
+    /**
+     * File path with every slot set to zero
+     */
+    String fallbackFilePath;
+
+    /**
+     * Resolved local path of {@link #fallbackFilePath}
+     */
+    String fallbackLocalPath;
+
+    /**
+     * Resolved local path of the setting's file path as written in the CSV
+     */
+    String localPath;
+
+}
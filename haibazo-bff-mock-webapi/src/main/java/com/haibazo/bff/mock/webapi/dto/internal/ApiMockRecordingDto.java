@@ -0,0 +1,52 @@
+package com.haibazo.bff.mock.webapi.dto.internal;
+
+import org.springframework.http.HttpHeaders;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Upstream response recorded by the proxy for a request no mock setting
+ * matched, replayed for identical requests and persisted as a fixture.
+ */
+@Value
+@Builder
+public class ApiMockRecordingDto {
+
+    /**
+     * HTTP method of the recorded request
+     */
+    String method;
+
+    /**
+     * Path of the recorded request
+     */
+    String uri;
+
+    /**
+     * Raw query string of the recorded request, null if it had none
+     */
+    String query;
+
+    /**
+     * MD5 hash of the body of the recorded request, hex encoded, null if it
+     * had none
+     */
+    String bodyHash;
+
+    /**
+     * Status code the upstream answered with
+     */
+    int status;
+
+    /**
+     * Upstream response headers, without the hop-by-hop and framing headers
+     */
+    HttpHeaders headers;
+
+    /**
+     * Upstream response body, identity-encoded
+     */
+    byte[] body;
+
+}
@@ -0,0 +1,25 @@
+package com.haibazo.bff.mock.webapi.dto.internal;
+
+import com.haibazo.bff.mock.webapi.metrics.ApiMockMetrics.Stage;
+
+import lombok.Data;
+
+/**
+ * What a mock request did, gathered while it is served and handed to the
+ * request journal once it completes.
+ */
+@Data
+public class ApiMockRequestStatsDto {
+
+    /**
+     * The resolved fixture path, null if the request matched no mock setting or
+     * its fixture does not exist
+     */
+    private String filePath;
+
+    /**
+     * Time spent in each {@link Stage}, in nanoseconds, indexed by ordinal
+     */
+    private final long[] stageNanos = new long[Stage.values().length];
+
+}
@@ -0,0 +1,62 @@
+package com.haibazo.bff.mock.webapi.dto.internal;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Conditional request validators of a cached mock response, kept apart from
+ * the response bytes so a {@code 304 Not Modified} can be answered even after
+ * the response itself was evicted.
+ */
+@Value
+@Builder
+public class ApiMockResponseValidatorDto {
+
+    /**
+     * Hex digest of the serialized {@code data} value
+     */
+    String contentHash;
+
+    /**
+     * Whether the fixture is a list that can be paginated
+     */
+    boolean list;
+
+    /**
+     * Whether a gzip-encoded variant exists
+     */
+    boolean gzip;
+
+    /**
+     * Whether a deflate-encoded variant exists
+     */
+    boolean deflate;
+
+    /**
+     * Last modified time of the fixture file when it was loaded
+     */
+    long lastModified;
+
+    /**
+     * Size of the fixture file when it was loaded
+     */
+    long size;
+
+    /**
+     * Creates the validators of a cache entry.
+     *
+     * @param entry The cache entry
+     * @return The validators
+     */
+    public static ApiMockResponseValidatorDto of(ApiMockCachedResponseDto entry) {
+        return ApiMockResponseValidatorDto.builder()
+                .contentHash(entry.getContentHash())
+                .list(entry.getItemEnds() != null)
+                .gzip(entry.getGzipBody() != null)
+                .deflate(entry.getDeflateBody() != null)
+                .lastModified(entry.getLastModified())
+                .size(entry.getSize())
+                .build();
+    }
+
+}
@@ -6,9 +6,12 @@ import org.springframework.http.HttpStatus;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.PositiveOrZero;
 
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 /**
  * Data Transfer Object representing API mock settings configuration.
@@ -53,19 +56,75 @@ public class ApiMockSettingDto {
     /**
      * Delay in milliseconds before sending response
      */
+    @NotNull()
+    @PositiveOrZero()
     @Builder.Default
     private Long delayMs = 0L;
 
     /**
-     * Whether to enable request validation
+     * Whether the query parameters, headers and request body predicates select
+     * this setting among the settings sharing its method and URI
      */
     @Builder.Default
     private Boolean validateRequest = false;
 
+    /**
+     * Request body predicates separated by {@code ;}, none if null
+     */
+    private String requestBody;
+
+    /**
+     * Query parameter values separated by {@code ;}, such as
+     * {@code status=active;keyword=tea}, none if null
+     */
+    private String requestQuery;
+
+    /**
+     * Header values separated by {@code ;}, such as {@code Accept-Language=vi},
+     * none if null
+     */
+    private String requestHeaders;
+
+    /**
+     * Scenario whose state this setting depends on or changes, none if null
+     */
+    private String scenario;
+
+    /**
+     * State the scenario must be in for this setting to be selected, any if
+     * null
+     */
+    private String requiredState;
+
+    /**
+     * State the scenario moves to when this setting answers a request,
+     * unchanged if null
+     */
+    private String newState;
+
     /**
      * Content type of the response
      */
     @Builder.Default
     private String contentType = "application/json";
 
+    /**
+     * Cache-Control header value to send with the response, none if null
+     */
+    private String cacheControl;
+
+    /**
+     * Whether the fixture is sent as it is, without the response envelope,
+     * even if its content type is JSON
+     */
+    @Builder.Default
+    private Boolean raw = false;
+
+    /**
+     * File name template compiled from {@link #filePath} when settings are loaded
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private ApiMockFileTemplateDto fileTemplate;
+
 }
\ No newline at end of file
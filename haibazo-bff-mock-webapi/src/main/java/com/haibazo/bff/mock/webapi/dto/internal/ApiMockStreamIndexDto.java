@@ -0,0 +1,41 @@
+package com.haibazo.bff.mock.webapi.dto.internal;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Index of a fixture that is too large to be held in memory and is streamed to
+ * the response instead, built in a single pass over the file.
+ */
+@Value
+@Builder
+public class ApiMockStreamIndexDto {
+
+    /**
+     * Hex digest of the compacted {@code data} value, the base of the response
+     * ETags
+     */
+    String contentHash;
+
+    /**
+     * Number of items of a list fixture, -1 for non-list fixtures
+     */
+    int totalItems;
+
+    /**
+     * Byte offset of every item of a list fixture within the file, null for
+     * non-list fixtures and for charsets without byte offsets
+     */
+    long[] itemOffsets;
+
+    /**
+     * Last modified time of the fixture file when it was indexed
+     */
+    long lastModified;
+
+    /**
+     * Size of the fixture file when it was indexed
+     */
+    long size;
+
+}
@@ -0,0 +1,61 @@
+package com.haibazo.bff.mock.webapi.dto.response;
+
+import java.time.Instant;
+import java.util.Map;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * A mock request as kept by the request journal.
+ */
+@Value
+@Builder
+public class ApiMockRequestRecordDto {
+
+    /**
+     * Position of the request in the journal, increasing with every request
+     */
+    long sequence;
+
+    /**
+     * When the request completed
+     */
+    Instant timestamp;
+
+    /**
+     * The HTTP method of the request
+     */
+    String method;
+
+    /**
+     * The request path
+     */
+    String path;
+
+    /**
+     * The URI pattern of the matched mock setting, null if none matched
+     */
+    String route;
+
+    /**
+     * The resolved fixture path, null if there is none
+     */
+    String file;
+
+    /**
+     * The HTTP status answered with
+     */
+    int status;
+
+    /**
+     * Time spent serving the request in milliseconds, simulated delay included
+     */
+    double durationMs;
+
+    /**
+     * Time spent in each serving stage in milliseconds
+     */
+    Map<String, Double> stagesMs;
+
+}
@@ -0,0 +1,30 @@
+package com.haibazo.bff.mock.webapi.health;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import com.haibazo.bff.mock.webapi.service.ApiMockEnvironmentService;
+
+/**
+ * Reports the application as not ready until the initial S3 mock folder sync
+ * of every mock environment has completed, so traffic is only routed once
+ * every fixture is on disk.
+ */
+@Component("apiMockS3Sync")
+public class ApiMockS3SyncHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private ApiMockEnvironmentService environmentService;
+
+    @Override
+    public Health health() {
+        if (environmentService.isReady()) {
+            return Health.up().build();
+        }
+
+        return Health.outOfService().withDetail("reason", "S3_INITIAL_SYNC_PENDING").build();
+    }
+
+}
@@ -0,0 +1,285 @@
+package com.haibazo.bff.mock.webapi.metrics;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockSettingDto;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Records the metrics of the mock serving pipeline, exposed by the actuator
+ * on {@code /actuator/prometheus} and pushed over OTLP when enabled.
+ *
+ * <p>
+ * Every meter is registered up front, or once per route and status, and
+ * looked up without building tags, so recording on the request path is a
+ * map lookup and a lock-free histogram update that allocate nothing. The
+ * request counters of a route, named by its method and URI, are resolved when
+ * a route table is published and removed once no published table has the
+ * route any more.
+ * Latencies are recorded into percentile histograms with a bounded range, so
+ * quantiles can be aggregated across instances.
+ * </p>
+ */
+@Component
+public class ApiMockMetrics {
+
+    /**
+     * Stages of serving a mock response.
+     */
+    public enum Stage {
+
+        /** Matching the request against the route index. */
+        MATCH,
+
+        /** Resolving the fixture path, downloading it from S3 when needed. */
+        RESOLVE,
+
+        /** Getting the serialized fixture, from the cache or by loading it. */
+        READ,
+
+        /**
+         * Loading a fixture on a cache miss. It is read, parsed and compacted in
+         * one pass and then compressed, so this is the part of {@link #READ}
+         * spent off the cache.
+         */
+        PARSE,
+
+        /** Building the response body, or copying it to the response. */
+        WRITE
+
+    }
+
+    /**
+     * Outcomes of an S3 object download.
+     */
+    public enum S3Result {
+        DOWNLOADED, NOT_MODIFIED, NOT_FOUND, FAILED
+    }
+
+    private static final Duration MIN_EXPECTED = Duration.ofNanos(1_000);
+
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(30);
+
+    private final MeterRegistry registry;
+
+    private final Timer[] stageTimers;
+
+    private final Timer[] s3Timers;
+
+    private final DistributionSummary s3Bytes;
+
+    private final Counter unmatched;
+
+    /**
+     * Request counters by method and URI. Guarded by this.
+     */
+    private final Map<String, RouteMeters> routes = new HashMap<>();
+
+    /**
+     * Routes of the table last published by each owner. Guarded by this.
+     */
+    private final Map<Object, Set<String>> publishedRoutes = new IdentityHashMap<>();
+
+    public ApiMockMetrics(MeterRegistry registry) {
+        this.registry = registry;
+
+        stageTimers = new Timer[Stage.values().length];
+        for (Stage stage : Stage.values()) {
+            stageTimers[stage.ordinal()] = Timer.builder("haibazo.bff.mock.stage")
+                    .description("Time spent in each stage of serving a mock response")
+                    .tag("stage", stage.name().toLowerCase(Locale.ROOT))
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(MIN_EXPECTED)
+                    .maximumExpectedValue(MAX_EXPECTED)
+                    .register(registry);
+        }
+
+        s3Timers = new Timer[S3Result.values().length];
+        for (S3Result result : S3Result.values()) {
+            s3Timers[result.ordinal()] = Timer.builder("haibazo.bff.mock.s3.download")
+                    .description("Latency of S3 mock object downloads")
+                    .tag("result", result.name().toLowerCase(Locale.ROOT))
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(MAX_EXPECTED)
+                    .register(registry);
+        }
+
+        s3Bytes = DistributionSummary.builder("haibazo.bff.mock.s3.download.size")
+                .description("Size of the S3 mock objects downloaded")
+                .baseUnit("bytes")
+                .register(registry);
+
+        unmatched = Counter.builder("haibazo.bff.mock.unmatched")
+                .description("Requests that matched no mock setting")
+                .register(registry);
+    }
+
+    /**
+     * Records the time spent in a stage.
+     *
+     * @param stage The stage
+     * @param nanos The elapsed time in nanoseconds
+     */
+    public void recordStage(Stage stage, long nanos) {
+        stageTimers[stage.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Resolves the request counters of the routes of a newly published route
+     * table, and removes those of the routes no published table has any more.
+     *
+     * @param owner        The publisher, whose previous table is replaced
+     * @param mockSettings The settings of the table
+     * @return The request counters of each setting, by identity
+     */
+    public synchronized Map<ApiMockSettingDto, RouteMeters> publishRoutes(Object owner,
+            List<ApiMockSettingDto> mockSettings) {
+        Map<ApiMockSettingDto, RouteMeters> published = new IdentityHashMap<>();
+        Set<String> keys = new HashSet<>();
+        for (ApiMockSettingDto mockSetting : mockSettings) {
+            if (mockSetting.getMethod() == null || mockSetting.getUri() == null) {
+                continue;
+            }
+            String key = mockSetting.getMethod().name() + ' ' + mockSetting.getUri();
+            keys.add(key);
+            published.put(mockSetting, routes.computeIfAbsent(key,
+                    k -> new RouteMeters(mockSetting.getMethod().name(), mockSetting.getUri())));
+        }
+
+        Set<String> previous = publishedRoutes.put(owner, keys);
+        if (previous != null) {
+            for (String key : previous) {
+                if (!keys.contains(key) && publishedRoutes.values().stream().noneMatch(other -> other.contains(key))) {
+                    routes.remove(key).remove();
+                }
+            }
+        }
+        return published;
+    }
+
+    /**
+     * Counts a request served by a route.
+     *
+     * @param route  The request counters of the matched route, null if its
+     *               table was replaced while the request was served
+     * @param status The status code answered with
+     */
+    public void recordRequest(RouteMeters route, int status) {
+        Counter counter = route == null ? null : route.counter(status);
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    /**
+     * Counts a request that matched no mock setting.
+     */
+    public void recordUnmatched() {
+        unmatched.increment();
+    }
+
+    /**
+     * Records an S3 object download.
+     *
+     * @param result The outcome of the download
+     * @param nanos  The elapsed time in nanoseconds
+     * @param bytes  The number of bytes written to disk
+     */
+    public void recordS3Download(S3Result result, long nanos, long bytes) {
+        s3Timers[result.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+        if (result == S3Result.DOWNLOADED) {
+            s3Bytes.record(bytes);
+        }
+    }
+
+    /**
+     * Request counters of one route, one per status code it answered with. A
+     * route answers with a handful of statuses, so they are scanned linearly
+     * and copied on the rare write.
+     */
+    public final class RouteMeters {
+
+        private final String method;
+
+        private final String uri;
+
+        private volatile int[] statuses = new int[0];
+
+        private volatile Counter[] counters = new Counter[0];
+
+        private boolean removed;
+
+        private RouteMeters(String method, String uri) {
+            this.method = method;
+            this.uri = uri;
+        }
+
+        private Counter counter(int status) {
+            int[] currentStatuses = statuses;
+            Counter[] currentCounters = counters;
+            for (int i = 0; i < currentStatuses.length; i++) {
+                if (currentStatuses[i] == status) {
+                    return currentCounters[i];
+                }
+            }
+            return register(status);
+        }
+
+        /**
+         * Registers the counter of a new status, or returns null once the
+         * route was removed, so a request still being served by a replaced
+         * table does not register it again.
+         */
+        private synchronized Counter register(int status) {
+            for (int i = 0; i < statuses.length; i++) {
+                if (statuses[i] == status) {
+                    return counters[i];
+                }
+            }
+            if (removed) {
+                return null;
+            }
+
+            Counter counter = Counter.builder("haibazo.bff.mock.requests")
+                    .description("Requests served per mock route and status")
+                    .tag("method", method)
+                    .tag("route", uri)
+                    .tag("status", Integer.toString(status))
+                    .register(registry);
+
+            // Counters are published before statuses so a reader never sees a status without its counter.
+            Counter[] newCounters = Arrays.copyOf(counters, counters.length + 1);
+            newCounters[counters.length] = counter;
+            int[] newStatuses = Arrays.copyOf(statuses, statuses.length + 1);
+            newStatuses[statuses.length] = status;
+            counters = newCounters;
+            statuses = newStatuses;
+            return counter;
+        }
+
+        private synchronized void remove() {
+            removed = true;
+            for (Counter counter : counters) {
+                registry.remove(counter);
+            }
+        }
+
+    }
+
+}
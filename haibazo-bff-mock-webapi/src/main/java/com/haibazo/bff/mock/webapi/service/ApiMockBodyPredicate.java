@@ -0,0 +1,233 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * A condition on the request body of a route, compiled once when the settings
+ * are loaded.
+ *
+ * <p>
+ * {@code $.path=value} compares a JSON field with a value,
+ * {@code $.path} requires the field to exist, {@code $.path~regex} searches
+ * the field for a regular expression and {@code ~regex} searches the whole
+ * body. Paths are the dot and bracket subset of JSONPath, such as
+ * {@code $.user.emails[0]} or {@code $['first name']}, without wildcards or
+ * filters.
+ * </p>
+ */
+final class ApiMockBodyPredicate {
+
+    private static final String SEPARATOR = ";";
+
+    private enum Kind {
+        EQUALS, EXISTS, FIELD_REGEX, BODY_REGEX
+    }
+
+    private final Kind kind;
+
+    private final String path;
+
+    private final JsonPointer pointer;
+
+    private final String value;
+
+    private final Pattern pattern;
+
+    private ApiMockBodyPredicate(Kind kind, String path, JsonPointer pointer, String value, Pattern pattern) {
+        this.kind = kind;
+        this.path = path;
+        this.pointer = pointer;
+        this.value = value;
+        this.pattern = pattern;
+    }
+
+    /**
+     * Compiles the predicates of a route, separated by {@code ;}.
+     *
+     * @param expression The predicates, may be null
+     * @return The predicates in order, empty if there are none
+     * @throws IllegalArgumentException If a predicate is invalid
+     */
+    static List<ApiMockBodyPredicate> compileAll(String expression) {
+        List<ApiMockBodyPredicate> predicates = new ArrayList<>();
+        if (expression == null) {
+            return predicates;
+        }
+
+        for (String predicate : expression.split(SEPARATOR)) {
+            if (!predicate.isBlank()) {
+                predicates.add(compile(predicate.trim()));
+            }
+        }
+        return predicates;
+    }
+
+    /**
+     * Compiles a single predicate.
+     *
+     * @param expression The predicate
+     * @return The compiled predicate
+     * @throws IllegalArgumentException If the predicate is invalid
+     */
+    static ApiMockBodyPredicate compile(String expression) {
+        try {
+            if (expression.startsWith("~")) {
+                return new ApiMockBodyPredicate(Kind.BODY_REGEX, null, null, null,
+                        Pattern.compile(expression.substring(1)));
+            }
+
+            int operator = indexOfOperator(expression);
+            if (operator < 0) {
+                return new ApiMockBodyPredicate(Kind.EXISTS, expression, compilePath(expression), null, null);
+            }
+
+            String path = expression.substring(0, operator).trim();
+            String operand = expression.substring(operator + 1).trim();
+            if (expression.charAt(operator) == '=') {
+                return new ApiMockBodyPredicate(Kind.EQUALS, path, compilePath(path), operand, null);
+            }
+            return new ApiMockBodyPredicate(Kind.FIELD_REGEX, path, compilePath(path), null,
+                    Pattern.compile(operand));
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("invalid requestBody regex " + expression);
+        }
+    }
+
+    /**
+     * Whether a request body satisfies the predicate.
+     *
+     * @param content The request
+     * @return true if the predicate holds
+     */
+    boolean test(ApiMockRequestContent content) {
+        if (kind == Kind.BODY_REGEX) {
+            return pattern.matcher(content.getText()).find();
+        }
+
+        JsonNode node = content.getJson().at(pointer);
+        if (node.isMissingNode()) {
+            return false;
+        }
+        return switch (kind) {
+            case EQUALS -> value.equals(text(node));
+            case FIELD_REGEX -> pattern.matcher(text(node)).find();
+            default -> true;
+        };
+    }
+
+    /**
+     * Whether the predicate compares a field with a value, and can be used to
+     * index the variants of a route.
+     */
+    boolean isEquality() {
+        return kind == Kind.EQUALS;
+    }
+
+    /**
+     * Returns the compiled field path, null for a whole-body regex.
+     */
+    JsonPointer getPointer() {
+        return pointer;
+    }
+
+    String getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return switch (kind) {
+            case EQUALS -> path + '=' + value;
+            case EXISTS -> path;
+            case FIELD_REGEX -> path + '~' + pattern;
+            case BODY_REGEX -> "~" + pattern;
+        };
+    }
+
+    /**
+     * Returns the text a field is compared with: the value of a scalar, or the
+     * compact JSON of an object or array.
+     *
+     * @param node A field of the request body
+     * @return The text of the field
+     */
+    static String text(JsonNode node) {
+        return node.isValueNode() ? node.asText() : node.toString();
+    }
+
+    /**
+     * Compiles a JSONPath into the equivalent JSON Pointer.
+     */
+    static JsonPointer compilePath(String path) {
+        if (!path.startsWith("$")) {
+            throw new IllegalArgumentException("invalid requestBody path " + path);
+        }
+
+        StringBuilder pointer = new StringBuilder();
+        int index = 1;
+        while (index < path.length()) {
+            char c = path.charAt(index);
+            String name;
+            if (c == '.') {
+                int end = index + 1;
+                while (end < path.length() && path.charAt(end) != '.' && path.charAt(end) != '[') {
+                    end++;
+                }
+                name = path.substring(index + 1, end);
+                index = end;
+            } else if (c == '[') {
+                int close = path.indexOf(']', index);
+                if (close < 0) {
+                    throw new IllegalArgumentException("invalid requestBody path " + path);
+                }
+                String selector = path.substring(index + 1, close).trim();
+                name = isQuoted(selector) ? selector.substring(1, selector.length() - 1)
+                        : isIndex(selector) ? selector : null;
+                index = close + 1;
+            } else {
+                throw new IllegalArgumentException("invalid requestBody path " + path);
+            }
+
+            if (name == null || name.isEmpty() || name.equals("*")) {
+                throw new IllegalArgumentException("unsupported requestBody path " + path);
+            }
+            pointer.append('/').append(name.replace("~", "~0").replace("/", "~1"));
+        }
+
+        return JsonPointer.compile(pointer.toString());
+    }
+
+    private static int indexOfOperator(String expression) {
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (c == '=' || c == '~') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isQuoted(String selector) {
+        return selector.length() >= 2 && (selector.charAt(0) == '\'' || selector.charAt(0) == '"')
+                && selector.charAt(selector.length() - 1) == selector.charAt(0);
+    }
+
+    private static boolean isIndex(String selector) {
+        if (selector.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < selector.length(); i++) {
+            if (selector.charAt(i) < '0' || selector.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
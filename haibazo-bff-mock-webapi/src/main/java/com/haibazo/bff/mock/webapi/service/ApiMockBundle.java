@@ -0,0 +1,307 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockBundleFixtureDto;
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockSettingDto;
+
+/**
+ * A mock folder packed into a single indexed file by
+ * {@link ApiMockBundlePacker}.
+ *
+ * <p>
+ * The file starts with a fixed header holding a magic number, the format
+ * version, the SHA-256 hash of everything that follows and the length of the
+ * index. The index holds the route table followed by one entry per fixture
+ * with the absolute positions of its bodies, and the bodies follow the index.
+ * The whole file is memory-mapped when opened, so bodies are handed out as
+ * slices of the mapping without being copied.
+ * </p>
+ */
+public final class ApiMockBundle {
+
+    private static final int MAGIC = 0x48424d42;
+
+    private static final int FORMAT_VERSION = 5;
+
+    private static final int HASH_LENGTH = 32;
+
+    private static final int HEADER_LENGTH = 4 + 4 + HASH_LENGTH + 4;
+
+    private final Path path;
+
+    private final String hash;
+
+    private final List<ApiMockSettingDto> mockSettings;
+
+    private final List<ApiMockBundleFixtureDto> fixtures;
+
+    private ApiMockBundle(Path path, String hash, List<ApiMockSettingDto> mockSettings,
+            List<ApiMockBundleFixtureDto> fixtures) {
+        this.path = path;
+        this.hash = hash;
+        this.mockSettings = mockSettings;
+        this.fixtures = fixtures;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the content hash of the bundle, identifying it across builds and
+     * restarts.
+     *
+     * @return The SHA-256 hash of the index and bodies, hex encoded
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    public List<ApiMockSettingDto> getMockSettings() {
+        return mockSettings;
+    }
+
+    public List<ApiMockBundleFixtureDto> getFixtures() {
+        return fixtures;
+    }
+
+    /**
+     * Memory-maps a bundle and reads its index.
+     *
+     * @param path   The bundle file
+     * @param verify Whether the content hash is recomputed and checked
+     * @return The bundle
+     * @throws IOException              If the bundle cannot be read
+     * @throws IllegalArgumentException If the file is not a bundle, was written
+     *                                  by another format version, is larger than
+     *                                  2 GB, fails verification or its index
+     *                                  points outside the file
+     */
+    public static ApiMockBundle open(Path path, boolean verify) throws IOException {
+        MappedByteBuffer mapping;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("MOCK_BUNDLE_TOO_LARGE: " + path);
+            }
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (mapping.capacity() < HEADER_LENGTH || mapping.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("NOT_A_MOCK_BUNDLE: " + path);
+        }
+        if (mapping.getInt(4) != FORMAT_VERSION) {
+            throw new IllegalArgumentException("UNSUPPORTED_MOCK_BUNDLE_VERSION: " + mapping.getInt(4));
+        }
+
+        byte[] hashBytes = new byte[HASH_LENGTH];
+        mapping.get(8, hashBytes);
+        String hash = HexFormat.of().formatHex(hashBytes);
+        if (verify) {
+            MessageDigest digest = sha256();
+            digest.update(mapping.slice(HEADER_LENGTH - 4, mapping.capacity() - HEADER_LENGTH + 4));
+            if (!MessageDigest.isEqual(hashBytes, digest.digest())) {
+                throw new IllegalArgumentException("MOCK_BUNDLE_HASH_MISMATCH: " + path);
+            }
+        }
+
+        int indexLength = mapping.getInt(HEADER_LENGTH - 4);
+        if (indexLength < 0 || indexLength > mapping.capacity() - HEADER_LENGTH) {
+            throw new IllegalArgumentException("MOCK_BUNDLE_CORRUPT: " + path + " - index of " + indexLength
+                    + " bytes exceeds the file");
+        }
+        byte[] index = new byte[indexLength];
+        mapping.get(HEADER_LENGTH, index);
+
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(index))) {
+            List<ApiMockSettingDto> mockSettings = List.copyOf(ApiMockSettingCompiler.readSettings(input));
+
+            int count = input.readInt();
+            if (count < 0 || count > input.available()) {
+                throw new IllegalArgumentException("MOCK_BUNDLE_CORRUPT: " + path + " - " + count + " fixtures");
+            }
+            List<ApiMockBundleFixtureDto> fixtures = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                ApiMockBundleFixtureDto.ApiMockBundleFixtureDtoBuilder fixture = ApiMockBundleFixtureDto.builder()
+                        .path(input.readUTF())
+                        .charset(ApiMockSettingCompiler.readNullable(input));
+                int status = input.readShort();
+                fixture.status(status == 0 ? null : HttpStatus.valueOf(status))
+                        .lastModified(input.readLong())
+                        .contentHash(input.readUTF());
+
+                long position = input.readLong();
+                fixture.bodyPosition(position).body(slice(path, mapping, position, input.readInt()));
+                position = input.readLong();
+                fixture.gzipPosition(position).gzipBody(slice(path, mapping, position, input.readInt()));
+                position = input.readLong();
+                fixture.deflatePosition(position).deflateBody(slice(path, mapping, position, input.readInt()));
+
+                fixture.dataOffset(input.readInt()).dataLength(input.readInt());
+                int items = input.readInt();
+                if (items > input.available() / Integer.BYTES) {
+                    throw new IllegalArgumentException("MOCK_BUNDLE_CORRUPT: " + path + " - " + items + " items");
+                }
+                if (items >= 0) {
+                    int[] itemEnds = new int[items];
+                    for (int item = 0; item < items; item++) {
+                        itemEnds[item] = input.readInt();
+                    }
+                    fixture.itemEnds(itemEnds);
+                }
+                fixtures.add(fixture.build());
+            }
+
+            return new ApiMockBundle(path, hash, mockSettings, List.copyOf(fixtures));
+        } catch (EOFException | UTFDataFormatException e) {
+            throw new IllegalArgumentException("MOCK_BUNDLE_CORRUPT: " + path + " - truncated index", e);
+        }
+    }
+
+    /**
+     * Writes a bundle, replacing the file atomically.
+     *
+     * @param path         The bundle file
+     * @param mockSettings The validated route table
+     * @param fixtures     The fixtures, with their bodies from position zero to
+     *                     their limit
+     * @return The content hash of the written bundle
+     * @throws IOException If the bundle cannot be written
+     */
+    public static String write(Path path, List<ApiMockSettingDto> mockSettings,
+            List<ApiMockBundleFixtureDto> fixtures) throws IOException {
+        // The index length does not depend on the positions, so it is sized with
+        // placeholder positions before the real ones are known.
+        int indexLength = index(mockSettings, fixtures, 0).length;
+        byte[] index = index(mockSettings, fixtures, HEADER_LENGTH + indexLength);
+
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path tempFile = Files.createTempFile(directory, ".bundle-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+                DataOutputStream header = new DataOutputStream(file);
+                header.writeInt(MAGIC);
+                header.writeInt(FORMAT_VERSION);
+                header.write(new byte[HASH_LENGTH]);
+
+                DataOutputStream content = new DataOutputStream(new DigestOutputStream(file, digest));
+                content.writeInt(index.length);
+                content.write(index);
+                for (ApiMockBundleFixtureDto fixture : fixtures) {
+                    write(content, fixture.getBody());
+                    write(content, fixture.getGzipBody());
+                    write(content, fixture.getDeflateBody());
+                }
+                content.flush();
+            }
+
+            byte[] hash = digest.digest();
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(hash), 8);
+            }
+            Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            return HexFormat.of().formatHex(hash);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Serializes the index, laying the bodies out one after the other from the
+     * given position.
+     */
+    private static byte[] index(List<ApiMockSettingDto> mockSettings, List<ApiMockBundleFixtureDto> fixtures,
+            long dataPosition) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        ApiMockSettingCompiler.writeSettings(output, mockSettings);
+
+        long position = dataPosition;
+        output.writeInt(fixtures.size());
+        for (ApiMockBundleFixtureDto fixture : fixtures) {
+            output.writeUTF(fixture.getPath());
+            ApiMockSettingCompiler.writeNullable(output, fixture.getCharset());
+            output.writeShort(fixture.getStatus() == null ? 0 : fixture.getStatus().value());
+            output.writeLong(fixture.getLastModified());
+            output.writeUTF(fixture.getContentHash());
+            for (ByteBuffer body : new ByteBuffer[] { fixture.getBody(), fixture.getGzipBody(),
+                    fixture.getDeflateBody() }) {
+                int length = body == null ? -1 : body.remaining();
+                output.writeLong(body == null ? -1 : position);
+                output.writeInt(length);
+                position += Math.max(length, 0);
+            }
+            output.writeInt(fixture.getDataOffset());
+            output.writeInt(fixture.getDataLength());
+            int[] itemEnds = fixture.getItemEnds();
+            output.writeInt(itemEnds == null ? -1 : itemEnds.length);
+            if (itemEnds != null) {
+                for (int itemEnd : itemEnds) {
+                    output.writeInt(itemEnd);
+                }
+            }
+        }
+        output.flush();
+
+        return bytes.toByteArray();
+    }
+
+    private static void write(DataOutputStream output, ByteBuffer body) throws IOException {
+        if (body == null) {
+            return;
+        }
+        ByteBuffer view = body.duplicate();
+        byte[] chunk = new byte[Math.min(view.remaining(), 64 * 1024)];
+        while (view.hasRemaining()) {
+            int length = Math.min(chunk.length, view.remaining());
+            view.get(chunk, 0, length);
+            output.write(chunk, 0, length);
+        }
+    }
+
+    private static ByteBuffer slice(Path path, MappedByteBuffer mapping, long position, int length) {
+        if (length < 0) {
+            return null;
+        }
+        if (position < HEADER_LENGTH || position + length > mapping.capacity()) {
+            throw new IllegalArgumentException("MOCK_BUNDLE_CORRUPT: " + path + " - body of " + length
+                    + " bytes at " + position + " exceeds the file");
+        }
+        return mapping.slice((int) position, length).asReadOnlyBuffer();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
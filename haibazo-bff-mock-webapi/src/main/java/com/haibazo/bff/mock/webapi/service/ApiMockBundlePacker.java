@@ -0,0 +1,188 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.DigestUtils;
+
+import com.haibazo.bff.mock.webapi.JavaSpringBootApplication;
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockBundleFixtureDto;
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockCachedResponseDto;
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockSettingDto;
+
+/**
+ * Packs a local mock folder into the bundle served by
+ * {@link ApiMockBundleService}.
+ *
+ * <p>
+ * Every fixture a route can resolve to, including the files its path
+ * variables select, is packed once per form it is served in: enveloped JSON
+ * fixtures are wrapped and compressed exactly as the response cache would, and
+ * other fixtures are packed as raw bytes. The application context is started
+ * without a web server, so the configured envelope and compression settings
+ * apply. Run at build time against the extracted application jar with
+ * {@code java -cp <app jar> com.haibazo.bff.mock.webapi.service.ApiMockBundlePacker <mock folder> <bundle> [--<property>=<value>]...}.
+ * </p>
+ */
+public final class ApiMockBundlePacker {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiMockBundlePacker.class);
+
+    private static final String SLOT = "{}";
+
+    private ApiMockBundlePacker() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ApiMockBundlePacker <mock folder> <bundle> [--<property>=<value>]...");
+            System.exit(2);
+        }
+
+        Path bundleFile = Path.of(args[1]);
+        List<String> properties = new ArrayList<>(Arrays.asList(args).subList(2, args.length));
+        properties.add("--haibazo.bff.mock.storage=local");
+        properties.add("--haibazo.bff.mock.base-folder-path=" + args[0]);
+        properties.add("--haibazo.bff.mock.setting.reload-enabled=false");
+        properties.add("--haibazo.bff.mock.environments=");
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(JavaSpringBootApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(properties.toArray(String[]::new))) {
+            ApiMockSettingService settingService = context.getBean(ApiMockSettingService.class);
+            settingService.reload();
+
+            String hash = pack(settingService, context.getBean(ApiMockLocalStorageService.class),
+                    context.getBean(ApiMockEnvelopeService.class), context.getBean(ApiMockCompressionService.class),
+                    bundleFile);
+            System.out.println("MOCK_BUNDLE_PACKED: " + settingService.getMockSettings().size() + " settings from ["
+                    + args[0] + "] to [" + bundleFile + "], hash " + hash);
+        }
+    }
+
+    /**
+     * Packs the published route table of a settings service and the fixtures
+     * its routes resolve to.
+     *
+     * @param settingService      The settings, already loaded
+     * @param localStorageService The local storage of the mock folder
+     * @param envelopeService     Wraps the JSON fixtures
+     * @param compressionService  Adds the encoded variants
+     * @param bundleFile          The bundle to write
+     * @return The content hash of the bundle
+     * @throws IOException If a fixture cannot be read or the bundle cannot be
+     *                     written
+     */
+    static String pack(ApiMockSettingService settingService, ApiMockLocalStorageService localStorageService,
+            ApiMockEnvelopeService envelopeService, ApiMockCompressionService compressionService, Path bundleFile)
+            throws IOException {
+        List<ApiMockSettingDto> mockSettings = settingService.getMockSettings();
+        Map<ApiMockSettingDto, Pattern> patterns = new LinkedHashMap<>();
+        for (ApiMockSettingDto mockSetting : mockSettings) {
+            patterns.put(mockSetting, pattern(localStorageService, mockSetting));
+        }
+
+        Path baseFolder = Path.of(localStorageService.getMockFilePath("."));
+        Path skipped = bundleFile.toAbsolutePath().normalize();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(baseFolder)) {
+            files = walk.filter(Files::isRegularFile)
+                    .filter(file -> !file.toAbsolutePath().normalize().equals(skipped))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        Map<String, ApiMockBundleFixtureDto> fixtures = new LinkedHashMap<>();
+        for (Path file : files) {
+            String filePath = file.normalize().toString();
+            String relativePath = baseFolder.relativize(file).toString().replace('\\', '/');
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+
+            for (Map.Entry<ApiMockSettingDto, Pattern> route : patterns.entrySet()) {
+                if (!route.getValue().matcher(filePath).matches()) {
+                    continue;
+                }
+
+                ApiMockSettingDto mockSetting = route.getKey();
+                String charset = ApiMockService.isEnveloped(mockSetting) ? mockSetting.getCharset() : null;
+                String key = charset == null ? relativePath : relativePath + '|' + charset;
+                if (fixtures.containsKey(key)) {
+                    continue;
+                }
+
+                if (charset == null) {
+                    byte[] bytes = Files.readAllBytes(file);
+                    fixtures.put(key, ApiMockBundleFixtureDto.builder()
+                            .path(relativePath)
+                            .lastModified(attributes.lastModifiedTime().toMillis())
+                            .contentHash(DigestUtils.md5DigestAsHex(bytes))
+                            .body(ByteBuffer.wrap(bytes))
+                            .build());
+                    continue;
+                }
+
+                ApiMockCachedResponseDto envelope;
+                try {
+                    envelope = compressionService.compress(
+                            envelopeService.load(filePath, charset, mockSetting.getStatus(), attributes));
+                } catch (IOException e) {
+                    // Served as FAILED_TO_READ_MOCK_FILE from a local folder as well.
+                    logger.warn("MOCK_FIXTURE_NOT_PACKED: [{}] {}", filePath, e.getMessage());
+                    continue;
+                }
+                fixtures.put(key, ApiMockBundleFixtureDto.builder()
+                        .path(relativePath)
+                        .charset(charset)
+                        .status(envelope.getStatus())
+                        .lastModified(envelope.getLastModified())
+                        .contentHash(envelope.getContentHash())
+                        .body(ByteBuffer.wrap(envelope.getBody()))
+                        .gzipBody(envelope.getGzipBody() == null ? null : ByteBuffer.wrap(envelope.getGzipBody()))
+                        .deflateBody(envelope.getDeflateBody() == null ? null
+                                : ByteBuffer.wrap(envelope.getDeflateBody()))
+                        .dataOffset(envelope.getDataOffset())
+                        .dataLength(envelope.getDataLength())
+                        .itemEnds(envelope.getItemEnds())
+                        .build());
+            }
+        }
+
+        return ApiMockBundle.write(bundleFile, mockSettings, List.copyOf(fixtures.values()));
+    }
+
+    /**
+     * Compiles the files a route can resolve to into a pattern over resolved
+     * paths, with one path segment per slot of its file template.
+     */
+    private static Pattern pattern(ApiMockLocalStorageService localStorageService, ApiMockSettingDto mockSetting) {
+        List<String> literals = mockSetting.getFileTemplate().getLiterals();
+        String template = localStorageService.getMockFilePath(String.join(SLOT, literals));
+
+        StringBuilder regex = new StringBuilder();
+        int start = 0;
+        for (int slot = template.indexOf(SLOT); slot >= 0; slot = template.indexOf(SLOT, start)) {
+            regex.append(Pattern.quote(template.substring(start, slot))).append("[^/\\\\]+");
+            start = slot + SLOT.length();
+        }
+        regex.append(Pattern.quote(template.substring(start)));
+
+        return Pattern.compile(regex.toString());
+    }
+
+}
@@ -0,0 +1,217 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockBundleFixtureDto;
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockCachedResponseDto;
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockSettingDto;
+import com.haibazo.bff.mock.webapi.dto.response.MetadataDto;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Serves the mock folder from a bundle packed by {@link ApiMockBundlePacker}
+ * when the storage is {@code bundle}.
+ *
+ * <p>
+ * The bundle is memory-mapped once at startup and replaces both the settings
+ * file and the fixtures: responses are written from slices of the mapping,
+ * already wrapped and compressed, so nothing is parsed or cached on the heap.
+ * The bundle is verified against its content hash when it is opened, and
+ * optionally against the hash a deployment expects, so a container can check
+ * it is serving the bundle it was built with.
+ * </p>
+ */
+@Service
+public class ApiMockBundleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiMockBundleService.class);
+
+    @Value("${haibazo.bff.mock.storage:local}")
+    private String mockStorage;
+
+    /**
+     * The bundle file, relative to the mock folder.
+     */
+    @Value("${haibazo.bff.mock.bundle.path:./bff-mock.bundle}")
+    private String bundlePath;
+
+    /**
+     * Whether the content hash is recomputed when the bundle is opened.
+     */
+    @Value("${haibazo.bff.mock.bundle.verify:true}")
+    private boolean verify;
+
+    /**
+     * The content hash the bundle must have, not checked if blank.
+     */
+    @Value("${haibazo.bff.mock.bundle.expected-hash:}")
+    private String expectedHash;
+
+    @Autowired
+    private ApiMockLocalStorageService localStorageService;
+
+    private ApiMockBundle bundle;
+
+    /**
+     * Fixtures by resolved path and charset, null for raw fixtures.
+     */
+    private Map<String, ApiMockBundleFixtureDto> fixtures = Map.of();
+
+    private Set<String> filePaths = Set.of();
+
+    /**
+     * Heap copies of envelopes, made only for pages and re-wrapped statuses.
+     */
+    private final Map<String, ApiMockCachedResponseDto> materialized = new ConcurrentHashMap<>();
+
+    /**
+     * Opens the bundle when the storage is {@code bundle}. Unlike the other
+     * storages, a missing or corrupt bundle fails the startup, since there is
+     * nothing else to serve.
+     *
+     * @throws IOException If the bundle cannot be read
+     */
+    @PostConstruct
+    public void initialize() throws IOException {
+        if (!"bundle".equals(mockStorage)) {
+            return;
+        }
+
+        Path path = Path.of(localStorageService.getMockFilePath(bundlePath));
+        ApiMockBundle opened = ApiMockBundle.open(path, verify);
+        if (expectedHash != null && !expectedHash.isBlank() && !expectedHash.equalsIgnoreCase(opened.getHash())) {
+            throw new IllegalStateException("MOCK_BUNDLE_HASH_MISMATCH: expected " + expectedHash + " but ["
+                    + path + "] has " + opened.getHash());
+        }
+
+        Map<String, ApiMockBundleFixtureDto> index = new HashMap<>();
+        Set<String> paths = new HashSet<>();
+        for (ApiMockBundleFixtureDto fixture : opened.getFixtures()) {
+            String filePath = localStorageService.getMockFilePath(fixture.getPath());
+            index.put(key(filePath, fixture.getCharset()), fixture);
+            paths.add(filePath);
+        }
+
+        fixtures = index;
+        filePaths = paths;
+        bundle = opened;
+        logger.info("MOCK_BUNDLE_OPENED: {} settings and {} fixtures from [{}], hash {}",
+                opened.getMockSettings().size(), opened.getFixtures().size(), path, opened.getHash());
+    }
+
+    /**
+     * Returns the open bundle.
+     *
+     * @return The bundle, or null if the storage is not {@code bundle}
+     */
+    public ApiMockBundle getBundle() {
+        return bundle;
+    }
+
+    /**
+     * Returns the route table packed into the bundle.
+     *
+     * @return The settings in file order
+     */
+    public List<ApiMockSettingDto> getMockSettings() {
+        return bundle.getMockSettings();
+    }
+
+    /**
+     * Whether the bundle holds a fixture, in any form.
+     *
+     * @param filePath The resolved fixture path
+     * @return true if the fixture was packed
+     */
+    public boolean contains(String filePath) {
+        return filePaths.contains(filePath);
+    }
+
+    /**
+     * Finds a packed fixture.
+     *
+     * @param filePath The resolved fixture path
+     * @param charset  The charset of an enveloped fixture, null for a raw one
+     * @return The fixture, or null if it was not packed in that form
+     */
+    public ApiMockBundleFixtureDto find(String filePath, String charset) {
+        return fixtures.get(key(filePath, charset));
+    }
+
+    /**
+     * Copies an enveloped fixture to the heap, for the responses that are
+     * sliced or re-wrapped rather than served as packed. The copy is kept for
+     * the lifetime of the bundle.
+     *
+     * @param fixture An enveloped fixture of the bundle
+     * @return The fixture as a response cache entry, without encoded variants
+     */
+    public ApiMockCachedResponseDto materialize(ApiMockBundleFixtureDto fixture) {
+        return materialized.computeIfAbsent(key(fixture.getPath(), fixture.getCharset()), key -> {
+            byte[] body = new byte[fixture.getBody().remaining()];
+            fixture.getBody().duplicate().get(body);
+            int[] itemEnds = fixture.getItemEnds();
+            return ApiMockCachedResponseDto.builder()
+                    .metadata(itemEnds == null ? null : new MetadataDto(1, 1, itemEnds.length))
+                    .status(fixture.getStatus())
+                    .body(body)
+                    .contentHash(fixture.getContentHash())
+                    .dataOffset(fixture.getDataOffset())
+                    .dataLength(fixture.getDataLength())
+                    .itemEnds(itemEnds)
+                    .lastModified(fixture.getLastModified())
+                    .size(body.length)
+                    .build();
+        });
+    }
+
+    /**
+     * Returns the identity body of a fixture, or one of its encoded variants.
+     *
+     * @param fixture  The fixture
+     * @param encoding The negotiated content coding, null for identity
+     * @return A read-only slice of the bundle
+     */
+    public static ByteBuffer body(ApiMockBundleFixtureDto fixture, String encoding) {
+        if (encoding == null) {
+            return fixture.getBody();
+        }
+        return ApiMockCompressionService.GZIP.equals(encoding) ? fixture.getGzipBody() : fixture.getDeflateBody();
+    }
+
+    /**
+     * Returns the position in the bundle file of a body returned by
+     * {@link #body(ApiMockBundleFixtureDto, String)}.
+     *
+     * @param fixture  The fixture
+     * @param encoding The negotiated content coding, null for identity
+     * @return The position of the body in the bundle file
+     */
+    public static long position(ApiMockBundleFixtureDto fixture, String encoding) {
+        if (encoding == null) {
+            return fixture.getBodyPosition();
+        }
+        return ApiMockCompressionService.GZIP.equals(encoding) ? fixture.getGzipPosition()
+                : fixture.getDeflatePosition();
+    }
+
+    private static String key(String filePath, String charset) {
+        return charset == null ? filePath : filePath + '|' + charset;
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockCachedResponseDto;
+
+/**
+ * Precompresses serialized mock responses and picks the variant a client
+ * accepts.
+ *
+ * <p>
+ * Variants are built once when a fixture is loaded into the response cache,
+ * so serving a compressed response costs no more than serving the identity
+ * bytes. Bodies smaller than the configured threshold, and bodies that do not
+ * shrink, are kept identity-only.
+ * </p>
+ */
+@Service
+public class ApiMockCompressionService {
+
+    public static final String GZIP = "gzip";
+
+    public static final String DEFLATE = "deflate";
+
+    @Value("${haibazo.bff.mock.compression.enabled:true}")
+    private boolean enabled;
+
+    @Value("${haibazo.bff.mock.compression.min-bytes:1024}")
+    private int minBytes;
+
+    /**
+     * Adds gzip and deflate variants to a cache entry.
+     *
+     * @param entry The cache entry holding the identity body
+     * @return The entry with its encoded variants, or the same entry if the body
+     *         is not worth compressing
+     * @throws IOException If the body cannot be compressed
+     */
+    public ApiMockCachedResponseDto compress(ApiMockCachedResponseDto entry) throws IOException {
+        byte[] body = entry.getBody();
+        if (!enabled || body.length < minBytes) {
+            return entry;
+        }
+
+        byte[] gzipBody = encode(body, GZIP);
+        byte[] deflateBody = encode(body, DEFLATE);
+
+        return entry.toBuilder()
+                .gzipBody(gzipBody.length < body.length ? gzipBody : null)
+                .deflateBody(deflateBody.length < body.length ? deflateBody : null)
+                .build();
+    }
+
+    /**
+     * Chooses the content coding to answer with. Gzip wins ties, and codings
+     * refused with {@code q=0} are never used.
+     *
+     * @param entry          The cache entry
+     * @param acceptEncoding The request's Accept-Encoding header, may be null
+     * @return {@link #GZIP}, {@link #DEFLATE}, or null for the identity body
+     */
+    public String negotiate(ApiMockCachedResponseDto entry, String acceptEncoding) {
+        return negotiate(entry.getGzipBody() != null, entry.getDeflateBody() != null, acceptEncoding);
+    }
+
+    /**
+     * Chooses the content coding to answer with, given which variants exist.
+     *
+     * @param gzip           Whether a gzip variant exists
+     * @param deflate        Whether a deflate variant exists
+     * @param acceptEncoding The request's Accept-Encoding header, may be null
+     * @return {@link #GZIP}, {@link #DEFLATE}, or null for the identity body
+     */
+    public String negotiate(boolean gzip, boolean deflate, String acceptEncoding) {
+        if (!StringUtils.hasText(acceptEncoding) || !gzip && !deflate) {
+            return null;
+        }
+
+        Float gzipQuality = null;
+        Float deflateQuality = null;
+        float wildcardQuality = 0;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            float quality = quality(parts);
+            switch (name) {
+                case GZIP, "x-gzip" -> gzipQuality = quality;
+                case DEFLATE -> deflateQuality = quality;
+                case "*" -> wildcardQuality = quality;
+                default -> {
+                    // Codings we do not precompress are irrelevant.
+                }
+            }
+        }
+
+        float gzipWeight = !gzip ? 0 : gzipQuality == null ? wildcardQuality : gzipQuality;
+        float deflateWeight = !deflate ? 0 : deflateQuality == null ? wildcardQuality : deflateQuality;
+
+        if (gzipWeight > 0 && gzipWeight >= deflateWeight) {
+            return GZIP;
+        }
+        return deflateWeight > 0 ? DEFLATE : null;
+    }
+
+    /**
+     * Whether a cache entry has at least one encoded variant, in which case the
+     * response varies by Accept-Encoding.
+     *
+     * @param entry The cache entry
+     * @return true if the entry has an encoded variant
+     */
+    public boolean isCompressed(ApiMockCachedResponseDto entry) {
+        return entry.getGzipBody() != null || entry.getDeflateBody() != null;
+    }
+
+    private static float quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Float.parseFloat(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static byte[] encode(byte[] body, String coding) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        if (GZIP.equals(coding)) {
+            try (OutputStream encoder = new BestGzipOutputStream(output)) {
+                encoder.write(body);
+            }
+            return output.toByteArray();
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (OutputStream encoder = new DeflaterOutputStream(output, deflater)) {
+            encoder.write(body);
+        } finally {
+            deflater.end();
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Gzip stream that compresses at the best level instead of the default one.
+     */
+    private static final class BestGzipOutputStream extends GZIPOutputStream {
+
+        BestGzipOutputStream(OutputStream output) throws IOException {
+            super(output);
+            def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+
+    }
+
+}
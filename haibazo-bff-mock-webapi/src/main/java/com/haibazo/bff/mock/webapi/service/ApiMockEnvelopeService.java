@@ -0,0 +1,318 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockCachedResponseDto;
+import com.haibazo.bff.mock.webapi.dto.request.PageableRequestDto;
+import com.haibazo.bff.mock.webapi.dto.response.ApiResponseBaseDto;
+import com.haibazo.bff.mock.webapi.dto.response.MetadataDto;
+
+/**
+ * Builds serialized response envelopes around mock fixtures without going
+ * through an intermediate object tree.
+ *
+ * <p>
+ * Fixtures are streamed once through a Jackson parser and generator, which
+ * validates them, compacts them and counts the items of a top-level array in
+ * the same pass. The envelope fields around the {@code data} value come from a
+ * per-status template that is itself produced by serializing
+ * {@link ApiResponseBaseDto}, so the spliced output stays byte-compatible with
+ * what the message converter writes for the equivalent DTO.
+ * </p>
+ */
+@Service
+public class ApiMockEnvelopeService {
+
+    private static final String DATA_MARKER = "__HBZ_MOCK_DATA__";
+
+    private static final String METADATA_MARKER = "__HBZ_MOCK_METADATA__";
+
+    private static final byte[] NULL_VALUE = "null".getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<HttpStatus, Template> templates = new ConcurrentHashMap<>();
+
+    /**
+     * Writes the serialized {@code data} value of a streamed envelope.
+     */
+    @FunctionalInterface
+    public interface DataWriter {
+
+        void write(OutputStream output) throws IOException;
+
+    }
+
+    /**
+     * Reads a fixture and wraps it into a serialized response envelope.
+     *
+     * @param filePath   The resolved fixture path
+     * @param charset    The charset the fixture is encoded with
+     * @param status     The HTTP status of the envelope
+     * @param attributes The fixture file attributes at load time
+     * @return The cache entry for the fixture
+     * @throws IOException If the fixture cannot be read or is not valid JSON
+     */
+    public ApiMockCachedResponseDto load(String filePath, String charset, HttpStatus status,
+            BasicFileAttributes attributes) throws IOException {
+        ByteArrayBuilder data = new ByteArrayBuilder();
+        int[] itemEnds;
+
+        try {
+            itemEnds = compact(Path.of(filePath), Charset.forName(charset), data);
+        } catch (JsonProcessingException e) {
+            // Fixtures the strict streaming pass rejects, such as duplicate keys, keep
+            // the lenient parse-then-serialize behavior (or fail the same way).
+            data.reset();
+            Object parsedContent = objectMapper.readValue(
+                    Files.readString(Path.of(filePath), Charset.forName(charset)), Object.class);
+            itemEnds = parsedContent instanceof List<?> dataList ? writeItems(dataList, data) : null;
+            if (itemEnds == null) {
+                data.write(objectMapper.writeValueAsBytes(parsedContent));
+            }
+        }
+
+        int totalItems = itemEnds == null ? -1 : itemEnds.length;
+        MetadataDto metadata = totalItems >= 0 ? new MetadataDto(1, 1, totalItems) : null;
+        byte[] dataBytes = data.toByteArray();
+        Template template = template(status);
+        byte[] body = template.wrap(dataBytes, 0, dataBytes.length, serializeMetadata(metadata));
+
+        return ApiMockCachedResponseDto.builder()
+                .metadata(metadata)
+                .status(status)
+                .body(body)
+                .contentHash(DigestUtils.md5DigestAsHex(dataBytes))
+                .itemEnds(itemEnds)
+                .dataOffset(template.prefix.length)
+                .dataLength(dataBytes.length)
+                .lastModified(attributes.lastModifiedTime().toMillis())
+                .size(attributes.size())
+                .build();
+    }
+
+    /**
+     * Re-wraps the data of a cached entry into an envelope with another status.
+     *
+     * @param cachedResponse The cached entry
+     * @param status         The HTTP status of the new envelope
+     * @return The serialized envelope
+     * @throws IOException If the metadata cannot be serialized
+     */
+    public byte[] rewrap(ApiMockCachedResponseDto cachedResponse, HttpStatus status) throws IOException {
+        return template(status).wrap(cachedResponse.getBody(), cachedResponse.getDataOffset(),
+                cachedResponse.getDataLength(), serializeMetadata(cachedResponse.getMetadata()));
+    }
+
+    /**
+     * Writes an envelope whose {@code data} value is produced by a writer,
+     * for fixtures that are streamed rather than held in memory.
+     *
+     * @param status   The HTTP status of the envelope
+     * @param metadata The pagination metadata, null for non-list fixtures
+     * @param output   The stream to write the envelope to
+     * @param data     Writes the serialized {@code data} value
+     * @throws IOException If writing fails
+     */
+    public void write(HttpStatus status, MetadataDto metadata, OutputStream output, DataWriter data)
+            throws IOException {
+        Template template = template(status);
+        output.write(template.prefix);
+        data.write(output);
+        output.write(template.middle);
+        output.write(serializeMetadata(metadata));
+        output.write(template.suffix);
+    }
+
+    /**
+     * Wraps one page of a cached list fixture into an envelope. Only the items
+     * of the page are copied, using the item boundaries recorded at load time.
+     *
+     * @param cachedResponse The cached entry of a list fixture
+     * @param status         The HTTP status of the envelope
+     * @param pageable       The requested page
+     * @return The serialized envelope
+     * @throws IOException If the metadata cannot be serialized
+     */
+    public byte[] page(ApiMockCachedResponseDto cachedResponse, HttpStatus status, PageableRequestDto pageable)
+            throws IOException {
+        int[] itemEnds = cachedResponse.getItemEnds();
+        // Same as getOffset(), widened so far-away pages cannot overflow.
+        long offset = (long) (pageable.getPageIndex() - 1) * pageable.getPageSize();
+        int first = (int) Math.min(offset, itemEnds.length);
+        int last = (int) Math.min((long) first + pageable.getPageSize(), itemEnds.length);
+
+        byte[] body = cachedResponse.getBody();
+        int dataOffset = cachedResponse.getDataOffset();
+        int start = first == 0 ? 1 : itemEnds[first - 1] + 1;
+        int end = last == 0 ? 1 : itemEnds[last - 1];
+        int length = Math.max(0, end - start);
+
+        byte[] data = new byte[length + 2];
+        data[0] = '[';
+        System.arraycopy(body, dataOffset + start, data, 1, length);
+        data[length + 1] = ']';
+
+        MetadataDto metadata = new MetadataDto(pageable.getPageIndex(), pageable.getPageSize(), itemEnds.length);
+        return template(status).wrap(data, 0, data.length, serializeMetadata(metadata));
+    }
+
+    /**
+     * Streams a fixture into compact JSON and records where each item of a
+     * top-level array ends.
+     *
+     * @return The end offset of every item within the output, or null if the
+     *         fixture is not an array
+     */
+    private int[] compact(Path path, Charset charset, ByteArrayBuilder output) throws IOException {
+        try (JsonParser parser = createParser(path, charset);
+                JsonGenerator generator = objectMapper.getFactory().createGenerator(output, JsonEncoding.UTF8)) {
+            parser.enable(JsonParser.Feature.STRICT_DUPLICATE_DETECTION);
+
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw new IOException("No content to map due to end-of-input: " + path);
+            }
+
+            if (token != JsonToken.START_ARRAY) {
+                generator.copyCurrentStructure(parser);
+                return null;
+            }
+
+            int[] itemEnds = new int[16];
+            int totalItems = 0;
+            generator.writeStartArray();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                generator.copyCurrentStructure(parser);
+                if (totalItems == itemEnds.length) {
+                    itemEnds = Arrays.copyOf(itemEnds, totalItems * 2);
+                }
+                itemEnds[totalItems++] = output.size() + generator.getOutputBuffered();
+            }
+            generator.writeEndArray();
+
+            return Arrays.copyOf(itemEnds, totalItems);
+        }
+    }
+
+    /**
+     * Serializes the items of a parsed list fixture as a compact array and
+     * records where each item ends.
+     */
+    private int[] writeItems(List<?> items, ByteArrayBuilder output) throws IOException {
+        int[] itemEnds = new int[items.size()];
+        output.write('[');
+        for (int i = 0; i < itemEnds.length; i++) {
+            if (i > 0) {
+                output.write(',');
+            }
+            output.write(objectMapper.writeValueAsBytes(items.get(i)));
+            itemEnds[i] = output.size();
+        }
+        output.write(']');
+        return itemEnds;
+    }
+
+    private JsonParser createParser(Path path, Charset charset) throws IOException {
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            InputStream input = Files.newInputStream(path);
+            return objectMapper.getFactory().createParser(input);
+        }
+
+        Reader reader = Files.newBufferedReader(path, charset);
+        return objectMapper.getFactory().createParser(reader);
+    }
+
+    private byte[] serializeMetadata(MetadataDto metadata) throws IOException {
+        return metadata == null ? NULL_VALUE : objectMapper.writeValueAsBytes(metadata);
+    }
+
+    private Template template(HttpStatus status) {
+        return templates.computeIfAbsent(status, this::createTemplate);
+    }
+
+    private Template createTemplate(HttpStatus status) {
+        ApiResponseBaseDto<Object> marked = new ApiResponseBaseDto<>(status, new RawValue(DATA_MARKER), null,
+                null, null, new RawValue(METADATA_MARKER), null);
+
+        try {
+            String serialized = new String(objectMapper.writeValueAsBytes(marked), StandardCharsets.UTF_8);
+            int dataIndex = serialized.indexOf(DATA_MARKER);
+            int metadataIndex = serialized.indexOf(METADATA_MARKER);
+            if (dataIndex < 0 || metadataIndex < dataIndex) {
+                throw new IllegalStateException("UNEXPECTED_ENVELOPE_LAYOUT " + serialized);
+            }
+
+            return new Template(
+                    serialized.substring(0, dataIndex).getBytes(StandardCharsets.UTF_8),
+                    serialized.substring(dataIndex + DATA_MARKER.length(), metadataIndex)
+                            .getBytes(StandardCharsets.UTF_8),
+                    serialized.substring(metadataIndex + METADATA_MARKER.length())
+                            .getBytes(StandardCharsets.UTF_8));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("FAILED_TO_BUILD_ENVELOPE_TEMPLATE " + status, e);
+        }
+    }
+
+    /**
+     * Serialized envelope split around the {@code data} and {@code metadata}
+     * values.
+     */
+    private static final class Template {
+
+        private final byte[] prefix;
+
+        private final byte[] middle;
+
+        private final byte[] suffix;
+
+        Template(byte[] prefix, byte[] middle, byte[] suffix) {
+            this.prefix = prefix;
+            this.middle = middle;
+            this.suffix = suffix;
+        }
+
+        byte[] wrap(byte[] data, int offset, int length, byte[] metadata) {
+            byte[] body = new byte[prefix.length + length + middle.length + metadata.length + suffix.length];
+            int position = 0;
+            System.arraycopy(prefix, 0, body, position, prefix.length);
+            position += prefix.length;
+            System.arraycopy(data, offset, body, position, length);
+            position += length;
+            System.arraycopy(middle, 0, body, position, middle.length);
+            position += middle.length;
+            System.arraycopy(metadata, 0, body, position, metadata.length);
+            position += metadata.length;
+            System.arraycopy(suffix, 0, body, position, suffix.length);
+            return body;
+        }
+
+    }
+
+}
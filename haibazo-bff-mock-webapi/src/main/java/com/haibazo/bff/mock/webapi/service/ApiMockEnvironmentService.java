@@ -0,0 +1,347 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.haibazo.bff.mock.webapi.exception.NotFoundException;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Named mock environments hosted next to the default one by a single
+ * instance.
+ *
+ * <p>
+ * Each environment listed in {@code haibazo.bff.mock.environments} gets its
+ * own storage backend, file index and route table, configured under
+ * {@code haibazo.bff.mock.environments.<name>.*} and defaulting to the settings
+ * of the default environment. A request is served by the environment named in
+ * the environment header, else the one whose name is the first segment of the
+ * request path, else the one listing the request host, else the default
+ * environment. A request whose path is outside the base path and whose first
+ * segment names no environment is not found. Fixtures are cached by their
+ * resolved path, so environments share the response cache without seeing each
+ * other's entries.
+ * </p>
+ */
+@Service
+public class ApiMockEnvironmentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiMockEnvironmentService.class);
+
+    private static final String PREFIX = "haibazo.bff.mock.environments.";
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-]+");
+
+    @Value("${haibazo.bff.mock.environments:}")
+    private String environmentNames;
+
+    @Value("${haibazo.bff.itsrct.base-path}")
+    private String basePath;
+
+    /**
+     * Request header naming the environment a request is served by.
+     */
+    @Value("${haibazo.bff.mock.environment-header:X-Mock-Environment}")
+    private String environmentHeader;
+
+    @Value("${haibazo.bff.mock.storage}")
+    private String mockStorage;
+
+    @Value("${haibazo.bff.mock.base-folder-path}")
+    private String mockBaseFolder;
+
+    @Value("${haibazo.bff.mock.setting-file-path}")
+    private String mockSettingFileName;
+
+    @Value("${haibazo.bff.mock.s3.folder}")
+    private String s3Folder;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private ApiMockLocalStorageService localStorageService;
+
+    @Autowired
+    private ApiMockFileIndex fileIndex;
+
+    @Autowired
+    private ApiMockS3Service s3Service;
+
+    @Autowired
+    private ApiMockSettingService settingService;
+
+    private Map<String, MockEnvironment> environments = Map.of();
+
+    private Map<String, MockEnvironment> environmentsByHost = Map.of();
+
+    /**
+     * Builds the configured environments and loads their settings.
+     */
+    @PostConstruct
+    public void initialize() {
+        Map<String, MockEnvironment> byName = new LinkedHashMap<>();
+        Map<String, MockEnvironment> byHost = new HashMap<>();
+
+        for (String name : StringUtils.commaDelimitedListToStringArray(environmentNames)) {
+            name = name.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!NAME.matcher(name).matches()) {
+                throw new IllegalArgumentException("INVALID_MOCK_ENVIRONMENT_NAME: " + name);
+            }
+
+            MockEnvironment mockEnvironment = create(name);
+            if (byName.putIfAbsent(name, mockEnvironment) != null) {
+                throw new IllegalArgumentException("DUPLICATE_MOCK_ENVIRONMENT: " + name);
+            }
+            for (String host : mockEnvironment.hosts) {
+                byHost.put(host, mockEnvironment);
+            }
+        }
+
+        environments = byName;
+        environmentsByHost = byHost;
+
+        for (MockEnvironment mockEnvironment : environments.values()) {
+            mockEnvironment.s3Service.initiate();
+            mockEnvironment.fileIndex.initialize();
+            mockEnvironment.settingService.initialize();
+            logger.info("MOCK_ENVIRONMENT_LOADED: {} - [{}] {}", mockEnvironment.name, mockEnvironment.storage,
+                    mockEnvironment.baseFolder);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (MockEnvironment mockEnvironment : environments.values()) {
+            mockEnvironment.s3Service.destroy();
+        }
+    }
+
+    /**
+     * Resolves the environment serving a request.
+     *
+     * @param request The HTTP request
+     * @return The environment, or null if the request is served by the default
+     *         environment
+     * @throws NotFoundException if the environment header names an unknown
+     *                           environment, or the request path is outside
+     *                           the base path and its first segment names no
+     *                           environment
+     */
+    public MockEnvironment resolve(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        MockEnvironment byPath = null;
+        if (!isUnderBasePath(uri)) {
+            // The controller accepts any first segment before the base path.
+            int end = uri.indexOf('/', 1);
+            byPath = end > 1 ? environments.get(uri.substring(1, end)) : null;
+            if (byPath == null) {
+                throw new NotFoundException("MOCK_ENVIRONMENT_NOT_FOUND");
+            }
+        }
+
+        if (environments.isEmpty()) {
+            return null;
+        }
+
+        String name = request.getHeader(environmentHeader);
+        if (name != null) {
+            MockEnvironment mockEnvironment = environments.get(name.trim());
+            if (mockEnvironment == null) {
+                throw new NotFoundException("MOCK_ENVIRONMENT_NOT_FOUND");
+            }
+            return mockEnvironment;
+        }
+
+        if (byPath != null) {
+            return byPath;
+        }
+
+        return environmentsByHost.get(request.getServerName().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns an environment by name.
+     *
+     * @param name The environment name
+     * @return The environment, or null if there is none with that name
+     */
+    public MockEnvironment getEnvironment(String name) {
+        return environments.get(name);
+    }
+
+    /**
+     * Returns the named environments in configuration order.
+     *
+     * @return The environments, empty if only the default one is hosted
+     */
+    public Collection<MockEnvironment> getEnvironments() {
+        return environments.values();
+    }
+
+    /**
+     * Whether the initial S3 sync of every environment has completed.
+     *
+     * @return true if every environment can be served from local disk
+     */
+    public boolean isReady() {
+        if (!s3Service.isReady()) {
+            return false;
+        }
+        for (MockEnvironment mockEnvironment : environments.values()) {
+            if (!mockEnvironment.s3Service.isReady()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reloads the settings file of every environment that changed, like the
+     * default environment does on its own schedule.
+     */
+    @Scheduled(initialDelayString = "${haibazo.bff.mock.setting.reload-interval-ms:2000}",
+            fixedDelayString = "${haibazo.bff.mock.setting.reload-interval-ms:2000}")
+    public void reloadIfChanged() {
+        for (MockEnvironment mockEnvironment : environments.values()) {
+            mockEnvironment.settingService.reloadIfChanged();
+        }
+    }
+
+    /**
+     * Rescans the mock folder of every environment.
+     */
+    @Scheduled(initialDelayString = "${haibazo.bff.mock.file-index.rescan-interval-ms:5000}",
+            fixedDelayString = "${haibazo.bff.mock.file-index.rescan-interval-ms:5000}")
+    public void rescan() {
+        for (MockEnvironment mockEnvironment : environments.values()) {
+            mockEnvironment.fileIndex.rescan();
+        }
+    }
+
+    /**
+     * Mirrors the S3 folder of every environment stored on S3.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${haibazo.bff.mock.s3.sync.interval-ms:60000}")
+    public void synchronize() {
+        for (MockEnvironment mockEnvironment : environments.values()) {
+            mockEnvironment.s3Service.synchronize();
+        }
+    }
+
+    private boolean isUnderBasePath(String uri) {
+        return uri.startsWith(basePath) && (uri.length() == basePath.length() || uri.charAt(basePath.length()) == '/');
+    }
+
+    /**
+     * Wires the services of an environment from its properties. The local
+     * folder defaults to the default folder suffixed with the environment name
+     * and the S3 folder to a sibling of the default one named after the
+     * environment.
+     */
+    private MockEnvironment create(String name) {
+        String storage = environment.getProperty(PREFIX + name + ".storage", mockStorage);
+        if (!storage.equals("local") && !storage.equals("s3")) {
+            throw new IllegalArgumentException("INVALID_MOCK_ENVIRONMENT_STORAGE: " + name + " - " + storage);
+        }
+
+        String baseFolder = environment.getProperty(PREFIX + name + ".base-folder-path", mockBaseFolder + "-" + name);
+        String settingFile = environment.getProperty(PREFIX + name + ".setting-file-path", mockSettingFileName);
+        String folder = environment.getProperty(PREFIX + name + ".s3.folder",
+                Path.of(s3Folder).resolveSibling(name).toString());
+
+        List<String> hosts = new ArrayList<>();
+        for (String host : StringUtils.commaDelimitedListToStringArray(
+                environment.getProperty(PREFIX + name + ".hosts", ""))) {
+            if (!host.isBlank()) {
+                hosts.add(host.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+
+        ApiMockLocalStorageService environmentStorage = localStorageService.forEnvironment(baseFolder);
+        ApiMockFileIndex environmentIndex = fileIndex.forEnvironment(storage, baseFolder);
+        ApiMockS3Service environmentS3 = s3Service.forEnvironment(storage, folder, environmentStorage);
+        ApiMockSettingService environmentSettings = settingService.forEnvironment(storage, settingFile,
+                environmentStorage, environmentS3, environmentIndex);
+
+        return new MockEnvironment(name, storage, baseFolder, List.copyOf(hosts), environmentIndex, environmentS3,
+                environmentSettings);
+    }
+
+    /**
+     * A named mock environment and the services serving it.
+     */
+    public static final class MockEnvironment {
+
+        private final String name;
+
+        private final String storage;
+
+        private final String baseFolder;
+
+        private final List<String> hosts;
+
+        private final String pathPrefix;
+
+        private final ApiMockFileIndex fileIndex;
+
+        private final ApiMockS3Service s3Service;
+
+        private final ApiMockSettingService settingService;
+
+        MockEnvironment(String name, String storage, String baseFolder, List<String> hosts,
+                ApiMockFileIndex fileIndex, ApiMockS3Service s3Service, ApiMockSettingService settingService) {
+            this.name = name;
+            this.storage = storage;
+            this.baseFolder = baseFolder;
+            this.hosts = hosts;
+            this.pathPrefix = "/" + name + "/";
+            this.fileIndex = fileIndex;
+            this.s3Service = s3Service;
+            this.settingService = settingService;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ApiMockSettingService getSettingService() {
+            return settingService;
+        }
+
+        /**
+         * Returns the path a request is matched against, without the
+         * environment prefix if the request path carries it.
+         *
+         * @param uri The request path
+         * @return The path relative to the environment
+         */
+        public String getMatchPath(String uri) {
+            return uri.startsWith(pathPrefix) ? uri.substring(pathPrefix.length() - 1) : uri;
+        }
+
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * In-memory index of the fixture files under the local mock folder.
+ *
+ * <p>
+ * The folder is walked once at startup, rescanned periodically and whenever
+ * the settings are reloaded, so existence checks on the request path are set
+ * lookups instead of file system calls. Keys are normalized paths in the same
+ * form as {@link ApiMockLocalStorageService#getMockFilePath(String)} returns.
+ * Files added between two scans are seen after the next scan, and a fixture
+ * added together with its settings row is seen once the row is.
+ * </p>
+ */
+@Service
+public class ApiMockFileIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiMockFileIndex.class);
+
+    private final String mockStorage;
+
+    private final String mockBaseFolder;
+
+    private final boolean enabled;
+
+    private volatile Set<String> files = Set.of();
+
+    public ApiMockFileIndex(@Value("${haibazo.bff.mock.storage}") String mockStorage,
+            @Value("${haibazo.bff.mock.base-folder-path}") String mockBaseFolder,
+            @Value("${haibazo.bff.mock.file-index.enabled:true}") boolean enabled) {
+        this.mockStorage = mockStorage;
+        this.mockBaseFolder = mockBaseFolder;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Checks whether a fixture exists.
+     *
+     * @param localPath The resolved local path of the fixture
+     * @return true if the file was present at the last scan
+     */
+    public boolean exists(String localPath) {
+        if (!isIndexing()) {
+            return Files.exists(Path.of(localPath));
+        }
+
+        return files.contains(localPath);
+    }
+
+    @PostConstruct
+    public void initialize() {
+        rescan();
+    }
+
+    /**
+     * Walks the mock folder and replaces the index. Called on a schedule and
+     * by {@link ApiMockSettingService#reload()}.
+     */
+    @Scheduled(initialDelayString = "${haibazo.bff.mock.file-index.rescan-interval-ms:5000}",
+            fixedDelayString = "${haibazo.bff.mock.file-index.rescan-interval-ms:5000}")
+    public void rescan() {
+        if (!isIndexing()) {
+            return;
+        }
+
+        try (Stream<Path> paths = Files.walk(Path.of(mockBaseFolder))) {
+            Set<String> scanned = paths.filter(Files::isRegularFile)
+                    .map(path -> path.normalize().toString())
+                    .collect(Collectors.toUnmodifiableSet());
+
+            if (scanned.size() != files.size()) {
+                logger.info("MOCK_FILE_INDEX_UPDATED: {} files", scanned.size());
+            }
+            files = scanned;
+        } catch (IOException | RuntimeException e) {
+            logger.error("FAILED_TO_SCAN_MOCK_FOLDER: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Creates the file index of another mock environment, with the same
+     * settings as this one. The index is empty until it is first rescanned.
+     *
+     * @param mockStorage    The storage backend of the environment
+     * @param mockBaseFolder The base folder of the environment
+     * @return A file index of that folder
+     */
+    ApiMockFileIndex forEnvironment(String mockStorage, String mockBaseFolder) {
+        return new ApiMockFileIndex(mockStorage, mockBaseFolder, enabled);
+    }
+
+    private boolean isIndexing() {
+        return enabled && mockStorage.equals("local");
+    }
+
+}
@@ -12,8 +12,11 @@ public class ApiMockLocalStorageService {
      * Base folder path for storing mock response files.
      * Configured via application properties.
      */
-    @Value("${haibazo.bff.mock.base-folder-path}")
-    private String mockBaseFolder;
+    private final String mockBaseFolder;
+
+    public ApiMockLocalStorageService(@Value("${haibazo.bff.mock.base-folder-path}") String mockBaseFolder) {
+        this.mockBaseFolder = mockBaseFolder;
+    }
 
     /**
      * Resolves the absolute file path for a mock file.
@@ -29,4 +32,14 @@ public class ApiMockLocalStorageService {
         return mockFilePath.toString();
     }
 
+    /**
+     * Creates the local storage of another mock environment.
+     *
+     * @param mockBaseFolder The base folder of the environment
+     * @return A storage service resolving paths against that folder
+     */
+    ApiMockLocalStorageService forEnvironment(String mockBaseFolder) {
+        return new ApiMockLocalStorageService(mockBaseFolder);
+    }
+
 }
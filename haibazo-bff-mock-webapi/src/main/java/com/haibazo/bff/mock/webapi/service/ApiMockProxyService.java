@@ -0,0 +1,589 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockRecordingDto;
+import com.haibazo.bff.mock.webapi.dto.response.ApiResponseDto;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVWriter;
+import com.opencsv.exceptions.CsvException;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Forwards the requests no mock setting matches to an upstream server and
+ * records its responses.
+ *
+ * <p>
+ * Upstream responses are kept in memory, so identical requests, with the same
+ * method, path, query string and body, are answered from the recording
+ * without reaching the upstream again. Recordings are also handed to a
+ * bounded write-behind queue, drained by a single background thread, which
+ * writes each one as a fixture under the record folder and appends its row to
+ * the settings file; once the settings are reloaded the route is served like
+ * any other. Responses are never held back by the queue: a recording that
+ * does not fit is only kept in memory.
+ * </p>
+ *
+ * <p>
+ * Upstream bodies are read up to {@code max-body-bytes}; a larger response is
+ * copied to the client as it arrives and not recorded, so it is never held in
+ * memory as a whole.
+ * </p>
+ *
+ * <p>
+ * Fixtures hold the upstream body byte for byte and their rows are marked Raw
+ * with the upstream content type, so a reloaded route replays the body as it
+ * was sent instead of wrapping JSON in the response envelope again. Of the
+ * upstream headers only Content-Type and Cache-Control are kept, since the
+ * settings have no column for the others. Each recording gets its own
+ * fixture, named after a hash of its query string and body. The query string
+ * is persisted as a RequestQuery condition, while the body is not, so of the
+ * recordings of one route that only differ by body only the first one gets a
+ * settings row and answers once the settings are reloaded.
+ * </p>
+ */
+@Service
+public class ApiMockProxyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiMockProxyService.class);
+
+    /**
+     * Request headers that are not forwarded: hop-by-hop headers, headers the
+     * HTTP client sets itself, and the encoding, conditional and range headers,
+     * so recordings are complete, identity-encoded responses.
+     */
+    private static final Set<String> SKIPPED_REQUEST_HEADERS = Set.of("connection", "keep-alive",
+            "proxy-authenticate", "proxy-authorization", "te", "trailer", "transfer-encoding", "upgrade", "host",
+            "content-length", "expect", "accept-encoding", "if-none-match", "if-modified-since", "if-match",
+            "if-unmodified-since", "range", "if-range");
+
+    private static final Set<String> SKIPPED_RESPONSE_HEADERS = Set.of("connection", "keep-alive",
+            "proxy-authenticate", "proxy-authorization", "te", "trailer", "transfer-encoding", "upgrade",
+            "content-length", "content-encoding");
+
+    /**
+     * Marks the end of the write-behind queue when the service stops.
+     */
+    private static final ApiMockRecordingDto STOP = ApiMockRecordingDto.builder().build();
+
+    @Value("${haibazo.bff.mock.proxy.enabled:false}")
+    private boolean enabled;
+
+    @Value("${haibazo.bff.mock.proxy.upstream-url:}")
+    private String upstreamUrl;
+
+    @Value("${haibazo.bff.mock.proxy.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    @Value("${haibazo.bff.mock.proxy.timeout-ms:30000}")
+    private long timeoutMs;
+
+    @Value("${haibazo.bff.mock.proxy.record-enabled:true}")
+    private boolean recordEnabled;
+
+    /**
+     * The folder recorded fixtures are written to, relative to the mock folder.
+     */
+    @Value("${haibazo.bff.mock.proxy.record-folder:./recorded}")
+    private String recordFolder;
+
+    @Value("${haibazo.bff.mock.proxy.max-recordings:1000}")
+    private int maxRecordings;
+
+    @Value("${haibazo.bff.mock.proxy.max-body-bytes:8388608}")
+    private int maxBodyBytes;
+
+    @Value("${haibazo.bff.mock.proxy.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${haibazo.bff.mock.storage:local}")
+    private String mockStorage;
+
+    @Value("${haibazo.bff.mock.setting-file-path:./bff-mock-setting.csv}")
+    private String mockSettingFileName;
+
+    @Autowired
+    private ApiMockLocalStorageService localStorageService;
+
+    private String upstream;
+
+    private HttpClient httpClient;
+
+    private final Map<String, ApiMockRecordingDto> recordings = new ConcurrentHashMap<>();
+
+    private BlockingQueue<ApiMockRecordingDto> pending;
+
+    private Thread writer;
+
+    /**
+     * Creates the pooled HTTP client and starts the write-behind thread when
+     * the proxy is enabled. Recordings are only persisted to a local mock
+     * folder.
+     */
+    @PostConstruct
+    public void initialize() {
+        if (!enabled) {
+            return;
+        }
+        if (upstreamUrl == null || upstreamUrl.isBlank()) {
+            throw new IllegalStateException("MOCK_PROXY_UPSTREAM_NOT_SET: haibazo.bff.mock.proxy.upstream-url");
+        }
+
+        upstream = upstreamUrl.endsWith("/") ? upstreamUrl.substring(0, upstreamUrl.length() - 1) : upstreamUrl;
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+
+        if (recordEnabled && "local".equals(mockStorage)) {
+            pending = new ArrayBlockingQueue<>(queueCapacity);
+            writer = Thread.ofPlatform().daemon().name("mock-recorder").start(this::writeBehind);
+        }
+        logger.info("MOCK_PROXY_ENABLED: unmatched requests are forwarded to [{}]", upstream);
+    }
+
+    /**
+     * Persists the recordings still queued before the application stops.
+     *
+     * @throws InterruptedException If interrupted while waiting for the queue
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+
+        pending.put(STOP);
+        writer.join();
+        writer = null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Answers a request no mock setting matched, from its recording or from
+     * the upstream.
+     *
+     * @param content  The request
+     * @param response The servlet response, an upstream body too large to be
+     *                 recorded is copied to
+     * @return The recorded or upstream response, null if the upstream response
+     *         was copied to the servlet response, a 413 error if the request
+     *         body is too large to be forwarded or a 502 error if the upstream
+     *         cannot be reached
+     */
+    public ResponseEntity<?> proxy(ApiMockRequestContent content, HttpServletResponse response) {
+        HttpServletRequest request = content.getRequest();
+        if (content.isBodyTooLarge()) {
+            return ApiResponseDto.error(HttpStatus.PAYLOAD_TOO_LARGE, "MOCK_PROXY_REQUEST_TOO_LARGE");
+        }
+
+        byte[] body = content.getBody();
+        String bodyHash = body.length == 0 ? null : DigestUtils.md5DigestAsHex(body);
+        String query = request.getQueryString();
+        String key = request.getMethod() + ' ' + request.getRequestURI() + '?' + (query == null ? "" : query)
+                + (bodyHash == null ? "" : '#' + bodyHash);
+        ApiMockRecordingDto recording = recordings.get(key);
+        if (recording != null) {
+            return response(recording);
+        }
+
+        HttpResponse<InputStream> upstreamResponse;
+        try {
+            upstreamResponse = forward(request, body);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("MOCK_PROXY_FAILED: [{} {}] {}", request.getMethod(), request.getRequestURI(), e.toString());
+            return ApiResponseDto.error(HttpStatus.BAD_GATEWAY, "MOCK_PROXY_FAILED");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ApiResponseDto.error(HttpStatus.BAD_GATEWAY, "MOCK_PROXY_FAILED");
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        upstreamResponse.headers().map().forEach((name, values) -> {
+            if (!name.startsWith(":") && !SKIPPED_RESPONSE_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                headers.addAll(name, values);
+            }
+        });
+
+        try (InputStream input = upstreamResponse.body()) {
+            // The body is read one byte past the limit to tell a body of exactly the limit from a larger one.
+            boolean oversized = upstreamResponse.headers().firstValueAsLong(HttpHeaders.CONTENT_LENGTH)
+                    .orElse(-1) > maxBodyBytes;
+            byte[] bytes = oversized ? new byte[0] : input.readNBytes(maxBodyBytes);
+            int next = oversized || bytes.length == maxBodyBytes ? input.read() : -1;
+            if (next >= 0) {
+                stream(request, upstreamResponse.statusCode(), headers, bytes, next, input, response);
+                return null;
+            }
+
+            recording = ApiMockRecordingDto.builder()
+                    .method(request.getMethod())
+                    .uri(request.getRequestURI())
+                    .query(query)
+                    .bodyHash(bodyHash)
+                    .status(upstreamResponse.statusCode())
+                    .headers(HttpHeaders.readOnlyHttpHeaders(headers))
+                    .body(bytes)
+                    .build();
+        } catch (IOException e) {
+            logger.warn("MOCK_PROXY_FAILED: [{} {}] {}", request.getMethod(), request.getRequestURI(), e.toString());
+            return response.isCommitted() ? null : ApiResponseDto.error(HttpStatus.BAD_GATEWAY, "MOCK_PROXY_FAILED");
+        }
+
+        record(key, recording);
+        return response(recording);
+    }
+
+    /**
+     * Returns the number of responses recorded in memory.
+     */
+    public int getRecordingCount() {
+        return recordings.size();
+    }
+
+    private HttpResponse<InputStream> forward(HttpServletRequest request, byte[] body)
+            throws IOException, InterruptedException {
+        String query = request.getQueryString();
+        HttpRequest.Builder builder = HttpRequest
+                .newBuilder(URI.create(upstream + request.getRequestURI() + (query == null ? "" : "?" + query)))
+                .timeout(Duration.ofMillis(timeoutMs))
+                .method(request.getMethod(), body.length == 0 ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(body));
+        for (Enumeration<String> names = request.getHeaderNames(); names.hasMoreElements();) {
+            String name = names.nextElement();
+            if (SKIPPED_REQUEST_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                continue;
+            }
+            for (Enumeration<String> values = request.getHeaders(name); values.hasMoreElements();) {
+                builder.header(name, values.nextElement());
+            }
+        }
+
+        return httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    /**
+     * Copies an upstream response whose body is larger than the recording
+     * limit to the servlet response, starting with the part already read.
+     */
+    private static void stream(HttpServletRequest request, int status, HttpHeaders headers, byte[] head, int next,
+            InputStream input, HttpServletResponse response) throws IOException {
+        logger.debug("MOCK_PROXY_STREAMING: [{} {}] body too large to be recorded", request.getMethod(),
+                request.getRequestURI());
+        response.setStatus(status);
+        headers.forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+
+        OutputStream output = response.getOutputStream();
+        output.write(head);
+        output.write(next);
+        input.transferTo(output);
+    }
+
+    /**
+     * Keeps a response for identical requests and queues it to be persisted.
+     * Only successful and client error responses are recorded; server errors,
+     * redirects and responses beyond the recording limit are only passed
+     * through.
+     */
+    private void record(String key, ApiMockRecordingDto recording) {
+        int series = recording.getStatus() / 100;
+        if (!recordEnabled || series != 2 && series != 4 || recordings.size() >= maxRecordings
+                || recordings.putIfAbsent(key, recording) != null) {
+            return;
+        }
+
+        if (pending != null && !pending.offer(recording)) {
+            logger.warn("MOCK_RECORDING_NOT_PERSISTED: [{} {}] write-behind queue full", recording.getMethod(),
+                    recording.getUri());
+        }
+    }
+
+    private static ResponseEntity<byte[]> response(ApiMockRecordingDto recording) {
+        return ResponseEntity.status(recording.getStatus()).headers(recording.getHeaders()).body(recording.getBody());
+    }
+
+    private void writeBehind() {
+        try {
+            for (ApiMockRecordingDto recording = pending.take(); recording != STOP; recording = pending.take()) {
+                persist(recording);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes a recording as a fixture and appends its row to the settings
+     * file. Only called by the write-behind thread.
+     */
+    private void persist(ApiMockRecordingDto recording) {
+        try {
+            String filePath = fixturePath(recording);
+            Path fixture = Path.of(localStorageService.getMockFilePath(filePath));
+            Files.createDirectories(fixture.getParent());
+            Path temp = Files.createTempFile(fixture.getParent(), ".recording", ".tmp");
+            try {
+                Files.write(temp, recording.getBody());
+                Files.move(temp, fixture, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+
+            if (appendSetting(recording, filePath)) {
+                logger.info("MOCK_RECORDING_PERSISTED: [{} {}] to [{}]", recording.getMethod(), recording.getUri(),
+                        filePath);
+            } else {
+                logger.info("MOCK_RECORDING_PERSISTED: [{} {}] to [{}], a setting with the same conditions exists",
+                        recording.getMethod(), recording.getUri(), filePath);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("MOCK_RECORDING_NOT_PERSISTED: [{} {}] {}", recording.getMethod(), recording.getUri(),
+                    e.toString());
+        }
+    }
+
+    /**
+     * Names the fixture of a recording after its method and path, with a hash
+     * of its query string and body if it has any.
+     */
+    private String fixturePath(ApiMockRecordingDto recording) {
+        StringBuilder path = new StringBuilder(recordFolder).append('/').append(recording.getMethod());
+        for (String segment : recording.getUri().split("/")) {
+            if (!segment.isEmpty()) {
+                String name = segment.replaceAll("[^A-Za-z0-9._-]", "_");
+                path.append('/').append(name.equals(".") || name.equals("..") ? "_" : name);
+            }
+        }
+        if (recording.getUri().endsWith("/")) {
+            path.append("/index");
+        }
+
+        if (recording.getQuery() != null || recording.getBodyHash() != null) {
+            String discriminator = (recording.getQuery() == null ? "" : recording.getQuery())
+                    + (recording.getBodyHash() == null ? "" : '#' + recording.getBodyHash());
+            path.append('_').append(DigestUtils.md5DigestAsHex(discriminator.getBytes(StandardCharsets.UTF_8)), 0, 8);
+        }
+        return path.append('.').append(isJson(recording) ? "json" : "bin").toString();
+    }
+
+    private static boolean isJson(ApiMockRecordingDto recording) {
+        MediaType contentType = recording.getHeaders().getContentType();
+        return contentType != null && MediaType.APPLICATION_JSON.isCompatibleWith(contentType);
+    }
+
+    /**
+     * Appends the row of a recording to the settings file, mapped onto its
+     * header, adding the ContentType and Raw columns, and the RequestQuery and
+     * CacheControl columns if the recording needs them, to the header. No row
+     * is appended if the file already has one for the same method and URI
+     * with the same RequestQuery and no other condition, since it would never
+     * be selected.
+     *
+     * @return Whether a row was appended
+     */
+    private boolean appendSetting(ApiMockRecordingDto recording, String filePath) throws IOException {
+        HttpStatus status = HttpStatus.resolve(recording.getStatus());
+        if (status == null) {
+            throw new IOException("unknown status " + recording.getStatus());
+        }
+
+        Path settingFile = Path.of(localStorageService.getMockFilePath(mockSettingFileName));
+        List<String[]> rows = readRows(settingFile);
+        List<String> header = new ArrayList<>(Arrays.asList(rows.get(0)));
+        Map<String, Integer> columns = new LinkedHashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.putIfAbsent(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("uri") || !columns.containsKey("file") || !columns.containsKey("method")) {
+            throw new IOException("settings file has no URI, File or Method column");
+        }
+
+        String requestQuery = requestQuery(recording.getQuery());
+        for (String[] existing : rows.subList(1, rows.size())) {
+            if (recording.getUri().equals(get(existing, columns, "uri"))
+                    && recording.getMethod().equalsIgnoreCase(get(existing, columns, "method"))
+                    && Objects.equals(requestQuery, get(existing, columns, "requestquery"))
+                    && get(existing, columns, "requestheaders") == null
+                    && get(existing, columns, "requestbody") == null
+                    && get(existing, columns, "requiredstate") == null) {
+                return false;
+            }
+        }
+
+        MediaType contentType = recording.getHeaders().getContentType();
+        String cacheControl = recording.getHeaders().getCacheControl();
+        addColumn(settingFile, header, columns, "ContentType");
+        addColumn(settingFile, header, columns, "Raw");
+        if (requestQuery != null) {
+            addColumn(settingFile, header, columns, "RequestQuery");
+        }
+        if (cacheControl != null) {
+            addColumn(settingFile, header, columns, "CacheControl");
+        }
+
+        String[] row = new String[header.size()];
+        Arrays.fill(row, "");
+        set(row, columns, "uri", recording.getUri());
+        set(row, columns, "file", filePath);
+        set(row, columns, "charset", StandardCharsets.UTF_8.name());
+        set(row, columns, "method", recording.getMethod());
+        set(row, columns, "status", String.valueOf(status.value()));
+        set(row, columns, "contenttype",
+                contentType == null ? MediaType.APPLICATION_OCTET_STREAM_VALUE : contentType.toString());
+        set(row, columns, "raw", Boolean.TRUE.toString());
+        set(row, columns, "requestquery", requestQuery);
+        set(row, columns, "cachecontrol", cacheControl);
+
+        StringWriter line = new StringWriter();
+        try (CSVWriter csvWriter = new CSVWriter(line)) {
+            csvWriter.writeNext(row, false);
+        }
+        Files.writeString(settingFile, (endsWithNewline(settingFile) ? "" : "\n") + line, StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+        return true;
+    }
+
+    private static List<String[]> readRows(Path settingFile) throws IOException {
+        try (CSVReader reader = new CSVReader(Files.newBufferedReader(settingFile, StandardCharsets.UTF_8))) {
+            List<String[]> rows = reader.readAll();
+            if (rows.isEmpty()) {
+                throw new IOException("settings file has no header");
+            }
+            return rows;
+        } catch (CsvException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Adds a column to the end of the header of the settings file, unless it
+     * already has it. Existing rows are left as they are, since a missing
+     * trailing value reads as blank.
+     */
+    private static void addColumn(Path settingFile, List<String> header, Map<String, Integer> columns, String name)
+            throws IOException {
+        if (columns.containsKey(name.toLowerCase(Locale.ROOT))) {
+            return;
+        }
+
+        String content = Files.readString(settingFile, StandardCharsets.UTF_8);
+        int end = content.indexOf('\n');
+        end = end < 0 ? content.length() : end > 0 && content.charAt(end - 1) == '\r' ? end - 1 : end;
+
+        Path temp = Files.createTempFile(settingFile.toAbsolutePath().getParent(), ".settings", ".tmp");
+        try {
+            Files.writeString(temp, content.substring(0, end) + ',' + name + content.substring(end),
+                    StandardCharsets.UTF_8);
+            Files.move(temp, settingFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        columns.put(name.toLowerCase(Locale.ROOT), header.size());
+        header.add(name);
+    }
+
+    /**
+     * Writes a query string as a RequestQuery condition, keeping the first
+     * value of each parameter as {@link ApiMockRequestContent} does.
+     */
+    private static String requestQuery(String query) throws IOException {
+        if (query == null || query.isEmpty()) {
+            return null;
+        }
+
+        Map<String, String> parameters = new LinkedHashMap<>();
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            if (name.isBlank() || name.contains(";") || name.contains("=") || value.contains(";")
+                    || !name.equals(name.trim()) || !value.equals(value.trim())) {
+                throw new IOException("query " + query + " cannot be written as RequestQuery");
+            }
+            parameters.putIfAbsent(name, value);
+        }
+
+        List<String> pairs = new ArrayList<>();
+        parameters.forEach((name, value) -> pairs.add(name + '=' + value));
+        return pairs.isEmpty() ? null : String.join(";", pairs);
+    }
+
+    private static void set(String[] row, Map<String, Integer> columns, String name, String value) {
+        Integer index = columns.get(name);
+        if (index != null && value != null) {
+            row[index] = value;
+        }
+    }
+
+    /**
+     * Returns the trimmed value of a column of a row, or null if the row does
+     * not have the column or the value is blank.
+     */
+    private static String get(String[] row, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= row.length || row[index].isBlank()) {
+            return null;
+        }
+        return row[index].trim();
+    }
+
+    private static boolean endsWithNewline(Path file) throws IOException {
+        try (RandomAccessFile access = new RandomAccessFile(file.toFile(), "r")) {
+            if (access.length() == 0) {
+                return true;
+            }
+            access.seek(access.length() - 1);
+            return access.read() == '\n';
+        }
+    }
+
+}
@@ -0,0 +1,231 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Serves fixtures as they are on disk, without parsing or wrapping them, for
+ * routes whose content type is not enveloped JSON.
+ *
+ * <p>
+ * The file is never loaded into the heap: large bodies are handed to Tomcat's
+ * sendfile support when the connector offers it, otherwise they are copied
+ * with {@link FileChannel#transferTo}. A single {@code Range} is honored with
+ * {@code 206 Partial Content}, and an unsatisfiable one gets
+ * {@code 416 Range Not Satisfiable}; multiple ranges are answered with the
+ * whole file.
+ * </p>
+ *
+ * <p>
+ * Fixtures packed into a mock bundle are served the same way from their
+ * region of the memory-mapped bundle, with sendfile pointed at the offsets of
+ * that region in the bundle file.
+ * </p>
+ */
+@Service
+public class ApiMockRawFileService {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * Bodies at least this large are sent with sendfile when available.
+     */
+    @Value("${haibazo.bff.mock.raw.sendfile-min-bytes:49152}")
+    private long sendfileMinBytes;
+
+    /**
+     * Writes a fixture to the response.
+     *
+     * @param filePath    The resolved fixture path
+     * @param contentType The response content type
+     * @param status      The configured response status
+     * @param request     The HTTP request
+     * @param response    The HTTP response
+     * @throws IOException If the fixture cannot be read or the client goes away
+     */
+    public void serve(String filePath, String contentType, HttpStatus status, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Path path = Path.of(filePath);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            serve(path, 0, channel.size(), channel, null, contentType, status, request, response);
+        }
+    }
+
+    /**
+     * Writes a fixture packed into a mock bundle to the response.
+     *
+     * @param bundleFile  The bundle file
+     * @param position    The position of the fixture in the bundle file
+     * @param region      The fixture, a slice of the memory-mapped bundle
+     * @param contentType The response content type
+     * @param status      The configured response status
+     * @param request     The HTTP request
+     * @param response    The HTTP response
+     * @throws IOException If the client goes away
+     */
+    public void serve(Path bundleFile, long position, ByteBuffer region, String contentType, HttpStatus status,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(bundleFile, position, region.remaining(), null, region, contentType, status, request, response);
+    }
+
+    /**
+     * Writes a body packed into a mock bundle to the response, whole, once its
+     * status and headers are set.
+     *
+     * @param bundleFile The bundle file
+     * @param position   The position of the body in the bundle file
+     * @param region     The body, a slice of the memory-mapped bundle
+     * @param request    The HTTP request
+     * @param response   The HTTP response
+     * @throws IOException If the client goes away
+     */
+    public void write(Path bundleFile, long position, ByteBuffer region, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        response.setContentLengthLong(region.remaining());
+        if (HttpMethod.HEAD.matches(request.getMethod()) || !region.hasRemaining()) {
+            return;
+        }
+
+        transfer(bundleFile, position, 0, region.remaining(), null, region, request, response);
+    }
+
+    /**
+     * Serves a fixture of the given length, read from a file channel or from a
+     * memory-mapped region that starts at the given position of the file.
+     */
+    private void serve(Path path, long position, long length, FileChannel channel, ByteBuffer region,
+            String contentType, HttpStatus status, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        long start = 0;
+        long end = length;
+
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        String range = status == HttpStatus.OK ? request.getHeader(HttpHeaders.RANGE) : null;
+        if (range != null) {
+            long[] bounds = parseRange(range, length);
+            if (bounds == null) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setContentLengthLong(0);
+                return;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + start + "-" + (end - 1) + "/" + length);
+            }
+        }
+
+        if (response.getStatus() != HttpStatus.PARTIAL_CONTENT.value()) {
+            response.setStatus(status.value());
+        }
+        response.setContentLengthLong(end - start);
+
+        if (HttpMethod.HEAD.matches(request.getMethod()) || end == start) {
+            return;
+        }
+
+        transfer(path, position, start, end, channel, region, request, response);
+    }
+
+    /**
+     * Copies the bytes between start and end, relative to the position of the
+     * fixture in its file, with sendfile when available.
+     */
+    private void transfer(Path path, long position, long start, long end, FileChannel channel, ByteBuffer region,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (end - start >= sendfileMinBytes && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, position + start);
+            request.setAttribute(SENDFILE_END, position + end);
+            return;
+        }
+
+        OutputStream output = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(output);
+        if (region != null) {
+            ByteBuffer slice = region.slice((int) start, (int) (end - start));
+            while (slice.hasRemaining()) {
+                target.write(slice);
+            }
+        } else {
+            long transferPosition = position + start;
+            while (transferPosition < position + end) {
+                long transferred = channel.transferTo(transferPosition, position + end - transferPosition, target);
+                if (transferred <= 0) {
+                    throw new IOException("FAILED_TO_TRANSFER_MOCK_FILE " + path);
+                }
+                transferPosition += transferred;
+            }
+        }
+        output.flush();
+    }
+
+    /**
+     * Parses a {@code Range} header against a file length.
+     *
+     * @return {start, endExclusive} for a single satisfiable range, an empty
+     *         array when the header should be ignored, or null when it is not
+     *         satisfiable
+     */
+    static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return new long[0];
+        }
+
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || length == 0) {
+                    return null;
+                }
+                return new long[] { Math.max(0, length - suffix), length };
+            }
+
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            if (start >= length || end < start) {
+                return start >= length ? null : new long[0];
+            }
+            return new long[] { start, end + 1 };
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+}
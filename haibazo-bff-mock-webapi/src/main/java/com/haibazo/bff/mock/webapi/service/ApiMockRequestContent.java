@@ -0,0 +1,226 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * The request a route variant is selected for. The query string, the body and
+ * the scenario session are read, decoded and parsed lazily, at most once per
+ * request, and only if a variant needs them. The query string is parsed by
+ * hand rather than with {@link HttpServletRequest#getParameter(String)}, which
+ * would consume the body of a form post. The body is read up to a limit, so a
+ * large upload is not buffered; a larger body is treated as empty.
+ */
+public class ApiMockRequestContent {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiMockRequestContent.class);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * The body limit of requests created without one, the default of
+     * {@code haibazo.bff.mock.request.max-body-bytes}.
+     */
+    public static final int DEFAULT_MAX_BODY_BYTES = 8 * 1024 * 1024;
+
+    private final HttpServletRequest request;
+
+    private final ApiMockScenarioService scenarioService;
+
+    private final int maxBodyBytes;
+
+    private String sessionId;
+
+    private byte[] body;
+
+    private boolean bodyTooLarge;
+
+    private String text;
+
+    private JsonNode json;
+
+    private Map<String, String> queryParameters;
+
+    public ApiMockRequestContent(HttpServletRequest request) {
+        this(request, null, DEFAULT_MAX_BODY_BYTES);
+    }
+
+    /**
+     * @param request         The request
+     * @param scenarioService The scenario states, null if every scenario stays
+     *                        in {@link ApiMockScenarioService#STARTED}
+     * @param maxBodyBytes    The largest body that is read
+     */
+    public ApiMockRequestContent(HttpServletRequest request, ApiMockScenarioService scenarioService,
+            int maxBodyBytes) {
+        this.request = request;
+        this.scenarioService = scenarioService;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    public HttpServletRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * Returns the scenario session of the request.
+     *
+     * @return The session, {@link ApiMockScenarioService#DEFAULT_SESSION} if
+     *         there are no scenario states
+     */
+    public String getSessionId() {
+        if (sessionId == null) {
+            sessionId = scenarioService == null ? ApiMockScenarioService.DEFAULT_SESSION
+                    : scenarioService.getSessionId(request);
+        }
+        return sessionId;
+    }
+
+    /**
+     * Returns the state of a scenario in the session of the request.
+     *
+     * @param scenario The scenario
+     * @return The state of the scenario
+     */
+    public String getScenarioState(String scenario) {
+        return scenarioService == null ? ApiMockScenarioService.STARTED
+                : scenarioService.getState(getSessionId(), scenario);
+    }
+
+    /**
+     * Returns the first value of a query parameter.
+     *
+     * @param name The parameter name
+     * @return The decoded value, empty if the parameter has no value, or null
+     *         if the query string does not have the parameter
+     */
+    public String getQueryParameter(String name) {
+        if (queryParameters == null) {
+            queryParameters = parseQuery(request.getQueryString());
+        }
+        return queryParameters.get(name);
+    }
+
+    /**
+     * Returns the request body.
+     *
+     * @return The body bytes, empty if the request has no body, it cannot be
+     *         read or it is larger than the limit
+     */
+    public byte[] getBody() {
+        if (body == null) {
+            body = readBody();
+        }
+        return body;
+    }
+
+    /**
+     * Whether the body was not read because it is larger than the limit.
+     *
+     * @return true if the body is too large
+     */
+    public boolean isBodyTooLarge() {
+        getBody();
+        return bodyTooLarge;
+    }
+
+    private byte[] readBody() {
+        if (request.getContentLengthLong() > maxBodyBytes) {
+            return tooLarge();
+        }
+
+        try {
+            InputStream input = request.getInputStream();
+            byte[] bytes = input.readNBytes(maxBodyBytes);
+            return bytes.length == maxBodyBytes && input.read() >= 0 ? tooLarge() : bytes;
+        } catch (IOException e) {
+            logger.warn("FAILED_TO_READ_REQUEST_BODY: {}", e.getMessage());
+            return new byte[0];
+        }
+    }
+
+    private byte[] tooLarge() {
+        logger.warn("REQUEST_BODY_TOO_LARGE: [{} {}] more than {} bytes", request.getMethod(),
+                request.getRequestURI(), maxBodyBytes);
+        bodyTooLarge = true;
+        return new byte[0];
+    }
+
+    /**
+     * Returns the request body decoded with the request charset, UTF-8 by
+     * default.
+     *
+     * @return The body text
+     */
+    public String getText() {
+        if (text == null) {
+            String encoding = request.getCharacterEncoding();
+            Charset charset = encoding != null && Charset.isSupported(encoding) ? Charset.forName(encoding)
+                    : StandardCharsets.UTF_8;
+            text = new String(getBody(), charset);
+        }
+        return text;
+    }
+
+    /**
+     * Returns the request body parsed as JSON.
+     *
+     * @return The JSON tree, or a missing node if the body is empty or not JSON
+     */
+    public JsonNode getJson() {
+        if (json == null) {
+            byte[] bytes = getBody();
+            try {
+                json = bytes.length == 0 ? MissingNode.getInstance() : OBJECT_MAPPER.readTree(bytes);
+            } catch (IOException e) {
+                json = MissingNode.getInstance();
+            }
+            if (json == null) {
+                json = MissingNode.getInstance();
+            }
+        }
+        return json;
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.putIfAbsent(decode(name), decode(value));
+        }
+        return parameters;
+    }
+
+    private static String decode(String component) {
+        try {
+            return URLDecoder.decode(component, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            // A malformed escape is compared as it was sent.
+            return component;
+        }
+    }
+
+}
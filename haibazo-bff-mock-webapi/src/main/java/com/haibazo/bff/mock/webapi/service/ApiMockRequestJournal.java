@@ -0,0 +1,209 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockRequestStatsDto;
+import com.haibazo.bff.mock.webapi.dto.response.ApiMockRequestRecordDto;
+import com.haibazo.bff.mock.webapi.metrics.ApiMockMetrics.Stage;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Fixed-size, lock-free journal of the most recent mock requests, replacing
+ * the per-request INFO log lines.
+ *
+ * <p>
+ * Records are written into preallocated slots of a ring buffer, so recording
+ * allocates nothing. Each slot is guarded by a version that is odd while it
+ * is being written: a writer that finds its slot busy, which only happens when
+ * the ring wraps around within one write, drops its record rather than wait,
+ * and readers skip slots that change while they copy them. One request in
+ * every {@code log-sample-rate} is also logged at INFO.
+ * </p>
+ */
+@Service
+public class ApiMockRequestJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiMockRequestJournal.class);
+
+    private static final VarHandle VERSION;
+
+    static {
+        try {
+            VERSION = MethodHandles.lookup().findVarHandle(Slot.class, "version", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Value("${haibazo.bff.mock.journal.enabled:true}")
+    private boolean enabled;
+
+    @Value("${haibazo.bff.mock.journal.capacity:1024}")
+    private int capacity;
+
+    @Value("${haibazo.bff.mock.journal.log-sample-rate:0}")
+    private int logSampleRate;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private Slot[] slots;
+
+    private int mask;
+
+    /**
+     * Allocates the ring, rounding its capacity up to a power of two.
+     */
+    @PostConstruct
+    public void initialize() {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Records a completed mock request.
+     *
+     * @param method        The HTTP method
+     * @param path          The request path
+     * @param route         The URI pattern of the matched mock setting, null if
+     *                      none matched
+     * @param stats         What the request did
+     * @param status        The status code answered with
+     * @param durationNanos The time spent serving the request
+     */
+    public void record(String method, String path, String route, ApiMockRequestStatsDto stats, int status,
+            long durationNanos) {
+        if (!enabled) {
+            return;
+        }
+
+        long seq = sequence.getAndIncrement();
+        Slot slot = slots[(int) (seq & mask)];
+        long version = slot.version;
+        if ((version & 1) == 0 && VERSION.compareAndSet(slot, version, version + 1)) {
+            slot.sequence = seq;
+            slot.timestamp = System.currentTimeMillis();
+            slot.method = method;
+            slot.path = path;
+            slot.route = route;
+            slot.file = stats.getFilePath();
+            slot.status = status;
+            slot.durationNanos = durationNanos;
+            System.arraycopy(stats.getStageNanos(), 0, slot.stageNanos, 0, slot.stageNanos.length);
+            VERSION.setRelease(slot, version + 2);
+        }
+
+        if (logSampleRate > 0 && seq % logSampleRate == 0) {
+            logger.info("MOCK_REQUEST [{}] {} - {} - {} us - [MOCK] {}", method, path, status,
+                    TimeUnit.NANOSECONDS.toMicros(durationNanos), stats.getFilePath());
+        }
+    }
+
+    /**
+     * Returns the most recent requests matching the given filters, newest
+     * first.
+     *
+     * @param limit         The maximum number of records returned
+     * @param path          Only requests whose path contains this text, may be
+     *                      null
+     * @param status        Only requests answered with this status, may be null
+     * @param minDurationMs Only requests that took at least this long
+     * @return The matching records
+     */
+    public List<ApiMockRequestRecordDto> find(int limit, String path, Integer status, long minDurationMs) {
+        List<ApiMockRequestRecordDto> records = new ArrayList<>(Math.min(Math.max(limit, 0), slots.length));
+        long newest = sequence.get() - 1;
+
+        for (long seq = newest; seq >= 0 && seq > newest - slots.length && records.size() < limit; seq--) {
+            ApiMockRequestRecordDto record = slots[(int) (seq & mask)].read(seq);
+            if (record != null
+                    && (path == null || record.getPath().contains(path))
+                    && (status == null || record.getStatus() == status)
+                    && record.getDurationMs() >= minDurationMs) {
+                records.add(record);
+            }
+        }
+
+        return records;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000d;
+    }
+
+    /**
+     * Ring buffer slot, written in place.
+     */
+    private static final class Slot {
+
+        private volatile long version;
+
+        private long sequence = -1;
+
+        private long timestamp;
+
+        private String method;
+
+        private String path;
+
+        private String route;
+
+        private String file;
+
+        private int status;
+
+        private long durationNanos;
+
+        private final long[] stageNanos = new long[Stage.values().length];
+
+        /**
+         * Copies the slot if it still holds the given request and is not
+         * rewritten while it is copied.
+         */
+        ApiMockRequestRecordDto read(long expected) {
+            long before = version;
+            if ((before & 1) != 0 || sequence != expected) {
+                return null;
+            }
+
+            Map<String, Double> stagesMs = new LinkedHashMap<>();
+            for (Stage stage : Stage.values()) {
+                stagesMs.put(stage.name().toLowerCase(Locale.ROOT), millis(stageNanos[stage.ordinal()]));
+            }
+            ApiMockRequestRecordDto record = ApiMockRequestRecordDto.builder()
+                    .sequence(sequence)
+                    .timestamp(Instant.ofEpochMilli(timestamp))
+                    .method(method)
+                    .path(path)
+                    .route(route)
+                    .file(file)
+                    .status(status)
+                    .durationMs(millis(durationNanos))
+                    .stagesMs(stagesMs)
+                    .build();
+
+            VarHandle.acquireFence();
+            return version == before ? record : null;
+        }
+
+    }
+
+}
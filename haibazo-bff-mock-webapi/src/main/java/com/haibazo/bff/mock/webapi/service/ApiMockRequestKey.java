@@ -0,0 +1,125 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The query parameters and headers a route variant is selected by, compiled
+ * once when the settings are loaded.
+ *
+ * <p>
+ * Both are written as {@code name=value} pairs separated by {@code ;}, such as
+ * {@code status=active;keyword=tea} or {@code Accept-Language=vi}. A variant
+ * matches a request whose first value of each parameter, and of each header,
+ * equals the declared one; header names are case-insensitive, values are not.
+ * The names are kept in a fixed order, so the values a request has for them
+ * form a composite key that is looked up in a hash map.
+ * </p>
+ */
+final class ApiMockRequestKey {
+
+    private static final String SEPARATOR = ";";
+
+    private static final String QUERY = "query:";
+
+    private static final String HEADER = "header:";
+
+    private final List<String> names;
+
+    private final List<String> values;
+
+    private ApiMockRequestKey(List<String> names, List<String> values) {
+        this.names = names;
+        this.values = values;
+    }
+
+    /**
+     * Compiles the key of a route variant.
+     *
+     * @param requestQuery   The query parameters, may be null
+     * @param requestHeaders The headers, may be null
+     * @return The key, or null if neither declares a pair
+     * @throws IllegalArgumentException If a pair is invalid or a name is
+     *                                  repeated
+     */
+    static ApiMockRequestKey compile(String requestQuery, String requestHeaders) {
+        Map<String, String> pairs = new TreeMap<>();
+        parse(pairs, QUERY, "requestQuery", requestQuery, false);
+        parse(pairs, HEADER, "requestHeaders", requestHeaders, true);
+        if (pairs.isEmpty()) {
+            return null;
+        }
+
+        return new ApiMockRequestKey(List.copyOf(pairs.keySet()), List.copyOf(pairs.values()));
+    }
+
+    /**
+     * Returns the names the key is made of, in lookup order. Keys with the
+     * same names can be looked up in the same map.
+     */
+    List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * Returns the declared values, in the order of {@link #getNames()}.
+     */
+    List<String> getValues() {
+        return values;
+    }
+
+    /**
+     * Reads the values a request has for the names of a key.
+     *
+     * @param names   The names, as returned by {@link #getNames()}
+     * @param content The request
+     * @return The values in the order of the names, null for the missing ones
+     */
+    static List<String> read(List<String> names, ApiMockRequestContent content) {
+        String[] values = new String[names.size()];
+        for (int i = 0; i < values.length; i++) {
+            String name = names.get(i);
+            values[i] = name.startsWith(QUERY) ? content.getQueryParameter(name.substring(QUERY.length()))
+                    : content.getRequest().getHeader(name.substring(HEADER.length()));
+        }
+        return Arrays.asList(values);
+    }
+
+    @Override
+    public String toString() {
+        List<String> pairs = new ArrayList<>(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            pairs.add(names.get(i) + '=' + values.get(i));
+        }
+        return String.join(SEPARATOR, pairs);
+    }
+
+    private static void parse(Map<String, String> pairs, String prefix, String column, String expression,
+            boolean caseInsensitive) {
+        if (expression == null) {
+            return;
+        }
+
+        for (String pair : expression.split(SEPARATOR)) {
+            if (pair.isBlank()) {
+                continue;
+            }
+
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? "" : pair.substring(0, equals).trim();
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("invalid " + column + " " + pair.trim());
+            }
+
+            String key = prefix + (caseInsensitive ? name.toLowerCase(Locale.ROOT) : name);
+            if (pairs.put(key, pair.substring(equals + 1).trim()) != null) {
+                throw new IllegalArgumentException("duplicate " + column + " " + name);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,394 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockCachedResponseDto;
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockResponseValidatorDto;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Bounded in-memory cache of parsed and serialized mock fixtures.
+ *
+ * <p>
+ * Entries are keyed by the resolved fixture path plus charset and evicted in
+ * least-recently-used order once the configured byte budget, measured on the
+ * serialized bodies and their encoded variants, is exceeded. Entries are
+ * revalidated against the file's last modified time and size at most once per
+ * revalidation interval, so edited fixtures are picked up without a restart.
+ * </p>
+ *
+ * <p>
+ * The conditional request validators of every loaded fixture are also kept
+ * in a side index that is not subject to eviction, so revalidating clients
+ * can be answered without reading the fixture again.
+ * </p>
+ *
+ * <p>
+ * Fixtures with identical content, typically the same file copied into
+ * several mock environments, share their serialized bodies: an entry whose
+ * bytes equal those of a cached entry reuses that entry's arrays, so the copies
+ * occupy memory once. The byte budget still counts every entry in full.
+ * </p>
+ *
+ * <p>
+ * The hit, miss and eviction counters and the bytes in use are published as
+ * meters that read the counters on scrape.
+ * </p>
+ */
+@Service
+public class ApiMockResponseCache implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiMockResponseCache.class);
+
+    /**
+     * Loads a fixture into a cache entry on a miss.
+     */
+    @FunctionalInterface
+    public interface Loader {
+
+        ApiMockCachedResponseDto load(BasicFileAttributes attributes) throws IOException;
+
+    }
+
+    @Value("${haibazo.bff.mock.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${haibazo.bff.mock.cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${haibazo.bff.mock.cache.revalidate-interval-ms:2000}")
+    private long revalidateIntervalMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final LinkedHashMap<String, Slot> slots = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long usedBytes;
+
+    private final Map<String, ValidatorSlot> validators = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * Most recently cached entry for each content hash and status, whose
+     * bodies later entries with the same bytes reuse. An entry is removed
+     * when its slot is evicted or replaced, so only cached entries are kept.
+     */
+    private final Map<String, ApiMockCachedResponseDto> bodies = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the cached entry for a fixture, loading it on a miss or when the
+     * file changed since it was cached.
+     *
+     * @param filePath The resolved fixture path
+     * @param charset  The charset the fixture is read with
+     * @param loader   Reads, parses and serializes the fixture
+     * @return The cache entry
+     * @throws IOException If the fixture cannot be read
+     */
+    public ApiMockCachedResponseDto get(String filePath, String charset, Loader loader) throws IOException {
+        String key = filePath + '|' + charset;
+        if (!enabled) {
+            return index(key, loader.load(readAttributes(filePath)));
+        }
+
+        Slot slot = lookup(key);
+
+        if (slot != null) {
+            long now = System.nanoTime();
+            if (now - slot.validatedAt < TimeUnit.MILLISECONDS.toNanos(revalidateIntervalMs)) {
+                hits.increment();
+                return slot.entry;
+            }
+
+            BasicFileAttributes attributes = readAttributes(filePath);
+            if (attributes.lastModifiedTime().toMillis() == slot.entry.getLastModified()
+                    && attributes.size() == slot.entry.getSize()) {
+                slot.validatedAt = now;
+                hits.increment();
+                return slot.entry;
+            }
+
+            misses.increment();
+            return store(key, index(key, loader.load(attributes)));
+        }
+
+        misses.increment();
+        return store(key, index(key, loader.load(readAttributes(filePath))));
+    }
+
+    /**
+     * Returns the validators of a fixture that was loaded before, without
+     * reading it. The file attributes are checked at most once per
+     * revalidation interval.
+     *
+     * @param filePath The resolved fixture path
+     * @param charset  The charset the fixture is read with
+     * @return The validators, or null if the fixture was never loaded or changed
+     *         since
+     * @throws IOException If the fixture attributes cannot be read
+     */
+    public ApiMockResponseValidatorDto getValidator(String filePath, String charset) throws IOException {
+        String key = filePath + '|' + charset;
+        ValidatorSlot slot = validators.get(key);
+        if (slot == null) {
+            return null;
+        }
+
+        long now = System.nanoTime();
+        if (now - slot.validatedAt < TimeUnit.MILLISECONDS.toNanos(revalidateIntervalMs)) {
+            return slot.validator;
+        }
+
+        BasicFileAttributes attributes = readAttributes(filePath);
+        if (attributes.lastModifiedTime().toMillis() == slot.validator.getLastModified()
+                && attributes.size() == slot.validator.getSize()) {
+            slot.validatedAt = now;
+            return slot.validator;
+        }
+
+        validators.remove(key, slot);
+        return null;
+    }
+
+    /**
+     * Drops every cached entry.
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            slots.clear();
+            usedBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+        validators.clear();
+        bodies.clear();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("haibazo.bff.mock.cache.requests", this, ApiMockResponseCache::getHits)
+                .description("Fixture cache lookups")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("haibazo.bff.mock.cache.requests", this, ApiMockResponseCache::getMisses)
+                .description("Fixture cache lookups")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("haibazo.bff.mock.cache.evictions", this, ApiMockResponseCache::getEvictions)
+                .description("Fixtures evicted from the cache to stay within its byte budget")
+                .register(registry);
+        FunctionCounter.builder("haibazo.bff.mock.cache.shared", this, ApiMockResponseCache::getShared)
+                .description("Fixtures whose bodies are shared with an identical cached fixture")
+                .register(registry);
+        Gauge.builder("haibazo.bff.mock.cache.size", this, ApiMockResponseCache::getUsedBytes)
+                .description("Bytes held by the fixture cache")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getShared() {
+        return shared.sum();
+    }
+
+    public long getUsedBytes() {
+        lock.lock();
+        try {
+            return usedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Slot lookup(String key) {
+        lock.lock();
+        try {
+            return slots.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ApiMockCachedResponseDto store(String key, ApiMockCachedResponseDto entry) {
+        entry = share(entry);
+        long weight = entry.getWeight();
+        if (weight > maxBytes) {
+            logger.debug("MOCK_RESPONSE_TOO_LARGE_TO_CACHE [{}] - {} bytes", key, weight);
+            // The fixture may have grown past the budget since it was cached.
+            lock.lock();
+            try {
+                Slot previous = slots.remove(key);
+                if (previous != null) {
+                    usedBytes -= previous.entry.getWeight();
+                    forget(previous.entry);
+                }
+            } finally {
+                lock.unlock();
+            }
+            return entry;
+        }
+
+        lock.lock();
+        try {
+            Slot previous = slots.put(key, new Slot(entry, System.nanoTime()));
+            if (previous != null) {
+                usedBytes -= previous.entry.getWeight();
+                forget(previous.entry);
+            }
+            usedBytes += weight;
+            remember(entry);
+
+            Iterator<Map.Entry<String, Slot>> iterator = slots.entrySet().iterator();
+            while (usedBytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, Slot> eldest = iterator.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                usedBytes -= eldest.getValue().entry.getWeight();
+                forget(eldest.getValue().entry);
+                iterator.remove();
+                evictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        return entry;
+    }
+
+    /**
+     * Returns the entry with the bodies of an identical cached entry, if there
+     * is one.
+     */
+    private ApiMockCachedResponseDto share(ApiMockCachedResponseDto entry) {
+        if (entry.getContentHash() == null) {
+            return entry;
+        }
+
+        ApiMockCachedResponseDto previous = bodies.get(bodiesKey(entry));
+        if (previous != null && previous.getBody() != entry.getBody()
+                && Arrays.equals(previous.getBody(), entry.getBody())) {
+            shared.increment();
+            return entry.toBuilder()
+                    .body(previous.getBody())
+                    .gzipBody(previous.getGzipBody())
+                    .deflateBody(previous.getDeflateBody())
+                    .itemEnds(previous.getItemEnds())
+                    .build();
+        }
+        return entry;
+    }
+
+    /**
+     * Offers the bodies of a newly cached entry to later identical entries,
+     * unless it already shares those of the entry that offers them. Called
+     * under the lock.
+     */
+    private void remember(ApiMockCachedResponseDto entry) {
+        if (entry.getContentHash() == null) {
+            return;
+        }
+
+        bodies.compute(bodiesKey(entry),
+                (key, previous) -> previous != null && previous.getBody() == entry.getBody() ? previous : entry);
+    }
+
+    /**
+     * Stops offering the bodies of an entry that left the cache. Called under
+     * the lock.
+     */
+    private void forget(ApiMockCachedResponseDto entry) {
+        if (entry.getContentHash() == null) {
+            return;
+        }
+
+        bodies.computeIfPresent(bodiesKey(entry), (key, previous) -> previous == entry ? null : previous);
+    }
+
+    private static String bodiesKey(ApiMockCachedResponseDto entry) {
+        return entry.getContentHash() + '|' + entry.getStatus().value();
+    }
+
+    private ApiMockCachedResponseDto index(String key, ApiMockCachedResponseDto entry) {
+        validators.put(key, new ValidatorSlot(ApiMockResponseValidatorDto.of(entry), System.nanoTime()));
+        return entry;
+    }
+
+    private static BasicFileAttributes readAttributes(String filePath) throws IOException {
+        return Files.readAttributes(Path.of(filePath), BasicFileAttributes.class);
+    }
+
+    /**
+     * Cache slot holding an entry and the time it was last validated against
+     * the file system.
+     */
+    private static final class Slot {
+
+        private final ApiMockCachedResponseDto entry;
+
+        private volatile long validatedAt;
+
+        Slot(ApiMockCachedResponseDto entry, long validatedAt) {
+            this.entry = entry;
+            this.validatedAt = validatedAt;
+        }
+
+    }
+
+    /**
+     * Validator index slot holding the validators of a fixture and the time
+     * they were last validated against the file system.
+     */
+    private static final class ValidatorSlot {
+
+        private final ApiMockResponseValidatorDto validator;
+
+        private volatile long validatedAt;
+
+        ValidatorSlot(ApiMockResponseValidatorDto validator, long validatedAt) {
+            this.validator = validator;
+            this.validatedAt = validatedAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,311 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.util.AntPathMatcher;
+
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockSettingDto;
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockSettingMatchDto;
+
+/**
+ * Precompiled, immutable route index over the mock settings.
+ *
+ * <p>
+ * Each HTTP method gets its own segment trie built once from the settings
+ * list. Literal segments are stored as hashed children and whole-segment
+ * {@code {var}} templates share a single wildcard child, so a lookup costs
+ * time proportional to the number of path segments instead of the number of
+ * configured routes.
+ * </p>
+ *
+ * <p>
+ * Patterns the trie cannot express ({@code *}, {@code **}, {@code ?}, regex
+ * variables or partial-segment templates) are kept aside and evaluated with
+ * {@link AntPathMatcher}. In every case the route that appears first in the
+ * settings file wins, exactly like the previous linear scan.
+ * </p>
+ */
+public class ApiMockRouteIndex {
+
+    private static final String SEPARATOR = "/";
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private final Map<HttpMethod, Table> tables = new HashMap<>();
+
+    /**
+     * Builds the index from the given settings, preserving their order as the
+     * match priority.
+     *
+     * @param mockSettings The settings in file order
+     */
+    public ApiMockRouteIndex(List<ApiMockSettingDto> mockSettings) {
+        for (int order = 0; order < mockSettings.size(); order++) {
+            ApiMockSettingDto mockSetting = mockSettings.get(order);
+            if (mockSetting.getMethod() == null || mockSetting.getUri() == null) {
+                continue;
+            }
+            tables.computeIfAbsent(mockSetting.getMethod(), method -> new Table())
+                    .add(new Route(mockSetting, order));
+        }
+    }
+
+    /**
+     * Finds the first mock setting, in file order, whose URI pattern matches the
+     * given request path and HTTP method.
+     *
+     * @param path   The request path to match
+     * @param method The HTTP method to match
+     * @return ApiMockSettingMatchDto containing the matching configuration, or null
+     *         if no match
+     */
+    public ApiMockSettingMatchDto find(String path, HttpMethod method) {
+        Table table = tables.get(method);
+        if (table == null || path == null) {
+            return null;
+        }
+
+        return table.find(path);
+    }
+
+    /**
+     * Routes grouped by HTTP method.
+     */
+    private static final class Table {
+
+        private final Node root = new Node();
+
+        private final List<Route> fallbackRoutes = new ArrayList<>();
+
+        void add(Route route) {
+            if (route.segments == null) {
+                fallbackRoutes.add(route);
+                return;
+            }
+
+            Node node = root;
+            node.minOrder = Math.min(node.minOrder, route.order);
+            for (String segment : route.segments) {
+                node = segment == null
+                        ? node.wildcardChild()
+                        : node.literalChild(segment);
+                node.minOrder = Math.min(node.minOrder, route.order);
+            }
+            node.routes.add(route);
+        }
+
+        ApiMockSettingMatchDto find(String path) {
+            String[] segments = tokenize(path);
+            Search search = new Search(path, segments);
+            search.visit(root, 0, 0);
+
+            Route best = search.bestRoute;
+            for (Route route : fallbackRoutes) {
+                if (best != null && route.order > best.order) {
+                    break;
+                }
+                if (PATH_MATCHER.match(route.mockSetting.getUri(), path)) {
+                    Map<String, String> variables = PATH_MATCHER
+                            .extractUriTemplateVariables(route.mockSetting.getUri(), path);
+                    return new ApiMockSettingMatchDto(route.mockSetting, route.mockSetting.getUri(), variables);
+                }
+            }
+
+            if (best == null) {
+                return null;
+            }
+
+            Map<String, String> variables = new LinkedHashMap<>();
+            for (int i = 0; i < best.variableNames.length; i++) {
+                variables.put(best.variableNames[i], search.bestCaptures[i]);
+            }
+            return new ApiMockSettingMatchDto(best.mockSetting, best.mockSetting.getUri(), variables);
+        }
+
+    }
+
+    /**
+     * A single trie node: literal children, at most one wildcard child and the
+     * routes ending here, in file order.
+     */
+    private static final class Node {
+
+        private Map<String, Node> literalChildren = Collections.emptyMap();
+
+        private Node wildcardChild;
+
+        private final List<Route> routes = new ArrayList<>(1);
+
+        private int minOrder = Integer.MAX_VALUE;
+
+        Node literalChild(String segment) {
+            if (literalChildren.isEmpty()) {
+                literalChildren = new HashMap<>();
+            }
+            return literalChildren.computeIfAbsent(segment, key -> new Node());
+        }
+
+        Node wildcardChild() {
+            if (wildcardChild == null) {
+                wildcardChild = new Node();
+            }
+            return wildcardChild;
+        }
+
+    }
+
+    /**
+     * Depth-first walk that keeps the lowest-order match and prunes subtrees
+     * that cannot beat it.
+     */
+    private static final class Search {
+
+        private final boolean leadingSeparator;
+
+        private final boolean trailingSeparator;
+
+        private final String[] segments;
+
+        private final String[] captures;
+
+        private Route bestRoute;
+
+        private String[] bestCaptures;
+
+        Search(String path, String[] segments) {
+            this.leadingSeparator = path.startsWith(SEPARATOR);
+            this.trailingSeparator = path.endsWith(SEPARATOR);
+            this.segments = segments;
+            this.captures = new String[segments.length];
+        }
+
+        void visit(Node node, int depth, int captureCount) {
+            if (bestRoute != null && node.minOrder >= bestRoute.order) {
+                return;
+            }
+
+            if (depth == segments.length) {
+                for (Route route : node.routes) {
+                    if (bestRoute != null && route.order >= bestRoute.order) {
+                        break;
+                    }
+                    if (route.leadingSeparator == leadingSeparator
+                            && route.trailingSeparator == trailingSeparator) {
+                        bestRoute = route;
+                        bestCaptures = Arrays.copyOf(captures, captureCount);
+                        break;
+                    }
+                }
+                return;
+            }
+
+            Node literal = node.literalChildren.get(segments[depth]);
+            if (literal != null) {
+                visit(literal, depth + 1, captureCount);
+            }
+
+            if (node.wildcardChild != null) {
+                captures[captureCount] = segments[depth];
+                visit(node.wildcardChild, depth + 1, captureCount + 1);
+            }
+        }
+
+    }
+
+    /**
+     * A compiled route. {@code segments} is null when the pattern has to be
+     * evaluated by {@link AntPathMatcher}; otherwise wildcard positions hold
+     * null.
+     */
+    private static final class Route {
+
+        private final ApiMockSettingDto mockSetting;
+
+        private final int order;
+
+        private final String[] segments;
+
+        private final String[] variableNames;
+
+        private final boolean leadingSeparator;
+
+        private final boolean trailingSeparator;
+
+        Route(ApiMockSettingDto mockSetting, int order) {
+            String pattern = mockSetting.getUri();
+            this.mockSetting = mockSetting;
+            this.order = order;
+            this.leadingSeparator = pattern.startsWith(SEPARATOR);
+            this.trailingSeparator = pattern.endsWith(SEPARATOR);
+
+            String[] tokens = tokenize(pattern);
+            List<String> names = new ArrayList<>();
+            boolean compilable = true;
+            for (int i = 0; i < tokens.length && compilable; i++) {
+                String token = tokens[i];
+                if (isWholeSegmentVariable(token)) {
+                    names.add(token.substring(1, token.length() - 1));
+                    tokens[i] = null;
+                } else if (hasWildcard(token)) {
+                    compilable = false;
+                }
+            }
+
+            this.segments = compilable ? tokens : null;
+            this.variableNames = names.toArray(new String[0]);
+        }
+
+        private static boolean isWholeSegmentVariable(String token) {
+            if (token.length() < 3 || token.charAt(0) != '{' || token.charAt(token.length() - 1) != '}') {
+                return false;
+            }
+            for (int i = 1; i < token.length() - 1; i++) {
+                char c = token.charAt(i);
+                if (c == '{' || c == '}' || c == ':') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean hasWildcard(String token) {
+            for (int i = 0; i < token.length(); i++) {
+                char c = token.charAt(i);
+                if (c == '*' || c == '?' || c == '{' || c == '}') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+    /**
+     * Splits a path on the separator and drops empty segments, the same way
+     * {@link AntPathMatcher} tokenizes patterns and paths.
+     */
+    private static String[] tokenize(String path) {
+        List<String> tokens = new ArrayList<>();
+        int start = 0;
+        int length = path.length();
+        while (start < length) {
+            int end = path.indexOf(SEPARATOR, start);
+            if (end < 0) {
+                end = length;
+            }
+            if (end > start) {
+                tokens.add(path.substring(start, end));
+            }
+            start = end + 1;
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+}
@@ -4,27 +4,50 @@ import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
-import software.amazon.awssdk.core.ResponseBytes;
-import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import com.haibazo.bff.mock.webapi.metrics.ApiMockMetrics;
+import com.haibazo.bff.mock.webapi.metrics.ApiMockMetrics.S3Result;
+import com.haibazo.bff.mock.webapi.tracing.ApiMockTracing;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 /**
  * Before running this Java V2 code example, set up your development
@@ -45,69 +68,340 @@ public class ApiMockS3Service {
 
     private S3Client s3Client;
 
-    @Value("${haibazo.bff.mock.storage}")
-    private String mockStorage;
+    private final String mockStorage;
+
+    private final String region;
+
+    private final String accessKey;
 
-    @Value("${haibazo.bff.mock.s3.region}")
-    private String region;
+    private final String secretKey;
 
-    @Value("${haibazo.bff.aws.iam.access-key}")
-    private String accessKey;
+    private final String bucketName;
+
+    private final String mockBaseFolder;
+
+    /**
+     * Optional endpoint override, e.g. a local S3 stand-in such as MinIO.
+     */
+    private final String endpoint;
 
-    @Value("${haibazo.bff.aws.iam.secret-key}")
-    private String secretKey;
+    private final boolean pathStyleAccess;
 
-    @Value("${haibazo.bff.mock.s3.bucket-name}")
-    private String bucketName;
+    /**
+     * How long a downloaded object is served from local disk before it is
+     * revalidated against S3 with a conditional GET.
+     */
+    private final long cacheTtlMs;
 
-    @Value("${haibazo.bff.mock.s3.folder}")
-    private String mockBaseFolder;
+    /**
+     * Whether the whole mock folder is mirrored to local disk up front instead
+     * of being fetched lazily per request.
+     */
+    private final boolean syncEnabled;
+
+    /**
+     * Maximum number of objects downloaded in parallel during a sync.
+     */
+    private final int syncConcurrency;
+
+    private final ApiMockLocalStorageService localStorageService;
+
+    private final ApiMockMetrics metrics;
+
+    private final ApiMockTracing tracing;
+
+    private ExecutorService syncExecutor;
+
+    /**
+     * Set once a full sync has completed; from then on the listing is
+     * authoritative and requests are served from local disk only.
+     */
+    private volatile boolean initialSyncCompleted;
+
+    /**
+     * Last known state of every object fetched so far, keyed by S3 key.
+     */
+    private final Map<String, S3ObjectState> objectStates = new ConcurrentHashMap<>();
+
+    /**
+     * Downloads currently in progress, keyed by S3 key, so concurrent requests
+     * for the same object share a single fetch.
+     */
+    private final Map<String, CompletableFuture<Boolean>> inFlightDownloads = new ConcurrentHashMap<>();
+
+    public ApiMockS3Service(@Value("${haibazo.bff.mock.storage}") String mockStorage,
+            @Value("${haibazo.bff.mock.s3.region}") String region,
+            @Value("${haibazo.bff.aws.iam.access-key}") String accessKey,
+            @Value("${haibazo.bff.aws.iam.secret-key}") String secretKey,
+            @Value("${haibazo.bff.mock.s3.bucket-name}") String bucketName,
+            @Value("${haibazo.bff.mock.s3.folder}") String mockBaseFolder,
+            @Value("${haibazo.bff.mock.s3.endpoint:}") String endpoint,
+            @Value("${haibazo.bff.mock.s3.path-style-access:false}") boolean pathStyleAccess,
+            @Value("${haibazo.bff.mock.s3.cache-ttl-ms:30000}") long cacheTtlMs,
+            @Value("${haibazo.bff.mock.s3.sync.enabled:true}") boolean syncEnabled,
+            @Value("${haibazo.bff.mock.s3.sync.concurrency:8}") int syncConcurrency,
+            ApiMockLocalStorageService localStorageService, ApiMockMetrics metrics, ApiMockTracing tracing) {
+        this.mockStorage = mockStorage;
+        this.region = region;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.bucketName = bucketName;
+        this.mockBaseFolder = mockBaseFolder;
+        this.endpoint = endpoint;
+        this.pathStyleAccess = pathStyleAccess;
+        this.cacheTtlMs = cacheTtlMs;
+        this.syncEnabled = syncEnabled;
+        this.syncConcurrency = syncConcurrency;
+        this.localStorageService = localStorageService;
+        this.metrics = metrics;
+        this.tracing = tracing;
+    }
 
     @PostConstruct
     public void initiate() {
         if (mockStorage.equals("s3")) {
             createS3Client();
+
+            if (syncEnabled) {
+                syncExecutor = Executors.newFixedThreadPool(syncConcurrency);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (syncExecutor != null) {
+            syncExecutor.shutdownNow();
         }
     }
 
     /**
-     * Retrieves the bytes of an object stored in an Amazon S3 bucket and saves them
-     * to a local file.
+     * Whether the initial sync has completed, or no sync is required because
+     * S3 storage or syncing is disabled.
+     *
+     * @return true if mock files can be served from local disk
+     */
+    public boolean isReady() {
+        return !isSyncEnabled() || initialSyncCompleted;
+    }
+
+    /**
+     * Mirrors every object under the configured S3 folder to the local mock
+     * folder.
+     *
+     * <p>
+     * The first run, right after startup, downloads the whole folder with
+     * bounded concurrency. Later runs compare the listing with the manifest of
+     * ETags and sizes recorded so far and only download changed objects. Local
+     * copies of objects removed from the bucket are deleted.
+     * </p>
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${haibazo.bff.mock.s3.sync.interval-ms:60000}")
+    public void synchronize() {
+        if (!isSyncEnabled()) {
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        String prefix = getMockFilePath("") + "/";
+        Map<String, S3Object> objects = new HashMap<>();
+
+        try {
+            for (S3Object object : s3Client.listObjectsV2Paginator(request -> request.bucket(bucketName)
+                    .prefix(prefix)).contents()) {
+                if (!object.key().endsWith("/")) {
+                    objects.put(object.key(), object);
+                }
+            }
+        } catch (SdkException e) {
+            logger.error("S3_SYNC_LIST_FAILED: {}", e.getMessage());
+            return;
+        }
+
+        List<Future<Boolean>> downloads = new ArrayList<>();
+        for (S3Object object : objects.values()) {
+            Path path = Path.of(localStorageService.getMockFilePath(object.key().substring(prefix.length())));
+            S3ObjectState state = objectStates.get(object.key());
+
+            if (state != null && state.exists && object.eTag().equals(state.eTag) && state.size == object.size()
+                    && Files.exists(path)) {
+                continue;
+            }
+
+            downloads.add(syncExecutor.submit(() -> fetchObject(object.key(), path)));
+        }
+
+        int failed = 0;
+        for (Future<Boolean> download : downloads) {
+            try {
+                download.get();
+            } catch (ExecutionException e) {
+                failed++;
+                logger.error("S3_SYNC_OBJECT_FAILED: {}", e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        int removed = 0;
+        for (Map.Entry<String, S3ObjectState> entry : objectStates.entrySet()) {
+            String key = entry.getKey();
+            if (entry.getValue().exists && key.startsWith(prefix) && !objects.containsKey(key)) {
+                try {
+                    Files.deleteIfExists(Path.of(localStorageService.getMockFilePath(key.substring(prefix.length()))));
+                } catch (IOException e) {
+                    logger.warn("S3_SYNC_DELETE_FAILED: {} - {}", key, e.getMessage());
+                }
+                objectStates.put(key, new S3ObjectState(false, null, 0, System.nanoTime()));
+                removed++;
+            }
+        }
+
+        if (failed == 0) {
+            initialSyncCompleted = true;
+        }
+
+        logger.info("S3_SYNC_COMPLETED: {} objects, {} downloaded, {} removed, {} failed in {} ms",
+                objects.size(), downloads.size() - failed, removed, failed,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+    }
+
+    /**
+     * Makes sure the local copy of an object stored in an Amazon S3 bucket is up
+     * to date and returns whether the object exists.
+     *
+     * <p>
+     * Objects fetched within the cache TTL are served from local disk without
+     * contacting S3. Stale objects are revalidated with a conditional GET using
+     * the stored ETag, and concurrent callers for the same key share one
+     * in-flight download.
+     * </p>
      *
      * @param keyName The key (or name) of the S3 object.
      * @param path    The local file path where the object's bytes will be saved.
-     * @throws IOException If an I/O error occurs while writing the bytes to the
-     *                     local file.
-     * @throws S3Exception If an error occurs while retrieving the object from the
-     *                     S3 bucket.
+     * @return true if the object exists and its local copy is up to date, false
+     *         if the object does not exist in the bucket or cannot be fetched
+     */
+    public boolean getObjectBytes(String keyName, String path) {
+        String key = getMockFilePath(keyName);
+
+        S3ObjectState state = objectStates.get(key);
+        if (initialSyncCompleted) {
+            return state != null && state.exists;
+        }
+        if (state != null && state.isFresh(System.nanoTime(), cacheTtlMs)) {
+            return state.exists;
+        }
+
+        // A failed fetch is not recorded, so the next request tries again.
+        try {
+            return fetchObject(key, Path.of(path));
+        } catch (IOException e) {
+            logger.error("S3_WRITE_OBJECT_TO_FILE_FAILED: {} - {}", key, e.getMessage());
+        } catch (SdkException e) {
+            logger.error("S3_DOWNLOAD_OBJECT_FAILED: {} - {}", key, e.getMessage());
+        }
+
+        return false;
+    }
+
+    /**
+     * Downloads an object, sharing one in-flight download between concurrent
+     * callers for the same key.
      */
-    public void getObjectBytes(String keyName, String path) {
-        logger.info("S3_START_DOWNLOAD_OBJECT: {}", getMockFilePath(keyName));
+    private boolean fetchObject(String key, Path path) throws IOException {
+        CompletableFuture<Boolean> download = new CompletableFuture<>();
+        CompletableFuture<Boolean> inFlight = inFlightDownloads.putIfAbsent(key, download);
+        if (inFlight != null) {
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof UncheckedIOException ioException) {
+                    throw ioException.getCause();
+                }
+                throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+            }
+        }
 
+        Span span = tracing.startSpan("mock.s3.fetch");
+        span.setAttribute("aws.s3.bucket", bucketName);
+        span.setAttribute("aws.s3.key", key);
         try {
-            GetObjectRequest objectRequest = GetObjectRequest
-                    .builder()
-                    .key(getMockFilePath(keyName))
-                    .bucket(bucketName)
-                    .build();
-
-            ResponseBytes<GetObjectResponse> objectBytes = s3Client.getObject(objectRequest,
-                    ResponseTransformer.toBytes());
-            byte[] data = objectBytes.asByteArray();
-
-            // Write the data to a local file.
-            File myFile = new File(path);
-            OutputStream os = new FileOutputStream(myFile);
-            os.write(data);
+            boolean exists = downloadObject(key, path, objectStates.get(key));
+            download.complete(exists);
+            return exists;
+        } catch (IOException e) {
+            span.recordException(e).setStatus(StatusCode.ERROR);
+            download.completeExceptionally(new UncheckedIOException(e));
+            throw e;
+        } catch (RuntimeException e) {
+            span.recordException(e).setStatus(StatusCode.ERROR);
+            download.completeExceptionally(e);
+            throw e;
+        } finally {
+            span.end();
+            inFlightDownloads.remove(key, download);
+        }
+    }
+
+    /**
+     * Downloads an object unless the stored ETag still matches, and records its
+     * new state.
+     */
+    private boolean downloadObject(String key, Path path, S3ObjectState previous) throws IOException {
+        logger.info("S3_START_DOWNLOAD_OBJECT: {}", key);
+        long started = System.nanoTime();
+
+        GetObjectRequest.Builder objectRequest = GetObjectRequest
+                .builder()
+                .key(key)
+                .bucket(bucketName);
+        if (previous != null && previous.eTag != null && Files.exists(path)) {
+            objectRequest.ifNoneMatch(previous.eTag);
+        }
+
+        try (ResponseInputStream<GetObjectResponse> objectStream = s3Client.getObject(objectRequest.build())) {
+            // Write to a temporary file first so readers never see a partial object.
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            Path tempFile = Files.createTempFile(path.toAbsolutePath().getParent(), ".s3-", ".tmp");
+            long size;
+            try {
+                size = Files.copy(objectStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
             logger.info("S3_WRITE_OBJECT_TO_FILE: {}", path);
-            os.close();
+            metrics.recordS3Download(S3Result.DOWNLOADED, System.nanoTime() - started, size);
 
-        } catch (IOException ex) {
-            logger.error("S3_WRITE_OBJECT_TO_FILE_FAILED: {}", ex.getMessage());
-            System.exit(1);
+            objectStates.put(key, new S3ObjectState(true, objectStream.response().eTag(), size, System.nanoTime()));
+            return true;
         } catch (S3Exception e) {
-            logger.error("S3_DOWNLOAD_OBJECT_FAILED: {}", e.getMessage());
-            System.exit(1);
+            if (e.statusCode() == 304) {
+                logger.debug("S3_OBJECT_NOT_MODIFIED: {}", key);
+                metrics.recordS3Download(S3Result.NOT_MODIFIED, System.nanoTime() - started, 0);
+                objectStates.put(key, new S3ObjectState(true, previous.eTag, previous.size, System.nanoTime()));
+                return true;
+            }
+
+            if (e.statusCode() == 404) {
+                logger.info("S3_OBJECT_NOT_FOUND: {}", key);
+                metrics.recordS3Download(S3Result.NOT_FOUND, System.nanoTime() - started, 0);
+                objectStates.put(key, new S3ObjectState(false, null, 0, System.nanoTime()));
+                return false;
+            }
+
+            metrics.recordS3Download(S3Result.FAILED, System.nanoTime() - started, 0);
+            if (previous != null && previous.exists && Files.exists(path)) {
+                logger.warn("S3_DOWNLOAD_OBJECT_FAILED_SERVING_STALE: {} - {}", key, e.getMessage());
+                return true;
+            }
+
+            throw e;
+        } catch (IOException | SdkException e) {
+            metrics.recordS3Download(S3Result.FAILED, System.nanoTime() - started, 0);
+            throw e;
         }
     }
 
@@ -125,15 +419,65 @@ public class ApiMockS3Service {
         return mockFilePath.toString();
     }
 
+    /**
+     * Creates the S3 storage of another mock environment, with the same
+     * bucket, credentials and sync settings as this one. The service has no
+     * client until it is initiated.
+     *
+     * @param mockStorage         The storage backend of the environment
+     * @param mockBaseFolder      The S3 folder of the environment
+     * @param localStorageService The local storage objects are mirrored to
+     * @return An S3 service for that folder
+     */
+    ApiMockS3Service forEnvironment(String mockStorage, String mockBaseFolder,
+            ApiMockLocalStorageService localStorageService) {
+        return new ApiMockS3Service(mockStorage, region, accessKey, secretKey, bucketName, mockBaseFolder, endpoint,
+                pathStyleAccess, cacheTtlMs, syncEnabled, syncConcurrency, localStorageService, metrics, tracing);
+    }
+
+    private boolean isSyncEnabled() {
+        return syncEnabled && mockStorage.equals("s3");
+    }
+
     private S3Client createS3Client() {
         AwsCredentials credentials = AwsBasicCredentials.create(accessKey, secretKey);
         AwsCredentialsProvider credentialsProvider = StaticCredentialsProvider.create(credentials);
 
         S3ClientBuilder builder = S3Client.builder().region(Region.of(region)).credentialsProvider(credentialsProvider);
+        if (endpoint != null && !endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        builder.forcePathStyle(pathStyleAccess);
 
         s3Client = builder.build();
 
         return s3Client;
     }
 
-}
\ No newline at end of file
+    /**
+     * Last known state of an S3 object and when it was last confirmed.
+     */
+    private static final class S3ObjectState {
+
+        private final boolean exists;
+
+        private final String eTag;
+
+        private final long size;
+
+        private final long fetchedAt;
+
+        S3ObjectState(boolean exists, String eTag, long size, long fetchedAt) {
+            this.exists = exists;
+            this.eTag = eTag;
+            this.size = size;
+            this.fetchedAt = fetchedAt;
+        }
+
+        boolean isFresh(long now, long ttlMs) {
+            return now - fetchedAt < TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        }
+
+    }
+
+}
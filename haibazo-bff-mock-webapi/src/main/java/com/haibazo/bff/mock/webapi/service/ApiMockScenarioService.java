@@ -0,0 +1,208 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockSettingDto;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Keeps the state of the mock scenarios of every test session, so a request
+ * can change what later requests of the same session are answered with.
+ *
+ * <p>
+ * A session is named by the session header or, failing that, the session
+ * cookie; requests carrying neither share one session. Every scenario of a
+ * session starts in {@link #STARTED}. A setting with a RequiredState is only
+ * selected while its scenario is in that state, and a setting with a NewState
+ * moves its scenario to that state when it answers a request.
+ * </p>
+ *
+ * <p>
+ * Sessions and their scenario states are kept in concurrent hash maps, so
+ * sessions only contend when they hash to the same bin, and a transition is
+ * an atomic compare-and-set on the state of one scenario. Sessions idle for
+ * longer than the TTL are forgotten, and at most {@code max-sessions} are
+ * kept, so sessions that are never reset do not accumulate.
+ * </p>
+ */
+@Service
+public class ApiMockScenarioService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiMockScenarioService.class);
+
+    /**
+     * The state every scenario starts in.
+     */
+    public static final String STARTED = "Started";
+
+    /**
+     * The session of the requests that carry neither the session header nor
+     * the session cookie.
+     */
+    public static final String DEFAULT_SESSION = "";
+
+    @Value("${haibazo.bff.mock.scenario.session-header:X-Mock-Session}")
+    private String sessionHeader;
+
+    @Value("${haibazo.bff.mock.scenario.session-cookie:MOCK_SESSION}")
+    private String sessionCookie;
+
+    /**
+     * How long an idle session is kept.
+     */
+    @Value("${haibazo.bff.mock.scenario.ttl-ms:1800000}")
+    private long ttlMs;
+
+    @Value("${haibazo.bff.mock.scenario.max-sessions:10000}")
+    private int maxSessions;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Names the session of a request.
+     *
+     * @param request The request
+     * @return The session header, the session cookie or
+     *         {@link #DEFAULT_SESSION}
+     */
+    public String getSessionId(HttpServletRequest request) {
+        String session = request.getHeader(sessionHeader);
+        if (session != null && !session.isBlank()) {
+            return session.trim();
+        }
+
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (sessionCookie.equals(cookie.getName()) && !cookie.getValue().isBlank()) {
+                    return cookie.getValue().trim();
+                }
+            }
+        }
+        return DEFAULT_SESSION;
+    }
+
+    /**
+     * Returns the state of a scenario in a session.
+     *
+     * @param sessionId The session
+     * @param scenario  The scenario
+     * @return The state, {@link #STARTED} if the scenario has not moved or the
+     *         session has expired
+     */
+    public String getState(String sessionId, String scenario) {
+        long now = System.currentTimeMillis();
+        Session session = sessions.get(sessionId);
+        if (session == null || session.isExpired(now, ttlMs)) {
+            return STARTED;
+        }
+
+        session.lastAccess = now;
+        return session.states.getOrDefault(scenario, STARTED);
+    }
+
+    /**
+     * Returns the states of the scenarios of a session that have moved.
+     *
+     * @param sessionId The session
+     * @return The states by scenario, empty if the session has expired
+     */
+    public Map<String, String> getStates(String sessionId) {
+        Session session = sessions.get(sessionId);
+        if (session == null || session.isExpired(System.currentTimeMillis(), ttlMs)) {
+            return Map.of();
+        }
+        return new TreeMap<>(session.states);
+    }
+
+    /**
+     * Fires the transition of the setting that answered a request. The
+     * scenario only moves if it is still in the required state, so of two
+     * concurrent requests selected in the same state only one fires.
+     *
+     * @param sessionId   The session of the request
+     * @param mockSetting The selected setting
+     */
+    public void transition(String sessionId, ApiMockSettingDto mockSetting) {
+        String newState = mockSetting.getNewState();
+        if (mockSetting.getScenario() == null || newState == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        Session session = sessions.compute(sessionId, (id, current) -> {
+            if (current != null && !current.isExpired(now, ttlMs)) {
+                return current;
+            }
+            return sessions.size() < maxSessions ? new Session() : null;
+        });
+        if (session == null) {
+            logger.warn("SCENARIO_SESSION_LIMIT_REACHED: [{}] not kept, {} sessions", sessionId, maxSessions);
+            return;
+        }
+
+        session.lastAccess = now;
+        String requiredState = mockSetting.getRequiredState();
+        session.states.compute(mockSetting.getScenario(), (scenario, state) -> {
+            String current = state == null ? STARTED : state;
+            return requiredState == null || requiredState.equals(current) ? newState : state;
+        });
+    }
+
+    /**
+     * Moves every scenario of a session, or of all sessions, back to
+     * {@link #STARTED}.
+     *
+     * @param sessionId The session, all sessions if null
+     * @return The number of sessions reset
+     */
+    public int reset(String sessionId) {
+        if (sessionId != null) {
+            return sessions.remove(sessionId) == null ? 0 : 1;
+        }
+
+        int count = sessions.size();
+        sessions.clear();
+        return count;
+    }
+
+    /**
+     * Forgets the sessions that have been idle for longer than the TTL. Each
+     * session is checked and removed atomically, so one that is used while
+     * the sweep runs is kept.
+     */
+    @Scheduled(initialDelayString = "${haibazo.bff.mock.scenario.sweep-interval-ms:60000}",
+            fixedDelayString = "${haibazo.bff.mock.scenario.sweep-interval-ms:60000}")
+    public void expireSessions() {
+        long now = System.currentTimeMillis();
+        for (String sessionId : sessions.keySet()) {
+            sessions.computeIfPresent(sessionId, (id, session) -> session.isExpired(now, ttlMs) ? null : session);
+        }
+    }
+
+    /**
+     * The scenario states of a session.
+     */
+    private static final class Session {
+
+        private final Map<String, String> states = new ConcurrentHashMap<>(4);
+
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        boolean isExpired(long now, long ttlMs) {
+            return now - lastAccess > ttlMs;
+        }
+
+    }
+
+}
@@ -1,30 +1,46 @@
 package com.haibazo.bff.mock.webapi.service;
 
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockBundleFixtureDto;
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockCachedResponseDto;
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockRequestStatsDto;
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockResponseValidatorDto;
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockSettingDto;
 import com.haibazo.bff.mock.webapi.dto.internal.ApiMockSettingMatchDto;
-import com.haibazo.bff.mock.webapi.dto.response.ApiResponseBaseDto;
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockStreamIndexDto;
+import com.haibazo.bff.mock.webapi.dto.request.PageableRequestDto;
 import com.haibazo.bff.mock.webapi.dto.response.ApiResponseDto;
-
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.haibazo.bff.mock.webapi.metrics.ApiMockMetrics;
+import com.haibazo.bff.mock.webapi.metrics.ApiMockMetrics.Stage;
+import com.haibazo.bff.mock.webapi.service.ApiMockEnvironmentService.MockEnvironment;
+import com.haibazo.bff.mock.webapi.tracing.ApiMockTracing;
 
 import java.io.IOException;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.List;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
-import com.haibazo.bff.mock.webapi.dto.response.MetadataDto;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Scope;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 
 /**
  * Service class responsible for handling API mock responses in a testing
@@ -41,11 +57,57 @@ public class ApiMockService {
 
     private static final Logger logger = LoggerFactory.getLogger(ApiMockService.class);
 
+    private static final String PAGE_INDEX = "page_index";
+
+    private static final String PAGE_SIZE = "page_size";
+
+    /**
+     * The largest request body read for body predicates and the proxy.
+     */
+    @Value("${haibazo.bff.mock.request.max-body-bytes:8388608}")
+    private int maxRequestBodyBytes = ApiMockRequestContent.DEFAULT_MAX_BODY_BYTES;
+
     @Autowired
     private ApiMockSettingService apiMockSettingService;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private ApiMockEnvironmentService environmentService;
+
+    @Autowired
+    private ApiMockResponseCache responseCache;
+
+    @Autowired
+    private ApiMockEnvelopeService envelopeService;
+
+    @Autowired
+    private ApiMockRawFileService rawFileService;
+
+    @Autowired
+    private ApiMockCompressionService compressionService;
+
+    @Autowired
+    private ApiMockStreamingService streamingService;
+
+    @Autowired
+    private ApiMockBundleService bundleService;
+
+    @Autowired
+    private ApiMockScenarioService scenarioService;
+
+    @Autowired
+    private ApiMockProxyService proxyService;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ApiMockMetrics metrics;
+
+    @Autowired
+    private ApiMockTracing tracing;
+
+    @Autowired
+    private ApiMockRequestJournal journal;
 
     /**
      * Processes an incoming API request and returns a mock response based on the
@@ -53,6 +115,8 @@ public class ApiMockService {
      * The method matches the request path and HTTP method against stored mock
      * configurations
      * and returns the corresponding mock response.
+     * Requests addressed to a named mock environment are matched against the
+     * route table of that environment, without the environment path prefix.
      *
      * @param request  The HTTP servlet request containing the incoming request
      *                 details
@@ -61,54 +125,498 @@ public class ApiMockService {
      * @return ResponseEntity containing the mock response wrapped in ApiResponseDto
      *         with appropriate HTTP status code and response body
      */
-    public ResponseEntity<ApiResponseBaseDto<Object>> mockItsRctApi(HttpServletRequest request,
+    public ResponseEntity<?> mockItsRctApi(HttpServletRequest request,
             HttpServletResponse response) {
         String path = request.getRequestURI();
         HttpMethod method = HttpMethod.valueOf(request.getMethod());
+        MockEnvironment environment = environmentService.resolve(request);
+        ApiMockSettingService settingService = environment == null ? apiMockSettingService
+                : environment.getSettingService();
 
-        ApiMockSettingMatchDto matchMockSetting = apiMockSettingService.findMatchingMock(path, method);
+        long received = System.nanoTime();
+        ApiMockRequestStatsDto stats = new ApiMockRequestStatsDto();
+        Span serverSpan = tracing.startServerSpan(request);
+        try (Scope scope = tracing.activate(serverSpan)) {
+            if (environment != null) {
+                serverSpan.setAttribute("mock.environment", environment.getName());
+            }
+            Span span = tracing.startSpan("mock.match");
+            long started = System.nanoTime();
+            ApiMockRequestContent content = new ApiMockRequestContent(request, scenarioService,
+                    maxRequestBodyBytes);
+            ApiMockSettingMatchDto matchMockSetting = settingService.findMatchingMock(
+                    environment == null ? path : environment.getMatchPath(path), method, content);
+            recordStage(stats, Stage.MATCH, started);
+            span.end();
 
-        if (matchMockSetting != null) {
-            try {
-                String filePath = apiMockSettingService.getMockFilePathWithFallback(matchMockSetting);
-                logger.info("MATCHED_MOCK_SETTING [{}] {} - [MOCK] {}",
-                        matchMockSetting.getMockSetting().getMethod(), matchMockSetting.getMockSetting().getUri(),
-                        filePath);
-                ApiResponseDto responseDto = ApiResponseDto.status(matchMockSetting.getMockSetting().getStatus());
+            if (matchMockSetting == null && environment == null && proxyService.isEnabled()) {
+                ResponseEntity<?> proxied = proxyService.proxy(content, response);
+                // Streamed upstream responses carry their status on the servlet response.
+                int status = proxied != null ? proxied.getStatusCode().value() : response.getStatus();
+                metrics.recordUnmatched();
+                serverSpan.setAttribute("http.response.status_code", status);
+                journal.record(request.getMethod(), path, null, stats, status, System.nanoTime() - received);
+                return proxied;
+            }
+            if (matchMockSetting == null) {
+                metrics.recordUnmatched();
+                serverSpan.setAttribute("http.response.status_code", HttpStatus.NOT_FOUND.value());
+                journal.record(request.getMethod(), path, null, stats, HttpStatus.NOT_FOUND.value(),
+                        System.nanoTime() - received);
+                return ApiResponseDto.error(HttpStatus.NOT_FOUND, "NO_MOCK_SETTING_FOUND");
+            }
 
-                if (filePath == null) {
-                    return ApiResponseDto.error(HttpStatus.NOT_FOUND, "MOCK_FILE_NOT_FOUND");
+            ApiMockSettingDto mockSetting = matchMockSetting.getMockSetting();
+            if (mockSetting.getNewState() != null) {
+                scenarioService.transition(content.getSessionId(), mockSetting);
+            }
+            if (serverSpan.isRecording()) {
+                serverSpan.updateName(mockSetting.getMethod().name() + ' ' + mockSetting.getUri());
+                serverSpan.setAttribute("http.route", mockSetting.getUri());
+            }
+
+            ResponseEntity<?> mockResponse = serve(settingService, matchMockSetting, request, response, stats);
+            // Raw and streamed responses are written directly and carry their status on the servlet response.
+            int status = mockResponse != null ? mockResponse.getStatusCode().value() : response.getStatus();
+            metrics.recordRequest(settingService.getRouteMeters(mockSetting), status);
+            serverSpan.setAttribute("http.response.status_code", status);
+            journal.record(request.getMethod(), path, mockSetting.getUri(), stats, status,
+                    System.nanoTime() - received);
+            return mockResponse;
+        } finally {
+            serverSpan.end();
+        }
+    }
+
+    /**
+     * Serves the mock response of a matched mock setting.
+     */
+    private ResponseEntity<?> serve(ApiMockSettingService settingService, ApiMockSettingMatchDto matchMockSetting,
+            HttpServletRequest request, HttpServletResponse response, ApiMockRequestStatsDto stats) {
+        ApiMockSettingDto mockSetting = matchMockSetting.getMockSetting();
+        delay(mockSetting);
+        try {
+            long started = System.nanoTime();
+            String filePath;
+            Span span = tracing.startSpan("mock.resolve");
+            try (Scope scope = tracing.activate(span)) {
+                filePath = settingService.getMockFilePathWithFallback(matchMockSetting);
+            } finally {
+                span.end();
+            }
+            recordStage(stats, Stage.RESOLVE, started);
+            stats.setFilePath(filePath);
+            if (logger.isDebugEnabled()) {
+                logger.debug("MATCHED_MOCK_SETTING [{}] {} - [MOCK] {}",
+                        mockSetting.getMethod(), mockSetting.getUri(), filePath);
+            }
+
+            if (filePath == null) {
+                return ApiResponseDto.error(HttpStatus.NOT_FOUND, "MOCK_FILE_NOT_FOUND");
+            }
+
+            ApiMockBundle bundle = settingService == apiMockSettingService ? bundleService.getBundle() : null;
+            if (!isEnveloped(mockSetting)) {
+                ApiMockBundleFixtureDto fixture = bundle == null ? null : bundleService.find(filePath, null);
+                if (bundle != null && fixture == null) {
+                    return fixtureNotPacked(mockSetting);
+                }
+                // Written straight to the response, nothing left for the message converters.
+                if (mockSetting.getCacheControl() != null) {
+                    response.setHeader(HttpHeaders.CACHE_CONTROL, mockSetting.getCacheControl());
                 }
+                started = System.nanoTime();
+                span = tracing.startSpan("mock.write");
+                try {
+                    if (fixture != null) {
+                        rawFileService.serve(bundle.getPath(), fixture.getBodyPosition(), fixture.getBody(),
+                                mockSetting.getContentType(), mockSetting.getStatus(), request, response);
+                    } else {
+                        rawFileService.serve(filePath, mockSetting.getContentType(), mockSetting.getStatus(),
+                                request, response);
+                    }
+                } finally {
+                    span.end();
+                }
+                recordStage(stats, Stage.WRITE, started);
+                return null;
+            }
 
-                String content = Files.readString(Path.of(filePath),
-                        Charset.forName(matchMockSetting.getMockSetting().getCharset()));
-                Object parsedContent = objectMapper.readValue(content, Object.class);
+            Map<String, String> pageErrors = new LinkedHashMap<>();
+            PageableRequestDto pageable = pageable(request, pageErrors);
+            if (!pageErrors.isEmpty()) {
+                return ApiResponseDto.status(HttpStatus.BAD_REQUEST).code("HBZE000001I").body(pageErrors).build();
+            }
 
-                MetadataDto metadata = null;
+            String charset = mockSetting.getCharset();
+            String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
 
-                if (parsedContent instanceof List<?> dataList) {
-                    int totalItems = dataList.size();
-                    metadata = new MetadataDto(1, 1, totalItems);
+            if (bundle != null) {
+                ApiMockBundleFixtureDto fixture = bundleService.find(filePath, charset);
+                if (fixture == null) {
+                    return fixtureNotPacked(mockSetting);
                 }
+                return serveBundled(request, response, mockSetting, bundle, fixture, pageable, acceptEncoding,
+                        stats);
+            }
 
-                logger.info("RETURNING_MOCK_RESPONSE [{}] {} - {} - [MOCK] {}",
-                        matchMockSetting.getMockSetting().getMethod(),
-                        matchMockSetting.getMockSetting().getUri(), matchMockSetting.getMockSetting().getStatus(),
-                        filePath);
+            ApiMockStreamIndexDto streamIndex = streamingService.getIndex(filePath, charset);
+            if (streamIndex != null) {
+                // Too large for the response cache: written straight to the response.
+                stream(request, response, mockSetting, filePath, streamIndex, pageable, stats);
+                return null;
+            }
 
-                responseDto.setData(parsedContent);
-                responseDto.body(parsedContent);
-                responseDto.metadata(metadata);
+            if (isConditional(request, mockSetting)) {
+                // Answered from the validator index, without touching the fixture.
+                ApiMockResponseValidatorDto validator = responseCache.getValidator(filePath, charset);
+                if (validator != null) {
+                    PageableRequestDto page = validator.isList() ? pageable : null;
+                    boolean variants = page == null && (validator.isGzip() || validator.isDeflate());
+                    String encoding = variants
+                            ? compressionService.negotiate(validator.isGzip(), validator.isDeflate(),
+                                    acceptEncoding)
+                            : null;
+                    String eTag = eTag(validator.getContentHash(), mockSetting.getStatus(), page, encoding);
+                    if (new ServletWebRequest(request, response).checkNotModified(eTag,
+                            validator.getLastModified())) {
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("RETURNING_NOT_MODIFIED [{}] {} - [MOCK] {}",
+                                    mockSetting.getMethod(), mockSetting.getUri(), filePath);
+                        }
+                        return cacheHeaders(ResponseEntity.status(HttpStatus.NOT_MODIFIED), mockSetting,
+                                variants).build();
+                    }
+                }
+            }
+
+            started = System.nanoTime();
+            ApiMockCachedResponseDto cachedResponse;
+            span = tracing.startSpan("mock.read");
+            try (Scope scope = tracing.activate(span)) {
+                cachedResponse = responseCache.get(filePath, charset,
+                        attributes -> load(filePath, charset, mockSetting.getStatus(), attributes, stats));
+            } finally {
+                span.end();
+            }
+            recordStage(stats, Stage.READ, started);
 
-                return responseDto.build();
-            } catch (IOException e) {
-                logger.error("FAILED_TO_READ_MOCK_FILE", e);
-                return ApiResponseDto.error(HttpStatus.NOT_FOUND, "FAILED_TO_READ_MOCK_FILE [MOCK] " +
-                        matchMockSetting.getMockSetting().getFilePath());
+            if (logger.isDebugEnabled()) {
+                logger.debug("RETURNING_MOCK_RESPONSE [{}] {} - {} - [MOCK] {}",
+                        mockSetting.getMethod(), mockSetting.getUri(), mockSetting.getStatus(), filePath);
             }
+
+            // Pages are sliced from the cached list. A fixture shared by routes with
+            // other statuses is re-wrapped. Both are served as identity bytes only.
+            PageableRequestDto page = cachedResponse.getItemEnds() != null ? pageable : null;
+            boolean rewrapped = page == null && cachedResponse.getStatus() != mockSetting.getStatus();
+            boolean variants = page == null && !rewrapped && compressionService.isCompressed(cachedResponse);
+            String encoding = variants ? compressionService.negotiate(cachedResponse, acceptEncoding) : null;
+
+            started = System.nanoTime();
+            span = tracing.startSpan("mock.write");
+            byte[] body;
+            if (page != null) {
+                body = envelopeService.page(cachedResponse, mockSetting.getStatus(), page);
+            } else if (rewrapped) {
+                body = envelopeService.rewrap(cachedResponse, mockSetting.getStatus());
+            } else if (encoding == null) {
+                body = cachedResponse.getBody();
+            } else {
+                body = ApiMockCompressionService.GZIP.equals(encoding) ? cachedResponse.getGzipBody()
+                        : cachedResponse.getDeflateBody();
+            }
+
+            ResponseEntity.BodyBuilder builder = cacheHeaders(ResponseEntity.status(mockSetting.getStatus()),
+                    mockSetting, variants)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .eTag(eTag(cachedResponse.getContentHash(), mockSetting.getStatus(), page, encoding))
+                    .lastModified(cachedResponse.getLastModified());
+            if (encoding != null) {
+                builder.header(HttpHeaders.CONTENT_ENCODING, encoding);
+            }
+            span.end();
+            recordStage(stats, Stage.WRITE, started);
+
+            return builder.body(body);
+        } catch (IOException e) {
+            logger.error("FAILED_TO_READ_MOCK_FILE", e);
+            Span.current().recordException(e).setStatus(StatusCode.ERROR);
+            return ApiResponseDto.error(HttpStatus.NOT_FOUND, "FAILED_TO_READ_MOCK_FILE [MOCK] " +
+                    mockSetting.getFilePath());
+        }
+    }
+
+    /**
+     * Serves an enveloped fixture from the mock bundle. The packed envelope and
+     * its encoded variants are written straight from the mapped bundle; pages
+     * and re-wrapped statuses are built from a heap copy like cached entries.
+     * Headers and ETags are the same as those of a fixture read from disk.
+     */
+    private ResponseEntity<?> serveBundled(HttpServletRequest request, HttpServletResponse response,
+            ApiMockSettingDto mockSetting, ApiMockBundle bundle, ApiMockBundleFixtureDto fixture,
+            PageableRequestDto pageable, String acceptEncoding, ApiMockRequestStatsDto stats) throws IOException {
+        PageableRequestDto page = fixture.getItemEnds() != null ? pageable : null;
+        boolean rewrapped = page == null && fixture.getStatus() != mockSetting.getStatus();
+        boolean gzip = fixture.getGzipBody() != null;
+        boolean deflate = fixture.getDeflateBody() != null;
+        boolean variants = page == null && !rewrapped && (gzip || deflate);
+        String encoding = variants ? compressionService.negotiate(gzip, deflate, acceptEncoding) : null;
+        String eTag = eTag(fixture.getContentHash(), mockSetting.getStatus(), page, encoding);
+
+        if (isConditional(request, mockSetting) && new ServletWebRequest(request, response)
+                .checkNotModified(eTag, fixture.getLastModified())) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("RETURNING_NOT_MODIFIED [{}] {} - [MOCK] {}",
+                        mockSetting.getMethod(), mockSetting.getUri(), fixture.getPath());
+            }
+            return cacheHeaders(ResponseEntity.status(HttpStatus.NOT_MODIFIED), mockSetting, variants).build();
         }
 
-        return ApiResponseDto.error(HttpStatus.NOT_FOUND, "NO_MOCK_SETTING_FOUND");
+        if (logger.isDebugEnabled()) {
+            logger.debug("RETURNING_BUNDLED_MOCK_RESPONSE [{}] {} - {} - [MOCK] {}",
+                    mockSetting.getMethod(), mockSetting.getUri(), mockSetting.getStatus(), fixture.getPath());
+        }
+
+        long started = System.nanoTime();
+        Span span = tracing.startSpan("mock.write");
+        try {
+            if (page != null || rewrapped) {
+                ApiMockCachedResponseDto cachedResponse = bundleService.materialize(fixture);
+                byte[] body = page != null ? envelopeService.page(cachedResponse, mockSetting.getStatus(), page)
+                        : envelopeService.rewrap(cachedResponse, mockSetting.getStatus());
+                return cacheHeaders(ResponseEntity.status(mockSetting.getStatus()), mockSetting, false)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .eTag(eTag)
+                        .lastModified(fixture.getLastModified())
+                        .body(body);
+            }
+
+            // Written straight from the bundle, nothing left for the message converters.
+            response.setStatus(mockSetting.getStatus().value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            if (variants) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+            if (mockSetting.getCacheControl() != null) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, mockSetting.getCacheControl());
+            }
+            response.setHeader(HttpHeaders.ETAG, eTag);
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, fixture.getLastModified());
+            if (encoding != null) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+            }
+            rawFileService.write(bundle.getPath(), ApiMockBundleService.position(fixture, encoding),
+                    ApiMockBundleService.body(fixture, encoding), request, response);
+            return null;
+        } finally {
+            span.end();
+            recordStage(stats, Stage.WRITE, started);
+        }
+    }
+
+    /**
+     * Answers for a fixture missing from the mock bundle the way a fixture
+     * missing from the mock folder is answered.
+     */
+    private static ResponseEntity<?> fixtureNotPacked(ApiMockSettingDto mockSetting) {
+        return ApiResponseDto.error(HttpStatus.NOT_FOUND, "FAILED_TO_READ_MOCK_FILE [MOCK] " +
+                mockSetting.getFilePath());
+    }
+
+    /**
+     * Streams a fixture that is too large to be held in memory into the
+     * response, honoring conditional requests and pagination like the
+     * in-memory path does.
+     */
+    private void stream(HttpServletRequest request, HttpServletResponse response, ApiMockSettingDto mockSetting,
+            String filePath, ApiMockStreamIndexDto streamIndex, PageableRequestDto pageable,
+            ApiMockRequestStatsDto stats) throws IOException {
+        PageableRequestDto page = streamIndex.getTotalItems() >= 0 ? pageable : null;
+        String eTag = eTag(streamIndex.getContentHash(), mockSetting.getStatus(), page, null);
+        if (mockSetting.getCacheControl() != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, mockSetting.getCacheControl());
+        }
+
+        if (isConditional(request, mockSetting) && new ServletWebRequest(request, response)
+                .checkNotModified(eTag, streamIndex.getLastModified())) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("RETURNING_NOT_MODIFIED [{}] {} - [MOCK] {}",
+                        mockSetting.getMethod(), mockSetting.getUri(), filePath);
+            }
+            return;
+        }
+
+        response.setStatus(mockSetting.getStatus().value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, streamIndex.getLastModified());
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("STREAMING_MOCK_RESPONSE [{}] {} - {} - [MOCK] {}",
+                    mockSetting.getMethod(), mockSetting.getUri(), mockSetting.getStatus(), filePath);
+        }
+
+        if (HttpMethod.HEAD.matches(request.getMethod())) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        Span span = tracing.startSpan("mock.write");
+        try {
+            streamingService.write(streamIndex, filePath, mockSetting.getCharset(), mockSetting.getStatus(), page,
+                    response.getOutputStream());
+        } finally {
+            span.end();
+        }
+        recordStage(stats, Stage.WRITE, started);
+    }
+
+    /**
+     * Loads a fixture into a cache entry with its encoded variants, on a cache
+     * miss.
+     */
+    private ApiMockCachedResponseDto load(String filePath, String charset, HttpStatus status,
+            BasicFileAttributes attributes, ApiMockRequestStatsDto stats) throws IOException {
+        long started = System.nanoTime();
+        Span span = tracing.startSpan("mock.parse");
+        try {
+            ApiMockCachedResponseDto cachedResponse = compressionService.compress(
+                    envelopeService.load(filePath, charset, status, attributes));
+            recordStage(stats, Stage.PARSE, started);
+            return cachedResponse;
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * Records the time spent in a stage since it started, for the metrics and
+     * the request journal.
+     */
+    private void recordStage(ApiMockRequestStatsDto stats, Stage stage, long started) {
+        long nanos = System.nanoTime() - started;
+        stats.getStageNanos()[stage.ordinal()] += nanos;
+        metrics.recordStage(stage, nanos);
+    }
+
+    /**
+     * Whether a request is a conditional GET or HEAD that may be answered with
+     * {@code 304 Not Modified}, which only replaces a {@code 200 OK}.
+     */
+    private static boolean isConditional(HttpServletRequest request, ApiMockSettingDto mockSetting) {
+        return mockSetting.getStatus() == HttpStatus.OK
+                && (HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod()))
+                && (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                        || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null);
+    }
+
+    /**
+     * Builds the strong ETag of a response representation from the content
+     * hash of the fixture data, the envelope status, the page and the content
+     * coding, so that every distinct body gets a distinct tag whichever status
+     * the cache entry was built for.
+     */
+    private static String eTag(String contentHash, HttpStatus status, PageableRequestDto page, String encoding) {
+        StringBuilder eTag = new StringBuilder(48).append('"').append(contentHash);
+        if (status != HttpStatus.OK) {
+            eTag.append('-').append(status.value());
+        }
+        if (page != null) {
+            eTag.append("-p").append(page.getPageIndex()).append('.').append(page.getPageSize());
+        }
+        if (encoding != null) {
+            eTag.append('-').append(encoding);
+        }
+        return eTag.append('"').toString();
+    }
+
+    /**
+     * Reads the {@code page_index} and {@code page_size} query parameters,
+     * validated like {@link PageableRequestDto} is on regular controllers.
+     * Lists are only paginated when the caller asks for it, so a missing
+     * parameter takes its default only if the other one is present.
+     *
+     * @param request The HTTP request
+     * @param errors  Receives the validation error code of each invalid
+     *                parameter
+     * @return The requested page, or null if the request has no pagination
+     *         parameters or they are invalid
+     */
+    private PageableRequestDto pageable(HttpServletRequest request, Map<String, String> errors) {
+        String pageIndex = request.getParameter(PAGE_INDEX);
+        String pageSize = request.getParameter(PAGE_SIZE);
+        if (pageIndex == null && pageSize == null) {
+            return null;
+        }
+
+        PageableRequestDto pageable = new PageableRequestDto();
+        if (pageIndex != null) {
+            pageable.setPageIndex(integer(pageIndex, PAGE_INDEX, errors));
+        }
+        if (pageSize != null) {
+            pageable.setPageSize(integer(pageSize, PAGE_SIZE, errors));
+        }
+        for (ConstraintViolation<PageableRequestDto> violation : validator.validate(pageable)) {
+            String field = "pageIndex".equals(violation.getPropertyPath().toString()) ? PAGE_INDEX : PAGE_SIZE;
+            errors.putIfAbsent(field, violation.getMessage());
+        }
+
+        return errors.isEmpty() ? pageable : null;
+    }
+
+    private static Integer integer(String value, String name, Map<String, String> errors) {
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            errors.put(name, "HBZE100001I");
+            return 1;
+        }
+    }
+
+    /**
+     * Adds the caching headers shared by full and {@code 304} responses.
+     */
+    private static ResponseEntity.BodyBuilder cacheHeaders(ResponseEntity.BodyBuilder builder,
+            ApiMockSettingDto mockSetting, boolean variants) {
+        if (variants) {
+            builder.varyBy(HttpHeaders.ACCEPT_ENCODING);
+        }
+        if (mockSetting.getCacheControl() != null) {
+            builder.header(HttpHeaders.CACHE_CONTROL, mockSetting.getCacheControl());
+        }
+        return builder;
+    }
+
+    /**
+     * Whether a mock setting is served as JSON wrapped in the response envelope,
+     * as opposed to passed through as the raw fixture bytes.
+     */
+    static boolean isEnveloped(ApiMockSettingDto mockSetting) {
+        if (Boolean.TRUE.equals(mockSetting.getRaw())) {
+            return false;
+        }
+        String contentType = mockSetting.getContentType();
+        return MediaType.APPLICATION_JSON_VALUE.equals(contentType)
+                || MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(contentType));
+    }
+
+    /**
+     * Simulates upstream latency for a mock setting. Requests run on virtual
+     * threads (spring.threads.virtual.enabled), so sleeping unmounts the
+     * request from its carrier thread instead of holding a Tomcat worker.
+     */
+    private void delay(ApiMockSettingDto mockSetting) {
+        long delayMs = mockSetting.getDelayMs();
+        if (delayMs <= 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
 }
@@ -0,0 +1,194 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.DigestUtils;
+
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockSettingDto;
+
+import jakarta.validation.Validation;
+
+/**
+ * Compiles a mock settings file into the binary route table loaded at boot by
+ * {@link ApiMockSettingService} instead of parsing and validating the CSV.
+ *
+ * <p>
+ * The compiled file records the MD5 hash of the CSV it was compiled from and
+ * is ignored unless the CSV still has that hash, so a settings file edited
+ * after the build is parsed as usual. Run at build time with
+ * {@code java -cp <app jar> com.haibazo.bff.mock.webapi.service.ApiMockSettingCompiler <csv> <output>}.
+ * </p>
+ */
+public final class ApiMockSettingCompiler {
+
+    private static final int MAGIC = 0x48424d52;
+
+    private static final int FORMAT_VERSION = 5;
+
+    private ApiMockSettingCompiler() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: ApiMockSettingCompiler <settings csv> <compiled output>");
+            System.exit(2);
+        }
+
+        Path settingFile = Path.of(args[0]);
+        Path compiledFile = Path.of(args[1]);
+
+        List<ApiMockSettingDto> mockSettings = ApiMockSettingService.parse(settingFile,
+                Validation.buildDefaultValidatorFactory().getValidator());
+
+        write(mockSettings, hash(settingFile), compiledFile);
+        System.out.println("MOCK_SETTING_COMPILED: " + mockSettings.size() + " settings from [" + settingFile
+                + "] to [" + compiledFile + "]");
+    }
+
+    /**
+     * Computes the hash identifying the settings file a route table was
+     * compiled from.
+     *
+     * @param settingFile The settings file
+     * @return The MD5 hash of the file content
+     * @throws IOException If the file cannot be read
+     */
+    static String hash(Path settingFile) throws IOException {
+        return DigestUtils.md5DigestAsHex(Files.readAllBytes(settingFile));
+    }
+
+    /**
+     * Writes a compiled route table, replacing the file atomically.
+     *
+     * @param mockSettings The parsed and validated settings
+     * @param sourceHash   The hash of the settings file they were parsed from
+     * @param compiledFile The compiled file
+     * @throws IOException If the file cannot be written
+     */
+    static void write(List<ApiMockSettingDto> mockSettings, String sourceHash, Path compiledFile)
+            throws IOException {
+        Path directory = compiledFile.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path tempFile = Files.createTempFile(directory, ".routes-", ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                output.writeUTF(sourceHash);
+                writeSettings(output, mockSettings);
+            }
+            Files.move(tempFile, compiledFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Reads a compiled route table.
+     *
+     * @param compiledFile The compiled file
+     * @param sourceHash   The hash of the current settings file
+     * @return The settings, or null if the file was compiled from another
+     *         version of the settings file or by another format version
+     * @throws IOException If the file cannot be read
+     */
+    static List<ApiMockSettingDto> read(Path compiledFile, String sourceHash) throws IOException {
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(compiledFile)))) {
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION
+                    || !input.readUTF().equals(sourceHash)) {
+                return null;
+            }
+
+            return readSettings(input);
+        }
+    }
+
+    /**
+     * Writes the binary form of a route table, shared with the mock bundle.
+     *
+     * @param output       The stream to write to
+     * @param mockSettings The settings in file order
+     * @throws IOException If the stream cannot be written
+     */
+    static void writeSettings(DataOutputStream output, List<ApiMockSettingDto> mockSettings) throws IOException {
+        output.writeInt(mockSettings.size());
+        for (ApiMockSettingDto mockSetting : mockSettings) {
+            output.writeUTF(mockSetting.getUri());
+            output.writeUTF(mockSetting.getFilePath());
+            output.writeUTF(mockSetting.getCharset());
+            output.writeUTF(mockSetting.getMethod().name());
+            output.writeShort(mockSetting.getStatus().value());
+            output.writeLong(mockSetting.getDelayMs());
+            output.writeBoolean(Boolean.TRUE.equals(mockSetting.getValidateRequest()));
+            output.writeUTF(mockSetting.getContentType());
+            writeNullable(output, mockSetting.getCacheControl());
+            output.writeBoolean(Boolean.TRUE.equals(mockSetting.getRaw()));
+            writeNullable(output, mockSetting.getRequestBody());
+            writeNullable(output, mockSetting.getRequestQuery());
+            writeNullable(output, mockSetting.getRequestHeaders());
+            writeNullable(output, mockSetting.getScenario());
+            writeNullable(output, mockSetting.getRequiredState());
+            writeNullable(output, mockSetting.getNewState());
+        }
+    }
+
+    /**
+     * Reads the binary form of a route table written by
+     * {@link #writeSettings(DataOutputStream, List)}.
+     *
+     * @param input The stream to read from
+     * @return The settings in file order
+     * @throws IOException If the stream cannot be read
+     */
+    static List<ApiMockSettingDto> readSettings(DataInputStream input) throws IOException {
+        int count = input.readInt();
+        List<ApiMockSettingDto> mockSettings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            mockSettings.add(ApiMockSettingDto.builder()
+                    .uri(input.readUTF())
+                    .filePath(input.readUTF())
+                    .charset(input.readUTF())
+                    .method(HttpMethod.valueOf(input.readUTF()))
+                    .status(HttpStatus.valueOf(input.readShort()))
+                    .delayMs(input.readLong())
+                    .validateRequest(input.readBoolean())
+                    .contentType(input.readUTF())
+                    .cacheControl(readNullable(input))
+                    .raw(input.readBoolean())
+                    .requestBody(readNullable(input))
+                    .requestQuery(readNullable(input))
+                    .requestHeaders(readNullable(input))
+                    .scenario(readNullable(input))
+                    .requiredState(readNullable(input))
+                    .newState(readNullable(input))
+                    .build());
+        }
+
+        return mockSettings;
+    }
+
+    static void writeNullable(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    static String readNullable(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+}
@@ -1,33 +1,68 @@
 package com.haibazo.bff.mock.webapi.service;
 
-import java.io.FileReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.util.AntPathMatcher;
 
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockFileTemplateDto;
 import com.haibazo.bff.mock.webapi.dto.internal.ApiMockSettingMatchDto;
 import com.haibazo.bff.mock.webapi.dto.internal.ApiMockSettingDto;
+import com.haibazo.bff.mock.webapi.metrics.ApiMockMetrics;
+import com.haibazo.bff.mock.webapi.metrics.ApiMockMetrics.RouteMeters;
 
 import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvException;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 
 /**
  * Service class responsible for managing API mock settings and configurations.
  * This service handles loading and processing mock API responses based on
  * configuration files.
+ *
+ * <p>
+ * The settings file is reloaded when it changes, or on demand. A reload parses
+ * and validates the whole file and compiles a new route table before
+ * publishing it with a single volatile write, so requests never wait for a
+ * reload and never see a partially built table. An invalid file is rejected
+ * and the current table is kept.
+ * </p>
+ *
+ * <p>
+ * When a route table compiled at build time by {@link ApiMockSettingCompiler}
+ * is configured and matches the settings file, it is loaded instead of parsing
+ * and validating the CSV.
+ * </p>
+ *
+ * <p>
+ * With the {@code bundle} storage, the route table packed into the mock
+ * bundle is loaded instead and never reloaded.
+ * </p>
  */
 @Service
 public class ApiMockSettingService {
@@ -37,56 +72,216 @@ public class ApiMockSettingService {
      */
     private static final Logger logger = LoggerFactory.getLogger(ApiMockSettingService.class);
 
-    @Value("${haibazo.bff.mock.storage}")
-    private String mockStorage;
+    private static final Set<HttpMethod> HTTP_METHODS = Set.of(HttpMethod.values());
+
+    private final String mockStorage;
 
     /**
      * File path for the mock settings configuration file.
      * Configured via application properties.
      */
-    @Value("${haibazo.bff.mock.setting-file-path}")
-    private String mockSettingFileName;
+    private final String mockSettingFileName;
+
+    /**
+     * Whether changes to the settings file are picked up without a restart.
+     */
+    private final boolean reloadEnabled;
+
+    /**
+     * Route table compiled from the settings file at build time, relative to
+     * the mock folder. Disabled if blank.
+     */
+    private final String compiledSettingFileName;
+
+    private final ApiMockLocalStorageService localStorageService;
+
+    private final ApiMockS3Service s3Service;
+
+    private final ApiMockFileIndex fileIndex;
+
+    private final ApiMockBundleService bundleService;
+
+    private final Validator validator;
 
-    @Autowired
-    private ApiMockLocalStorageService localStorageService;
+    private final ApiMockMetrics metrics;
 
-    @Autowired
-    private ApiMockS3Service s3Service;
+    /**
+     * Currently published settings and their compiled route index.
+     */
+    private volatile RouteTable routeTable = new RouteTable(List.of(), new ApiMockRouteIndex(List.of()), Map.of(),
+            Map.of());
 
     /**
-     * List to store mock settings loaded from the configuration file.
+     * Version of the settings file seen by the last reload attempt, successful
+     * or not, so an invalid file is not parsed again until it changes.
      */
-    private List<ApiMockSettingDto> mockSettings = new ArrayList<>();
+    private FileVersion attemptedVersion;
+
+    private String lastReloadError;
+
+    public ApiMockSettingService(@Value("${haibazo.bff.mock.storage}") String mockStorage,
+            @Value("${haibazo.bff.mock.setting-file-path}") String mockSettingFileName,
+            @Value("${haibazo.bff.mock.setting.reload-enabled:true}") boolean reloadEnabled,
+            @Value("${haibazo.bff.mock.setting.compiled-file-path:}") String compiledSettingFileName,
+            ApiMockLocalStorageService localStorageService, ApiMockS3Service s3Service, ApiMockFileIndex fileIndex,
+            ApiMockBundleService bundleService, Validator validator, ApiMockMetrics metrics) {
+        this.mockStorage = mockStorage;
+        this.mockSettingFileName = mockSettingFileName;
+        this.reloadEnabled = reloadEnabled;
+        this.compiledSettingFileName = compiledSettingFileName;
+        this.localStorageService = localStorageService;
+        this.s3Service = s3Service;
+        this.fileIndex = fileIndex;
+        this.bundleService = bundleService;
+        this.validator = validator;
+        this.metrics = metrics;
+    }
 
     /**
      * Initializes the service by loading mock settings from a CSV file.
      * Called automatically after bean construction.
-     * The CSV file should have the following columns:
-     * URI, FilePath, Charset, HTTP Method, Status Code
+     * The CSV file should have a header row naming the following columns:
+     * URI, File, Charset, Method, Status, and optionally DelayMs, ContentType,
+     * CacheControl, Raw, ValidateRequest, RequestQuery, RequestHeaders,
+     * RequestBody, Scenario, RequiredState and NewState. Rows starting with
+     * {@code #} are ignored. Raw sends a JSON fixture as it is instead of
+     * wrapping it in the response envelope.
+     *
+     * <p>
+     * RequestQuery and RequestHeaders hold the values of query parameters and
+     * headers, see {@link ApiMockRequestKey}, and RequestBody holds predicates
+     * on the request body, see {@link ApiMockBodyPredicate}, all separated by
+     * {@code ;}. They are enabled by ValidateRequest, which defaults to true
+     * when any of them is set, and select the row among the rows with the
+     * same method and URI; the first of those rows without conditions answers
+     * when none of them holds.
+     * </p>
+     *
+     * <p>
+     * Scenario names a per-session state machine, see
+     * {@link ApiMockScenarioService}: a row with a RequiredState is only
+     * selected while its scenario is in that state, and a row with a NewState
+     * moves its scenario to that state when it answers.
+     * </p>
      */
     @PostConstruct
     public void initialize() {
-        try (CSVReader reader = new CSVReader(
-                new FileReader(getMockFilePath(mockSettingFileName)))) {
-            reader.readNext();
-            String[] line;
-            while ((line = reader.readNext()) != null) {
-                mockSettings.add(ApiMockSettingDto.builder()
-                        .uri(line[0])
-                        .filePath(line[1])
-                        .charset(line[2])
-                        .method(HttpMethod.valueOf(line[3]))
-                        .status(HttpStatus.resolve(Integer.parseInt(line[4])))
-                        .build());
-            }
+        try {
+            reload();
         } catch (Exception e) {
             logger.error("FAILED_TO_GET_MOCK_SETTING", e);
         }
     }
 
+    /**
+     * Reloads the settings file if it changed since the last attempt.
+     */
+    @Scheduled(initialDelayString = "${haibazo.bff.mock.setting.reload-interval-ms:2000}",
+            fixedDelayString = "${haibazo.bff.mock.setting.reload-interval-ms:2000}")
+    public void reloadIfChanged() {
+        if (!reloadEnabled || isBundled()) {
+            return;
+        }
+
+        try {
+            FileVersion version = FileVersion.of(fetchSettingFile());
+            synchronized (this) {
+                if (version.equals(attemptedVersion)) {
+                    return;
+                }
+            }
+            reload();
+            lastReloadError = null;
+        } catch (Exception e) {
+            // Log a failure once rather than on every poll until the file is fixed.
+            if (!String.valueOf(e.getMessage()).equals(lastReloadError)) {
+                logger.error("FAILED_TO_RELOAD_MOCK_SETTING: {}", e.getMessage());
+                lastReloadError = String.valueOf(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Parses and validates the settings file and publishes it as the new route
+     * table. The file index is rescanned first, so fixtures added together
+     * with their rows are found as soon as the rows are.
+     *
+     * @return The number of loaded settings
+     * @throws IOException              If the settings file cannot be read
+     * @throws IllegalArgumentException If the settings file is invalid
+     */
+    public synchronized int reload() throws IOException {
+        if (isBundled()) {
+            return publish(bundleService.getMockSettings(), bundleService.getBundle().getPath());
+        }
+
+        Path settingFile = fetchSettingFile();
+        attemptedVersion = FileVersion.of(settingFile);
+
+        Path compiledFile = compiledSettingFile();
+        List<ApiMockSettingDto> mockSettings = compiledFile == null ? null
+                : readCompiledSettings(compiledFile, settingFile);
+        Path source = compiledFile;
+        if (mockSettings == null) {
+            mockSettings = List.copyOf(parseSettings(settingFile));
+            source = settingFile;
+        }
+
+        fileIndex.rescan();
+        return publish(mockSettings, source);
+    }
+
+    private int publish(List<ApiMockSettingDto> mockSettings, Path source) {
+        for (ApiMockSettingDto mockSetting : mockSettings) {
+            mockSetting.setFileTemplate(compileFileTemplate(mockSetting.getFilePath()));
+        }
+
+        routeTable = new RouteTable(mockSettings, new ApiMockRouteIndex(mockSettings), variantIndexes(mockSettings),
+                metrics.publishRoutes(this, mockSettings));
+        logger.info("MOCK_SETTING_LOADED: {} settings from [{}]", mockSettings.size(), source);
+
+        return mockSettings.size();
+    }
+
+    /**
+     * Compiles the variant index of every route that has settings selected by
+     * their query parameters, headers, request body or scenario state, keyed
+     * by the first setting of the route, which is the one the route index
+     * finds.
+     */
+    private static Map<ApiMockSettingDto, ApiMockVariantIndex> variantIndexes(List<ApiMockSettingDto> mockSettings) {
+        Map<String, List<ApiMockSettingDto>> routes = new LinkedHashMap<>();
+        for (ApiMockSettingDto mockSetting : mockSettings) {
+            routes.computeIfAbsent(mockSetting.getMethod() + " " + mockSetting.getUri(), key -> new ArrayList<>())
+                    .add(mockSetting);
+        }
+
+        Map<ApiMockSettingDto, ApiMockVariantIndex> variantIndexes = new IdentityHashMap<>();
+        for (List<ApiMockSettingDto> route : routes.values()) {
+            if (route.stream().anyMatch(ApiMockVariantIndex::isVariant)) {
+                variantIndexes.put(route.get(0), new ApiMockVariantIndex(route));
+            }
+        }
+        return variantIndexes;
+    }
+
+    private boolean isBundled() {
+        return mockStorage.equals("bundle") && bundleService.getBundle() != null;
+    }
+
+    /**
+     * Returns the currently published settings in file order.
+     *
+     * @return An immutable list of settings
+     */
+    public List<ApiMockSettingDto> getMockSettings() {
+        return routeTable.mockSettings;
+    }
+
     /**
      * Finds a matching mock configuration for a given request path and HTTP method.
-     * Uses Spring's AntPathMatcher for URI pattern matching.
+     * Uses the precompiled route index, which keeps the first-match-in-file-order
+     * semantics of Spring's AntPathMatcher.
      * 
      * @param path   The request path to match
      * @param method The HTTP method to match
@@ -94,83 +289,396 @@ public class ApiMockSettingService {
      *         if no match
      */
     public ApiMockSettingMatchDto findMatchingMock(String path, HttpMethod method) {
-        return mockSettings.stream()
-                .filter(mock -> mock.getMethod() == method)
-                .map(mock -> {
-                    AntPathMatcher matcher = new AntPathMatcher();
-                    if (matcher.match(mock.getUri(), path)) {
-                        Map<String, String> variables = matcher.extractUriTemplateVariables(mock.getUri(), path);
-                        return new ApiMockSettingMatchDto(mock, mock.getUri(), variables);
+        return routeTable.routeIndex.find(path, method);
+    }
+
+    /**
+     * Finds the mock configuration serving a request, selecting among the
+     * settings of the matched route by their query parameters, headers,
+     * request body predicates and scenario states.
+     *
+     * @param path    The request path to match
+     * @param method  The HTTP method to match
+     * @param content The request, whose body is only read if the matched route
+     *                has body predicates
+     * @return ApiMockSettingMatchDto containing the selected configuration, or
+     *         null if no route matches or none of its settings accepts the
+     *         request
+     */
+    public ApiMockSettingMatchDto findMatchingMock(String path, HttpMethod method, ApiMockRequestContent content) {
+        RouteTable table = routeTable;
+        ApiMockSettingMatchDto match = table.routeIndex.find(path, method);
+        ApiMockVariantIndex variantIndex = match == null ? null : table.variantIndexes.get(match.getMockSetting());
+        if (variantIndex == null) {
+            return match;
+        }
+
+        ApiMockSettingDto selected = variantIndex.select(content);
+        if (selected == null) {
+            return null;
+        }
+        match.setMockSetting(selected);
+        return match;
+    }
+
+    /**
+     * Returns the request counters of the route of a published setting.
+     *
+     * @param mockSetting The setting
+     * @return The counters, or null if the setting is no longer published
+     */
+    public RouteMeters getRouteMeters(ApiMockSettingDto mockSetting) {
+        return routeTable.routeMeters.get(mockSetting);
+    }
+
+    /**
+     * Creates the settings of another mock environment, read from its own
+     * settings file and storage. The route table is empty until it is first
+     * reloaded.
+     *
+     * @param mockStorage         The storage backend of the environment
+     * @param mockSettingFileName The settings file, relative to the environment
+     *                            folder
+     * @param localStorageService The local storage of the environment
+     * @param s3Service           The S3 storage of the environment
+     * @param fileIndex           The file index of the environment
+     * @return A settings service for that environment
+     */
+    ApiMockSettingService forEnvironment(String mockStorage, String mockSettingFileName,
+            ApiMockLocalStorageService localStorageService, ApiMockS3Service s3Service, ApiMockFileIndex fileIndex) {
+        return new ApiMockSettingService(mockStorage, mockSettingFileName, reloadEnabled, compiledSettingFileName,
+                localStorageService, s3Service, fileIndex, bundleService, validator, metrics);
+    }
+
+    /**
+     * Parses and validates a settings file without publishing it.
+     *
+     * @param settingFile The settings file
+     * @param validator   Validates every parsed setting
+     * @return An immutable list of settings in file order
+     * @throws IOException              If the settings file cannot be read
+     * @throws IllegalArgumentException If the settings file is invalid
+     */
+    static List<ApiMockSettingDto> parse(Path settingFile, Validator validator) throws IOException {
+        ApiMockSettingService service = new ApiMockSettingService("local", null, false, null, null, null, null, null,
+                validator, null);
+        return List.copyOf(service.parseSettings(settingFile));
+    }
+
+    private Path compiledSettingFile() {
+        if (compiledSettingFileName == null || compiledSettingFileName.isBlank()) {
+            return null;
+        }
+
+        Path compiledFile = Path.of(localStorageService.getMockFilePath(compiledSettingFileName));
+        return Files.exists(compiledFile) ? compiledFile : null;
+    }
+
+    /**
+     * Reads the compiled route table, or returns null if it is outdated or
+     * unreadable so the settings file is parsed instead.
+     */
+    private static List<ApiMockSettingDto> readCompiledSettings(Path compiledFile, Path settingFile) {
+        try {
+            List<ApiMockSettingDto> mockSettings = ApiMockSettingCompiler.read(compiledFile,
+                    ApiMockSettingCompiler.hash(settingFile));
+            if (mockSettings == null) {
+                logger.info("COMPILED_MOCK_SETTING_OUTDATED: [{}]", compiledFile);
+            }
+            return mockSettings == null ? null : List.copyOf(mockSettings);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("FAILED_TO_READ_COMPILED_MOCK_SETTING: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private List<ApiMockSettingDto> parseSettings(Path settingFile) throws IOException {
+        List<ApiMockSettingDto> mockSettings = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+
+        try (CSVReader reader = new CSVReader(Files.newBufferedReader(settingFile, StandardCharsets.UTF_8))) {
+            String[] header = reader.readNext();
+            if (header == null) {
+                throw new IllegalArgumentException("MOCK_SETTING_FILE_EMPTY");
+            }
+
+            Map<String, Integer> columns = new HashMap<>();
+            for (int i = 0; i < header.length; i++) {
+                columns.putIfAbsent(header[i].trim().toLowerCase(Locale.ROOT), i);
+            }
+            for (String column : List.of("uri", "file", "charset", "method", "status")) {
+                if (!columns.containsKey(column)) {
+                    errors.add("missing column " + column);
+                }
+            }
+            if (!errors.isEmpty()) {
+                throw new IllegalArgumentException("INVALID_MOCK_SETTING: " + String.join("; ", errors));
+            }
+
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                long lineNumber = reader.getLinesRead();
+                if (line.length == 0 || line[0].isBlank() && line.length == 1 || line[0].startsWith("#")) {
+                    continue;
+                }
+
+                try {
+                    ApiMockSettingDto mockSetting = parseSetting(line, columns);
+                    for (ConstraintViolation<ApiMockSettingDto> violation : validator.validate(mockSetting)) {
+                        errors.add("line " + lineNumber + ": " + violation.getPropertyPath() + " "
+                                + violation.getMessage());
                     }
-                    return null;
-                })
-                .filter(Objects::nonNull)
-                .findFirst()
-                .orElse(null);
+                    mockSettings.add(mockSetting);
+                } catch (IllegalArgumentException e) {
+                    errors.add("line " + lineNumber + ": " + e.getMessage());
+                }
+            }
+        } catch (CsvException e) {
+            errors.add("line " + e.getLineNumber() + ": " + e.getMessage());
+        }
+
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException("INVALID_MOCK_SETTING: " + String.join("; ", errors));
+        }
+
+        return mockSettings;
+    }
+
+    private ApiMockSettingDto parseSetting(String[] line, Map<String, Integer> columns) {
+        String method = column(line, columns, "method");
+        HttpMethod httpMethod = method == null ? null : HttpMethod.valueOf(method);
+        if (httpMethod != null && !HTTP_METHODS.contains(httpMethod)) {
+            throw new IllegalArgumentException("unknown method " + method);
+        }
+
+        String status = column(line, columns, "status");
+        HttpStatus httpStatus = null;
+        if (status != null) {
+            try {
+                httpStatus = HttpStatus.resolve(Integer.parseInt(status));
+            } catch (NumberFormatException e) {
+                // Reported as unknown status below.
+            }
+            if (httpStatus == null) {
+                throw new IllegalArgumentException("unknown status " + status);
+            }
+        }
+
+        String charset = column(line, columns, "charset");
+        if (charset != null && !Charset.isSupported(charset)) {
+            throw new IllegalArgumentException("unsupported charset " + charset);
+        }
+
+        String delayMs = column(line, columns, "delayms");
+        long delay = 0;
+        if (delayMs != null) {
+            try {
+                delay = Long.parseLong(delayMs);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("invalid delayMs " + delayMs);
+            }
+        }
+
+        String requestBody = column(line, columns, "requestbody");
+        if (requestBody != null) {
+            ApiMockBodyPredicate.compileAll(requestBody);
+        }
+
+        String requestQuery = column(line, columns, "requestquery");
+        String requestHeaders = column(line, columns, "requestheaders");
+        ApiMockRequestKey.compile(requestQuery, requestHeaders);
+
+        String scenario = column(line, columns, "scenario");
+        String requiredState = column(line, columns, "requiredstate");
+        String newState = column(line, columns, "newstate");
+        if (scenario == null && requiredState != null) {
+            throw new IllegalArgumentException("requiredState " + requiredState + " without scenario");
+        }
+        if (scenario == null && newState != null) {
+            throw new IllegalArgumentException("newState " + newState + " without scenario");
+        }
+
+        String validateRequest = column(line, columns, "validaterequest");
+        if (validateRequest != null && !validateRequest.equalsIgnoreCase("true")
+                && !validateRequest.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("invalid validateRequest " + validateRequest);
+        }
+
+        String raw = column(line, columns, "raw");
+        if (raw != null && !raw.equalsIgnoreCase("true") && !raw.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("invalid raw " + raw);
+        }
+
+        String contentType = column(line, columns, "contenttype");
+        if (contentType != null) {
+            try {
+                MediaType.parseMediaType(contentType);
+            } catch (InvalidMediaTypeException e) {
+                throw new IllegalArgumentException("invalid contentType " + contentType);
+            }
+        }
+
+        return ApiMockSettingDto.builder()
+                .uri(column(line, columns, "uri"))
+                .filePath(column(line, columns, "file"))
+                .charset(charset == null ? StandardCharsets.UTF_8.name() : charset)
+                .method(httpMethod)
+                .status(httpStatus)
+                .delayMs(delay)
+                .contentType(contentType == null ? MediaType.APPLICATION_JSON_VALUE : contentType)
+                .cacheControl(column(line, columns, "cachecontrol"))
+                .raw(Boolean.parseBoolean(raw))
+                .validateRequest(validateRequest == null
+                        ? requestBody != null || requestQuery != null || requestHeaders != null
+                        : Boolean.parseBoolean(validateRequest))
+                .requestBody(requestBody)
+                .requestQuery(requestQuery)
+                .requestHeaders(requestHeaders)
+                .scenario(scenario)
+                .requiredState(requiredState)
+                .newState(newState)
+                .build();
+    }
+
+    /**
+     * Returns the trimmed value of a column, or null if the row does not have
+     * the column or the value is blank.
+     */
+    private static String column(String[] line, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= line.length || line[index].isBlank()) {
+            return null;
+        }
+
+        return line[index].trim();
+    }
+
+    private Path fetchSettingFile() throws FileNotFoundException {
+        String localPath = localStorageService.getMockFilePath(mockSettingFileName);
+        boolean exists = mockStorage.equals("s3")
+                ? s3Service.getObjectBytes(mockSettingFileName, localPath)
+                : Files.exists(Path.of(localPath));
+        if (!exists) {
+            throw new FileNotFoundException(localPath);
+        }
+
+        return Path.of(localPath);
     }
 
     /**
      * Generates the complete mock file path, considering path variables for dynamic
      * responses.
-     * Supports fallback mechanism for dynamic mock responses.
+     * Supports fallback mechanism for dynamic mock responses: numeric parts of
+     * the file name are replaced by the path variable values in order, and if
+     * that file does not exist every numeric part is replaced by zero.
      * 
      * @param mockSetting The matched mock setting containing path variables
-     * @return The resolved file path for the mock response
+     * @return The resolved file path for the mock response, or null if neither
+     *         file exists
      */
     public String getMockFilePathWithFallback(ApiMockSettingMatchDto mockSetting) {
-        String filePath = mockSetting.getMockSetting().getFilePath();
-        String fileName = filePath.substring(0, filePath.lastIndexOf('.'));
-        String extension = filePath.substring(filePath.lastIndexOf('.'));
-        Map<String, String> pathVariables = mockSetting.getPathVariables();
+        ApiMockSettingDto setting = mockSetting.getMockSetting();
+        ApiMockFileTemplateDto template = setting.getFileTemplate();
+        if (template == null) {
+            template = compileFileTemplate(setting.getFilePath());
+            setting.setFileTemplate(template);
+        }
+
+        if (mockSetting.getPathVariables().isEmpty()) {
+            return getMockFilePath(setting.getFilePath(), template.getLocalPath());
+        }
 
-        if (pathVariables.isEmpty()) {
-            return getMockFilePath(filePath);
+        String primaryPath = renderFileTemplate(template.getLiterals(),
+                mockSetting.getPathVariables().values().iterator());
+        String primaryLocalPath = localStorageService.getMockFilePath(primaryPath);
+        if (exists(primaryPath, primaryLocalPath)) {
+            return getMockFilePath(primaryPath, primaryLocalPath);
         }
 
-        List<String> values = new ArrayList<>(pathVariables.values());
+        if (exists(template.getFallbackFilePath(), template.getFallbackLocalPath())) {
+            return getMockFilePath(template.getFallbackFilePath(), template.getFallbackLocalPath());
+        }
 
-        String[] parts = fileName.split("_");
-        List<String> resultParts = new ArrayList<>();
+        return null;
+    }
 
-        resultParts.add(parts[0]);
+    /**
+     * Splits a fixture file path into literal pieces and slots, one slot per
+     * numeric part of the underscore separated file name. The first part is
+     * never a slot.
+     */
+    private ApiMockFileTemplateDto compileFileTemplate(String filePath) {
+        int extensionIndex = filePath.lastIndexOf('.');
+        String fileName = extensionIndex < 0 ? filePath : filePath.substring(0, extensionIndex);
+        String extension = extensionIndex < 0 ? "" : filePath.substring(extensionIndex);
 
-        int valueIndex = 0;
+        String[] parts = fileName.split("_");
+        List<String> literals = new ArrayList<>();
+        StringBuilder literal = new StringBuilder(parts[0]);
         for (int i = 1; i < parts.length; i++) {
-            if (parts[i].matches("\\d+")) {
-                String value = valueIndex < values.size() ? values.get(valueIndex) : "0";
-                resultParts.add(value);
-                valueIndex++;
+            literal.append('_');
+            if (isNumber(parts[i])) {
+                literals.add(literal.toString());
+                literal.setLength(0);
             } else {
-                resultParts.add(parts[i]);
+                literal.append(parts[i]);
             }
         }
+        literals.add(literal.append(extension).toString());
+
+        String fallbackFilePath = renderFileTemplate(literals, null);
 
-        String primaryPath = String.join("_", resultParts) + extension;
-        if (Files.exists(Path.of(getMockFilePath(primaryPath)))) {
-            return getMockFilePath(primaryPath);
+        return ApiMockFileTemplateDto.builder()
+                .literals(List.copyOf(literals))
+                .fallbackFilePath(fallbackFilePath)
+                .fallbackLocalPath(localStorageService.getMockFilePath(fallbackFilePath))
+                .localPath(localStorageService.getMockFilePath(filePath))
+                .build();
+    }
+
+    /**
+     * Fills the slots of a template with the given values in order, using zero
+     * for slots without a value.
+     */
+    private static String renderFileTemplate(List<String> literals, Iterator<String> values) {
+        StringBuilder filePath = new StringBuilder(literals.get(0));
+        for (int i = 1; i < literals.size(); i++) {
+            filePath.append(values != null && values.hasNext() ? values.next() : "0").append(literals.get(i));
         }
 
-        resultParts = new ArrayList<>();
-        resultParts.add(parts[0]);
-        for (int i = 1; i < parts.length; i++) {
-            if (parts[i].matches("\\d+")) {
-                resultParts.add("0");
-            } else {
-                resultParts.add(parts[i]);
+        return filePath.toString();
+    }
+
+    private static boolean isNumber(String part) {
+        if (part.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < part.length(); i++) {
+            if (part.charAt(i) < '0' || part.charAt(i) > '9') {
+                return false;
             }
         }
+        return true;
+    }
+
+    private boolean exists(String path, String localPath) {
+        if (mockStorage.equals("s3")) {
+            return s3Service.getObjectBytes(path, localPath);
+        }
 
-        String fallbackPath = getMockFilePath(String.join("_", resultParts) + extension);
-        if (Files.exists(Path.of(fallbackPath))) {
-            return fallbackPath;
+        if (isBundled()) {
+            return bundleService.contains(localPath);
         }
 
-        return null;
+        return fileIndex.exists(localPath);
     }
 
     private String getMockFilePath(String path) {
-        String localPath = localStorageService.getMockFilePath(path);
-        logger.info("GETTING_MOCK_FILE [{}] - [{}]", mockStorage, localPath);
+        return getMockFilePath(path, localStorageService.getMockFilePath(path));
+    }
+
+    private String getMockFilePath(String path, String localPath) {
+        logger.debug("GETTING_MOCK_FILE [{}] - [{}]", mockStorage, localPath);
 
         if (mockStorage.equals("s3")) {
             s3Service.getObjectBytes(path, localPath);
@@ -179,4 +687,40 @@ public class ApiMockSettingService {
         return localPath;
     }
 
+    /**
+     * Settings and route index published together by a reload.
+     */
+    private static final class RouteTable {
+
+        private final List<ApiMockSettingDto> mockSettings;
+
+        private final ApiMockRouteIndex routeIndex;
+
+        private final Map<ApiMockSettingDto, ApiMockVariantIndex> variantIndexes;
+
+        private final Map<ApiMockSettingDto, RouteMeters> routeMeters;
+
+        RouteTable(List<ApiMockSettingDto> mockSettings, ApiMockRouteIndex routeIndex,
+                Map<ApiMockSettingDto, ApiMockVariantIndex> variantIndexes,
+                Map<ApiMockSettingDto, RouteMeters> routeMeters) {
+            this.mockSettings = mockSettings;
+            this.routeIndex = routeIndex;
+            this.variantIndexes = variantIndexes;
+            this.routeMeters = routeMeters;
+        }
+
+    }
+
+    /**
+     * Last modified time and size identifying a version of the settings file.
+     */
+    private record FileVersion(long lastModified, long size) {
+
+        static FileVersion of(Path path) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new FileVersion(attributes.lastModifiedTime().toMillis(), attributes.size());
+        }
+
+    }
+
 }
@@ -0,0 +1,298 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockStreamIndexDto;
+import com.haibazo.bff.mock.webapi.dto.request.PageableRequestDto;
+import com.haibazo.bff.mock.webapi.dto.response.MetadataDto;
+
+/**
+ * Serves fixtures that are too large to be held in memory by streaming them
+ * from the file into the response envelope.
+ *
+ * <p>
+ * A fixture is indexed once, in a single streaming pass that validates it,
+ * counts the items of a top-level array, records the byte offset of each item
+ * and digests the compacted output for the ETag. Responses are then copied
+ * token by token from a parser over the file to a generator over the response,
+ * and a page seeks straight to the offset of its first item, so the memory a
+ * request needs does not grow with the fixture size. Unlike the in-memory path,
+ * duplicate keys are copied as they are.
+ * </p>
+ */
+@Service
+public class ApiMockStreamingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiMockStreamingService.class);
+
+    private static final byte[] ARRAY_START = { '[' };
+
+    private static final byte[] EMPTY_ARRAY = { '[', ']' };
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApiMockEnvelopeService envelopeService;
+
+    @Value("${haibazo.bff.mock.stream.min-bytes:16777216}")
+    private long minBytes;
+
+    @Value("${haibazo.bff.mock.cache.revalidate-interval-ms:2000}")
+    private long revalidateIntervalMs;
+
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the stream index of a fixture that is large enough to be
+     * streamed, indexing it on first use or when the file changed.
+     *
+     * @param filePath The resolved fixture path
+     * @param charset  The charset the fixture is encoded with
+     * @return The index, or null if the fixture is small enough to be served
+     *         from memory
+     * @throws IOException If the fixture cannot be read or is not valid JSON
+     */
+    public ApiMockStreamIndexDto getIndex(String filePath, String charset) throws IOException {
+        String key = filePath + '|' + charset;
+        long now = System.nanoTime();
+        Slot slot = slots.get(key);
+        if (slot != null && now - slot.validatedAt < TimeUnit.MILLISECONDS.toNanos(revalidateIntervalMs)) {
+            return slot.index;
+        }
+
+        BasicFileAttributes attributes = Files.readAttributes(Path.of(filePath), BasicFileAttributes.class);
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        if (slot != null && slot.lastModified == lastModified && slot.size == attributes.size()) {
+            slot.validatedAt = now;
+            return slot.index;
+        }
+
+        ApiMockStreamIndexDto index = attributes.size() < minBytes ? null
+                : index(Path.of(filePath), Charset.forName(charset), attributes);
+        slots.put(key, new Slot(index, lastModified, attributes.size(), now));
+        return index;
+    }
+
+    /**
+     * Streams a fixture, or one page of a list fixture, into a response
+     * envelope.
+     *
+     * @param index    The stream index of the fixture
+     * @param filePath The resolved fixture path
+     * @param charset  The charset the fixture is encoded with
+     * @param status   The HTTP status of the envelope
+     * @param page     The requested page, null for the whole fixture
+     * @param output   The response stream
+     * @throws IOException If the fixture cannot be read or the response cannot
+     *                     be written
+     */
+    public void write(ApiMockStreamIndexDto index, String filePath, String charset, HttpStatus status,
+            PageableRequestDto page, OutputStream output) throws IOException {
+        Path path = Path.of(filePath);
+        Charset fileCharset = Charset.forName(charset);
+
+        if (index.getTotalItems() < 0) {
+            envelopeService.write(status, null, output, data -> copyAll(path, fileCharset, data));
+            return;
+        }
+
+        if (page == null) {
+            envelopeService.write(status, new MetadataDto(1, 1, index.getTotalItems()), output,
+                    data -> copyItems(path, fileCharset, 0, index.getTotalItems(), data));
+            return;
+        }
+
+        long offset = (long) (page.getPageIndex() - 1) * page.getPageSize();
+        int first = (int) Math.min(offset, index.getTotalItems());
+        int count = Math.min(page.getPageSize(), index.getTotalItems() - first);
+        MetadataDto metadata = new MetadataDto(page.getPageIndex(), page.getPageSize(), index.getTotalItems());
+
+        if (count == 0) {
+            envelopeService.write(status, metadata, output, data -> data.write(EMPTY_ARRAY));
+        } else if (index.getItemOffsets() == null) {
+            envelopeService.write(status, metadata, output, data -> copyItems(path, fileCharset, first, count, data));
+        } else {
+            long position = index.getItemOffsets()[first];
+            envelopeService.write(status, metadata, output, data -> copyItemsFrom(path, position, count, data));
+        }
+    }
+
+    /**
+     * Builds the index of a fixture in one streaming pass.
+     */
+    private ApiMockStreamIndexDto index(Path path, Charset charset, BasicFileAttributes attributes)
+            throws IOException {
+        long started = System.nanoTime();
+        MessageDigest digest = md5();
+        int totalItems = -1;
+        long[] itemOffsets = null;
+
+        try (JsonParser parser = createParser(path, charset);
+                JsonGenerator generator = createGenerator(
+                        new DigestOutputStream(OutputStream.nullOutputStream(), digest))) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw new IOException("No content to map due to end-of-input: " + path);
+            }
+
+            if (token != JsonToken.START_ARRAY) {
+                generator.copyCurrentStructure(parser);
+            } else {
+                boolean offsets = StandardCharsets.UTF_8.equals(charset);
+                itemOffsets = new long[offsets ? 1024 : 0];
+                totalItems = 0;
+                generator.writeStartArray();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (offsets) {
+                        if (totalItems == itemOffsets.length) {
+                            itemOffsets = Arrays.copyOf(itemOffsets, totalItems * 2);
+                        }
+                        itemOffsets[totalItems] = parser.currentTokenLocation().getByteOffset();
+                    }
+                    generator.copyCurrentStructure(parser);
+                    totalItems++;
+                }
+                generator.writeEndArray();
+                itemOffsets = offsets ? Arrays.copyOf(itemOffsets, totalItems) : null;
+            }
+        }
+
+        logger.info("MOCK_FILE_INDEXED [MOCK] {} - {} bytes, {} items in {} ms", path, attributes.size(),
+                totalItems, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        return ApiMockStreamIndexDto.builder()
+                .contentHash(HexFormat.of().formatHex(digest.digest()))
+                .totalItems(totalItems)
+                .itemOffsets(itemOffsets)
+                .lastModified(attributes.lastModifiedTime().toMillis())
+                .size(attributes.size())
+                .build();
+    }
+
+    private void copyAll(Path path, Charset charset, OutputStream output) throws IOException {
+        try (JsonParser parser = createParser(path, charset); JsonGenerator generator = createGenerator(output)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        }
+    }
+
+    /**
+     * Copies items of a list fixture, skipping the ones before the first
+     * requested item by parsing through them.
+     */
+    private void copyItems(Path path, Charset charset, int first, int count, OutputStream output)
+            throws IOException {
+        try (JsonParser parser = createParser(path, charset); JsonGenerator generator = createGenerator(output)) {
+            parser.nextToken();
+            for (int i = 0; i < first && parser.nextToken() != JsonToken.END_ARRAY; i++) {
+                parser.skipChildren();
+            }
+            copy(parser, generator, count);
+        }
+    }
+
+    /**
+     * Copies items of a UTF-8 list fixture starting at the byte offset of the
+     * first requested item.
+     */
+    private void copyItemsFrom(Path path, long position, int count, OutputStream output) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.position(position);
+            // The parser starts inside the array, so it is handed the opening bracket.
+            InputStream input = new SequenceInputStream(new ByteArrayInputStream(ARRAY_START),
+                    Channels.newInputStream(channel));
+            try (JsonParser parser = objectMapper.getFactory().createParser(input);
+                    JsonGenerator generator = createGenerator(output)) {
+                parser.nextToken();
+                copy(parser, generator, count);
+            }
+        }
+    }
+
+    private static void copy(JsonParser parser, JsonGenerator generator, int count) throws IOException {
+        generator.writeStartArray();
+        for (int i = 0; i < count && parser.nextToken() != JsonToken.END_ARRAY; i++) {
+            generator.copyCurrentStructure(parser);
+        }
+        generator.writeEndArray();
+    }
+
+    private JsonParser createParser(Path path, Charset charset) throws IOException {
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            return objectMapper.getFactory().createParser(Files.newInputStream(path));
+        }
+
+        return objectMapper.getFactory().createParser(Files.newBufferedReader(path, charset));
+    }
+
+    private JsonGenerator createGenerator(OutputStream output) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(output, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return generator;
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Index slot holding the index of a fixture, or null when it is served from
+     * memory, and the file attributes it was built for.
+     */
+    private static final class Slot {
+
+        private final ApiMockStreamIndexDto index;
+
+        private final long lastModified;
+
+        private final long size;
+
+        private volatile long validatedAt;
+
+        Slot(ApiMockStreamIndexDto index, long lastModified, long size, long validatedAt) {
+            this.index = index;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.validatedAt = validatedAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,234 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockSettingDto;
+
+/**
+ * Selects among the routes that share a method and URI pattern by their query
+ * parameters, headers, request body predicates and scenario states.
+ *
+ * <p>
+ * Routes whose conditions are enabled with {@code validateRequest}, and routes
+ * requiring a scenario state, are variants, and the first variant in file
+ * order whose conditions all hold answers; the first route without conditions
+ * is the default, served when no variant matches. Variants declaring query parameters or headers are found by
+ * a single hash lookup of the request's values for them, one per set of names
+ * the route uses, so the cost does not grow with the number of variants.
+ * Variants selected by their body only are indexed by the value of the field
+ * most of them compare for equality, so a request only tests the variants that
+ * expect its value of that field, plus the variants that do not compare it.
+ * </p>
+ */
+final class ApiMockVariantIndex {
+
+    private final ApiMockSettingDto defaultSetting;
+
+    /**
+     * Variants by the names of their key, in the order they first appear, then
+     * by the values of their key.
+     */
+    private final Map<List<String>, Map<List<String>, List<Variant>>> keyed = new LinkedHashMap<>();
+
+    private final JsonPointer discriminator;
+
+    private final Map<String, List<Variant>> indexed = new HashMap<>();
+
+    private final List<Variant> unindexed = new ArrayList<>();
+
+    /**
+     * File order of the first indexed variant, so the body is not parsed when
+     * a keyed variant before it is selected.
+     */
+    private final int firstIndexedOrder;
+
+    /**
+     * Compiles the variants of a route.
+     *
+     * @param mockSettings The settings sharing a method and URI pattern, in file
+     *                     order
+     * @throws IllegalArgumentException If a condition is invalid
+     */
+    ApiMockVariantIndex(List<ApiMockSettingDto> mockSettings) {
+        ApiMockSettingDto fallback = null;
+        List<Variant> variants = new ArrayList<>();
+        for (int order = 0; order < mockSettings.size(); order++) {
+            ApiMockSettingDto mockSetting = mockSettings.get(order);
+            if (!isVariant(mockSetting)) {
+                if (fallback == null) {
+                    fallback = mockSetting;
+                }
+                continue;
+            }
+
+            boolean validated = Boolean.TRUE.equals(mockSetting.getValidateRequest());
+            Variant variant = new Variant(order, mockSetting,
+                    validated ? ApiMockRequestKey.compile(mockSetting.getRequestQuery(),
+                            mockSetting.getRequestHeaders()) : null,
+                    validated ? ApiMockBodyPredicate.compileAll(mockSetting.getRequestBody()) : List.of());
+            if (variant.key == null) {
+                variants.add(variant);
+            } else {
+                keyed.computeIfAbsent(variant.key.getNames(), names -> new HashMap<>())
+                        .computeIfAbsent(variant.key.getValues(), values -> new ArrayList<>())
+                        .add(variant);
+            }
+        }
+        this.defaultSetting = fallback;
+        this.discriminator = discriminator(variants);
+
+        for (Variant variant : variants) {
+            String value = discriminator == null ? null : variant.equalityValue(discriminator);
+            if (value == null) {
+                unindexed.add(variant);
+            } else {
+                indexed.computeIfAbsent(value, key -> new ArrayList<>()).add(variant);
+            }
+        }
+        this.firstIndexedOrder = indexed.values().stream().mapToInt(list -> list.get(0).order).min()
+                .orElse(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Whether a setting has enabled conditions on the request, and makes its
+     * route need a variant index.
+     *
+     * @param mockSetting The setting
+     * @return true if the setting is selected by its query parameters,
+     *         headers, request body or scenario state
+     */
+    static boolean isVariant(ApiMockSettingDto mockSetting) {
+        return Boolean.TRUE.equals(mockSetting.getValidateRequest()) && (isSet(mockSetting.getRequestQuery())
+                || isSet(mockSetting.getRequestHeaders()) || isSet(mockSetting.getRequestBody()))
+                || isSet(mockSetting.getRequiredState());
+    }
+
+    /**
+     * Selects the setting serving a request.
+     *
+     * @param content The request
+     * @return The first variant in file order whose conditions all hold, the
+     *         default setting if none does, or null if the route has no
+     *         default
+     */
+    ApiMockSettingDto select(ApiMockRequestContent content) {
+        // Keyed variants first, since their lookup does not read the body.
+        Variant selected = null;
+        for (Map.Entry<List<String>, Map<List<String>, List<Variant>>> names : keyed.entrySet()) {
+            List<Variant> candidates = names.getValue().get(ApiMockRequestKey.read(names.getKey(), content));
+            selected = first(candidates, content, selected);
+        }
+
+        if (discriminator != null && (selected == null || firstIndexedOrder < selected.order)) {
+            JsonNode node = content.getJson().at(discriminator);
+            if (!node.isMissingNode()) {
+                selected = first(indexed.get(ApiMockBodyPredicate.text(node)), content, selected);
+            }
+        }
+        selected = first(unindexed, content, selected);
+
+        return selected == null ? defaultSetting : selected.mockSetting;
+    }
+
+    /**
+     * Returns the first variant of a list, in file order, whose conditions
+     * hold, if it comes before the variant already selected.
+     */
+    private static Variant first(List<Variant> candidates, ApiMockRequestContent content, Variant selected) {
+        if (candidates == null) {
+            return selected;
+        }
+        for (Variant variant : candidates) {
+            if (selected != null && variant.order >= selected.order) {
+                break;
+            }
+            if (variant.test(content)) {
+                return variant;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Picks the field compared for equality by the most variants, if at least
+     * two of them compare it.
+     */
+    private static JsonPointer discriminator(List<Variant> variants) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        Map<String, JsonPointer> pointers = new HashMap<>();
+        for (Variant variant : variants) {
+            variant.predicates.stream()
+                    .filter(ApiMockBodyPredicate::isEquality)
+                    .map(ApiMockBodyPredicate::getPointer)
+                    .distinct()
+                    .forEach(pointer -> {
+                        counts.merge(pointer.toString(), 1, Integer::sum);
+                        pointers.putIfAbsent(pointer.toString(), pointer);
+                    });
+        }
+
+        String best = null;
+        for (Map.Entry<String, Integer> count : counts.entrySet()) {
+            if (count.getValue() >= 2 && (best == null || count.getValue() > counts.get(best))) {
+                best = count.getKey();
+            }
+        }
+        return best == null ? null : pointers.get(best);
+    }
+
+    private static boolean isSet(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    /**
+     * A setting selected by its compiled key and predicates.
+     */
+    private static final class Variant {
+
+        private final int order;
+
+        private final ApiMockSettingDto mockSetting;
+
+        private final ApiMockRequestKey key;
+
+        private final List<ApiMockBodyPredicate> predicates;
+
+        Variant(int order, ApiMockSettingDto mockSetting, ApiMockRequestKey key,
+                List<ApiMockBodyPredicate> predicates) {
+            this.order = order;
+            this.mockSetting = mockSetting;
+            this.key = key;
+            this.predicates = predicates;
+        }
+
+        String equalityValue(JsonPointer pointer) {
+            for (ApiMockBodyPredicate predicate : predicates) {
+                if (predicate.isEquality() && predicate.getPointer().toString().equals(pointer.toString())) {
+                    return predicate.getValue();
+                }
+            }
+            return null;
+        }
+
+        boolean test(ApiMockRequestContent content) {
+            String requiredState = mockSetting.getRequiredState();
+            if (requiredState != null && !requiredState.equals(content.getScenarioState(mockSetting.getScenario()))) {
+                return false;
+            }
+            for (ApiMockBodyPredicate predicate : predicates) {
+                if (!predicate.test(content)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+}
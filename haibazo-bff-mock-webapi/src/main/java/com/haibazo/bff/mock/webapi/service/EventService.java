@@ -1,12 +1,16 @@
 package com.haibazo.bff.mock.webapi.service;
 
-import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.trace.Tracer;
 import org.springframework.stereotype.Service;
 
 @Service
 public class EventService {
-    private static final Tracer tracer = GlobalOpenTelemetry.getTracer("its-rct-api-mock");
+    private final Tracer tracer;
+
+    public EventService(OpenTelemetry openTelemetry) {
+        this.tracer = openTelemetry.getTracer("its-rct-api-mock");
+    }
 
     public void trackEvent() {
         // Bắt đầu một span
@@ -0,0 +1,109 @@
+package com.haibazo.bff.mock.webapi.tracing;
+
+import java.util.Collections;
+
+import org.springframework.stereotype.Component;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.TracerProvider;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.TextMapGetter;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Creates the spans of mock requests.
+ *
+ * <p>
+ * A request gets a server span that continues the caller's trace from its
+ * {@code traceparent} header, and each serving stage a child span. When
+ * tracing is disabled every method returns the invalid span and the no-op
+ * scope without touching the context, so instrumented code allocates nothing.
+ * Stage spans are only created inside a traced request, so background work
+ * such as the periodic S3 sync does not start traces of its own.
+ * </p>
+ */
+@Component
+public class ApiMockTracing {
+
+    private static final String INSTRUMENTATION_NAME = "com.haibazo.bff.mock.webapi";
+
+    private static final TextMapGetter<HttpServletRequest> HEADERS = new TextMapGetter<>() {
+
+        @Override
+        public Iterable<String> keys(HttpServletRequest request) {
+            return Collections.list(request.getHeaderNames());
+        }
+
+        @Override
+        public String get(HttpServletRequest request, String key) {
+            return request == null ? null : request.getHeader(key);
+        }
+
+    };
+
+    private final OpenTelemetry openTelemetry;
+
+    private final Tracer tracer;
+
+    private final boolean enabled;
+
+    public ApiMockTracing(OpenTelemetry openTelemetry) {
+        this.openTelemetry = openTelemetry;
+        this.tracer = openTelemetry.getTracer(INSTRUMENTATION_NAME);
+        this.enabled = openTelemetry.getTracerProvider() != TracerProvider.noop();
+    }
+
+    /**
+     * Starts the server span of a request, as a child of the caller's span when
+     * the request carries W3C trace context.
+     *
+     * @param request The HTTP request
+     * @return The server span, or the invalid span if tracing is disabled
+     */
+    public Span startServerSpan(HttpServletRequest request) {
+        if (!enabled) {
+            return Span.getInvalid();
+        }
+
+        Context parent = openTelemetry.getPropagators().getTextMapPropagator()
+                .extract(Context.root(), request, HEADERS);
+        return tracer.spanBuilder(request.getMethod())
+                .setParent(parent)
+                .setSpanKind(SpanKind.SERVER)
+                .setAttribute("http.request.method", request.getMethod())
+                .setAttribute("url.path", request.getRequestURI())
+                .startSpan();
+    }
+
+    /**
+     * Starts a stage span as a child of the current span.
+     *
+     * @param name The span name
+     * @return The stage span, or the invalid span if there is no traced request
+     *         in progress
+     */
+    public Span startSpan(String name) {
+        if (!enabled || !Span.current().getSpanContext().isValid()) {
+            return Span.getInvalid();
+        }
+
+        return tracer.spanBuilder(name).startSpan();
+    }
+
+    /**
+     * Makes a span the current one, so the spans started beneath it become its
+     * children.
+     *
+     * @param span The span
+     * @return The scope to close once the span's work is done
+     */
+    public Scope activate(Span span) {
+        return span.getSpanContext().isValid() ? span.makeCurrent() : Scope.noop();
+    }
+
+}
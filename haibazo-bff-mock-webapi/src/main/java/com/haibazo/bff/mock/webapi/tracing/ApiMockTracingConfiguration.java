@@ -0,0 +1,138 @@
+package com.haibazo.bff.mock.webapi.tracing;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.baggage.propagation.W3CBaggagePropagator;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.exporter.otlp.http.trace.OtlpHttpSpanExporter;
+import io.opentelemetry.exporter.otlp.http.trace.OtlpHttpSpanExporterBuilder;
+import io.opentelemetry.exporter.otlp.trace.OtlpGrpcSpanExporter;
+import io.opentelemetry.exporter.otlp.trace.OtlpGrpcSpanExporterBuilder;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SdkTracerProviderBuilder;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+
+/**
+ * Builds the OpenTelemetry SDK from the standard {@code otel.*} properties,
+ * which can also be set through their {@code OTEL_*} environment variables.
+ *
+ * <p>
+ * Spans are exported over OTLP by a batch span processor, sampled by trace ID
+ * ratio unless the caller already made the sampling decision, and W3C trace
+ * context and baggage are propagated. When the SDK is disabled a no-op
+ * instance is returned, so instrumented code costs next to nothing.
+ * </p>
+ */
+@Configuration(proxyBeanMethods = false)
+public class ApiMockTracingConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiMockTracingConfiguration.class);
+
+    private static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+
+    /**
+     * Creates the OpenTelemetry instance used for tracing.
+     *
+     * @param disabled      Whether the SDK is disabled
+     * @param serviceName   The service name reported on every span
+     * @param exporter      The span exporter, {@code otlp} or {@code none}
+     * @param endpoint      The OTLP collector endpoint
+     * @param protocol      The OTLP protocol, {@code http/protobuf} or
+     *                      {@code grpc}
+     * @param headers       Extra OTLP request headers as {@code key=value} pairs
+     *                      separated by commas
+     * @param samplerRatio  The ratio of root traces sampled, from 0 to 1
+     * @param scheduleDelay The delay between two batch exports in milliseconds
+     * @param maxQueueSize  The number of ended spans buffered before new ones
+     *                      are dropped
+     * @return The SDK, or a no-op instance if it is disabled
+     */
+    @Bean
+    public OpenTelemetry openTelemetry(
+            @Value("${otel.sdk.disabled:true}") boolean disabled,
+            @Value("${otel.service.name:its-rct-api-mock}") String serviceName,
+            @Value("${otel.traces.exporter:otlp}") String exporter,
+            @Value("${otel.exporter.otlp.endpoint:http://localhost:4318}") String endpoint,
+            @Value("${otel.exporter.otlp.protocol:http/protobuf}") String protocol,
+            @Value("${otel.exporter.otlp.headers:}") String headers,
+            @Value("${otel.traces.sampler.arg:1.0}") double samplerRatio,
+            @Value("${otel.bsp.schedule.delay:5000}") long scheduleDelay,
+            @Value("${otel.bsp.max.queue.size:2048}") int maxQueueSize) {
+        if (disabled) {
+            logger.info("TRACING_DISABLED");
+            return OpenTelemetry.noop();
+        }
+
+        SdkTracerProviderBuilder tracerProvider = SdkTracerProvider.builder()
+                .setResource(Resource.getDefault().merge(Resource.create(Attributes.of(SERVICE_NAME, serviceName))))
+                .setSampler(Sampler.parentBased(Sampler.traceIdRatioBased(samplerRatio)));
+
+        if ("otlp".equalsIgnoreCase(exporter)) {
+            tracerProvider.addSpanProcessor(BatchSpanProcessor.builder(spanExporter(endpoint, protocol, headers))
+                    .setScheduleDelay(Duration.ofMillis(scheduleDelay))
+                    .setMaxQueueSize(maxQueueSize)
+                    .build());
+        } else if (!"none".equalsIgnoreCase(exporter)) {
+            throw new IllegalArgumentException("Unsupported otel.traces.exporter " + exporter);
+        }
+
+        logger.info("TRACING_ENABLED {} {} - sampler ratio {}", exporter, endpoint, samplerRatio);
+
+        return OpenTelemetrySdk.builder()
+                .setTracerProvider(tracerProvider.build())
+                .setPropagators(ContextPropagators.create(TextMapPropagator.composite(
+                        W3CTraceContextPropagator.getInstance(), W3CBaggagePropagator.getInstance())))
+                .build();
+    }
+
+    private static SpanExporter spanExporter(String endpoint, String protocol, String headers) {
+        String base = endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+
+        switch (protocol.toLowerCase(Locale.ROOT)) {
+            case "http/protobuf" -> {
+                OtlpHttpSpanExporterBuilder builder = OtlpHttpSpanExporter.builder()
+                        .setEndpoint(base + "/v1/traces");
+                forEachHeader(headers, builder::addHeader);
+                return builder.build();
+            }
+            case "grpc" -> {
+                OtlpGrpcSpanExporterBuilder builder = OtlpGrpcSpanExporter.builder().setEndpoint(base);
+                forEachHeader(headers, builder::addHeader);
+                return builder.build();
+            }
+            default -> throw new IllegalArgumentException("Unsupported otel.exporter.otlp.protocol " + protocol);
+        }
+    }
+
+    private static void forEachHeader(String headers, BiConsumer<String, String> consumer) {
+        if (!StringUtils.hasText(headers)) {
+            return;
+        }
+
+        for (String header : headers.split(",")) {
+            int separator = header.indexOf('=');
+            if (separator > 0) {
+                consumer.accept(header.substring(0, separator).trim(), header.substring(separator + 1).trim());
+            }
+        }
+    }
+
+}
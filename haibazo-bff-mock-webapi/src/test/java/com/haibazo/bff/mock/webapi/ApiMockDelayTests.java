@@ -0,0 +1,120 @@
+package com.haibazo.bff.mock.webapi;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Fires a handful of concurrent requests at a delayed route and checks that
+ * they are served on virtual threads only and wait at the same time. With
+ * virtual threads enabled Tomcat ignores its worker pool settings, so the
+ * meaningful checks are that no request ran on a platform thread and that
+ * the requests overlapped, not how long they took.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ApiMockDelayTests {
+
+	private static final int REQUESTS = 16;
+
+	private static final long DELAY_MS = 1000;
+
+	@LocalServerPort
+	int port;
+
+	@Autowired
+	InFlightRequests inFlightRequests;
+
+	@DynamicPropertySource
+	static void mockFolder(DynamicPropertyRegistry registry) throws IOException {
+		Path folder = Files.createTempDirectory("mock-delay");
+		Files.createDirectories(folder.resolve("its-rct"));
+		Files.writeString(folder.resolve("its-rct/slow.json"), "[{\"id\":1}]");
+		Files.writeString(folder.resolve("bff-mock-setting.csv"), "URI,File,Charset,Method,Status,DelayMs\n"
+				+ "/its-rct/v1/slow,./its-rct/slow.json,UTF-8,GET,200," + DELAY_MS + "\n");
+
+		registry.add("haibazo.bff.mock.base-folder-path", folder::toString);
+		registry.add("logging.level.com.haibazo.bff.mock.webapi.service", () -> "WARN");
+	}
+
+	@Test
+	void delayedRequestsWaitOnVirtualThreads() {
+		URI uri = URI.create("http://localhost:" + port + "/its-rct/v1/slow");
+
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+				HttpClient client = HttpClient.newBuilder().executor(executor).build()) {
+			List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+			for (int i = 0; i < REQUESTS; i++) {
+				responses.add(client.sendAsync(HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).build(),
+						HttpResponse.BodyHandlers.ofString()));
+			}
+
+			for (CompletableFuture<HttpResponse<String>> response : responses) {
+				assertThat(response.join().statusCode()).isEqualTo(200);
+			}
+		}
+
+		assertThat(inFlightRequests.platform.get()).isZero();
+		assertThat(inFlightRequests.peak.get()).isGreaterThan(1);
+	}
+
+	@TestConfiguration
+	static class InFlightRequests {
+
+		final AtomicInteger current = new AtomicInteger();
+
+		final AtomicInteger peak = new AtomicInteger();
+
+		final AtomicInteger platform = new AtomicInteger();
+
+		@Bean
+		OncePerRequestFilter inFlightRequestsFilter() {
+			return new OncePerRequestFilter() {
+
+				@Override
+				protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+						FilterChain chain) throws ServletException, IOException {
+					peak.accumulateAndGet(current.incrementAndGet(), Math::max);
+					if (!Thread.currentThread().isVirtual()) {
+						platform.incrementAndGet();
+					}
+					try {
+						chain.doFilter(request, response);
+					} finally {
+						current.decrementAndGet();
+					}
+				}
+
+			};
+		}
+
+	}
+
+}
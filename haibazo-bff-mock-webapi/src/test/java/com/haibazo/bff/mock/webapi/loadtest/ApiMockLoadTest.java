@@ -0,0 +1,200 @@
+package com.haibazo.bff.mock.webapi.loadtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * HTTP load driver that starts the mock server on a random port and replays a
+ * mix of the routes in the settings file.
+ *
+ * <p>
+ * Only runs with the {@code loadtest} profile:
+ * {@code mvn -pl haibazo-bff-mock-webapi -Ploadtest test -Dloadtest.rate=2000}.
+ * Options, all system properties:
+ * </p>
+ * <ul>
+ * <li>{@code loadtest.rate} requests per second, open loop; 0 (default) runs
+ * {@code loadtest.concurrency} closed-loop clients at maximum throughput</li>
+ * <li>{@code loadtest.concurrency} clients in maximum throughput mode, default
+ * 64</li>
+ * <li>{@code loadtest.warmup-seconds} and {@code loadtest.duration-seconds},
+ * default 10 and 30</li>
+ * <li>{@code loadtest.mix} route weights, see {@link LoadTestRouteMix}</li>
+ * <li>{@code loadtest.mock-folder} mock base folder, default the static
+ * module</li>
+ * <li>{@code loadtest.report-folder}, default {@code target/loadtest}</li>
+ * </ul>
+ * <p>
+ * Server settings can be overridden the same way, e.g.
+ * {@code -Dspring.threads.virtual.enabled=false}, to compare configurations.
+ * Every client request runs on its own virtual thread. The report contains
+ * RPS, latency percentiles measured from the intended send time, error rate,
+ * per-route figures and the JVM's GC pauses; client and server share the JVM,
+ * so GC figures cover both.
+ * </p>
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ApiMockLoadTest {
+
+	private static final String MOCK_FOLDER = System.getProperty("loadtest.mock-folder",
+			"../haibazo-bff-mock-static");
+
+	@LocalServerPort
+	int port;
+
+	@Autowired
+	Environment environment;
+
+	@DynamicPropertySource
+	static void mockFolder(DynamicPropertyRegistry registry) {
+		registry.add("haibazo.bff.mock.base-folder-path", () -> MOCK_FOLDER);
+		registry.add("logging.level.com.haibazo.bff.mock.webapi.service",
+				() -> System.getProperty("loadtest.log-level", "WARN"));
+	}
+
+	@Test
+	void replayRouteMix() throws Exception {
+		int rate = Integer.getInteger("loadtest.rate", 0);
+		int concurrency = Integer.getInteger("loadtest.concurrency", 64);
+		Duration warmup = Duration.ofSeconds(Integer.getInteger("loadtest.warmup-seconds", 10));
+		Duration duration = Duration.ofSeconds(Integer.getInteger("loadtest.duration-seconds", 30));
+
+		LoadTestRouteMix mix = new LoadTestRouteMix(
+				Path.of(MOCK_FOLDER).resolve(environment.getProperty("haibazo.bff.mock.setting-file-path")),
+				System.getProperty("loadtest.mix"));
+
+		Map<String, Object> configuration = new LinkedHashMap<>();
+		configuration.put("mode", rate > 0 ? "fixed-rate" : "max-throughput");
+		configuration.put("rate", rate);
+		configuration.put("concurrency", rate > 0 ? null : concurrency);
+		configuration.put("warmupSeconds", warmup.toSeconds());
+		configuration.put("routes", mix.getRoutes().size());
+		configuration.put("mix", System.getProperty("loadtest.mix", "all"));
+		configuration.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+		configuration.put("maxHeapMb", Runtime.getRuntime().maxMemory() / 1024 / 1024);
+		configuration.put("java", System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+		for (String property : new String[] { "spring.threads.virtual.enabled", "server.tomcat.max-connections",
+				"server.tomcat.threads.max", "haibazo.bff.mock.cache.enabled", "haibazo.bff.mock.storage" }) {
+			configuration.put(property, environment.getProperty(property));
+		}
+
+		LoadTestReport report;
+		try (LoadTestRecorder recorder = new LoadTestRecorder();
+				ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+				HttpClient client = HttpClient.newBuilder().executor(executor).build()) {
+			Driver driver = new Driver(client, executor, mix, recorder);
+
+			driver.run(rate, concurrency, warmup);
+			recorder.start();
+			long startedAt = System.nanoTime();
+			driver.run(rate, concurrency, duration);
+			recorder.stop();
+			report = new LoadTestReport(configuration, recorder, Duration.ofNanos(System.nanoTime() - startedAt));
+		}
+
+		String name = "report-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+		Path json = report.write(Path.of(System.getProperty("loadtest.report-folder", "target/loadtest")), name);
+		System.out.println("LOAD_TEST_REPORT: " + json.toAbsolutePath() + " " + report.asMap().get("rps") + " rps "
+				+ report.asMap().get("latencyMs"));
+
+		assertThat((long) report.asMap().get("requests")).isPositive();
+	}
+
+	/**
+	 * Issues requests for one phase, either on a fixed schedule or from a fixed
+	 * number of closed-loop clients.
+	 */
+	private final class Driver {
+
+		private final HttpClient client;
+
+		private final ExecutorService executor;
+
+		private final LoadTestRouteMix mix;
+
+		private final LoadTestRecorder recorder;
+
+		Driver(HttpClient client, ExecutorService executor, LoadTestRouteMix mix, LoadTestRecorder recorder) {
+			this.client = client;
+			this.executor = executor;
+			this.mix = mix;
+			this.recorder = recorder;
+		}
+
+		void run(int rate, int concurrency, Duration duration) throws InterruptedException {
+			long startedAt = System.nanoTime();
+			long endsAt = startedAt + duration.toNanos();
+
+			if (rate > 0) {
+				long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+				for (long intended = startedAt; intended < endsAt; intended += interval) {
+					long wait = intended - System.nanoTime();
+					if (wait > 0) {
+						LockSupport.parkNanos(wait);
+					}
+					long scheduledAt = intended;
+					executor.execute(() -> send(scheduledAt));
+				}
+				return;
+			}
+
+			Thread[] clients = new Thread[concurrency];
+			for (int i = 0; i < concurrency; i++) {
+				clients[i] = Thread.ofVirtual().start(() -> {
+					while (System.nanoTime() < endsAt) {
+						send(System.nanoTime());
+					}
+				});
+			}
+			for (Thread clientThread : clients) {
+				clientThread.join();
+			}
+		}
+
+		private void send(long intendedAt) {
+			LoadTestRouteMix.Route route = mix.next();
+			HttpRequest request = HttpRequest
+					.newBuilder(URI.create("http://localhost:" + port + route.samplePath()))
+					.method(route.method, HttpRequest.BodyPublishers.noBody())
+					.timeout(Duration.ofSeconds(30))
+					.build();
+
+			int status;
+			try {
+				status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+			} catch (IOException e) {
+				status = -1;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			recorder.record(route.name(), status,
+					TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedAt));
+		}
+
+	}
+
+}
@@ -0,0 +1,140 @@
+package com.haibazo.bff.mock.webapi.loadtest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Collects latencies, outcomes and GC pauses during the measured phase of a
+ * load test. Latencies are recorded in microseconds from the intended send
+ * time, so a stalled server is not hidden by the client waiting on it.
+ */
+class LoadTestRecorder implements NotificationListener, AutoCloseable {
+
+	private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+	final Histogram latencies = newHistogram();
+
+	final Map<String, Histogram> routeLatencies = new ConcurrentHashMap<>();
+
+	final Map<String, LongAdder> statuses = new ConcurrentHashMap<>();
+
+	final Map<String, LongAdder> routeErrors = new ConcurrentHashMap<>();
+
+	final Map<String, GcStats> gcPauses = new ConcurrentHashMap<>();
+
+	final LongAdder requests = new LongAdder();
+
+	final LongAdder errors = new LongAdder();
+
+	private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+
+	private volatile boolean recording;
+
+	LoadTestRecorder() {
+		for (GarbageCollectorMXBean collector : collectors) {
+			if (collector instanceof NotificationEmitter emitter) {
+				emitter.addNotificationListener(this, null, null);
+			}
+		}
+	}
+
+	void start() {
+		recording = true;
+	}
+
+	void stop() {
+		recording = false;
+	}
+
+	/**
+	 * Records the outcome of one request.
+	 *
+	 * @param route         The route name
+	 * @param status        The HTTP status, or a negative value on I/O failure
+	 * @param latencyMicros The latency from the intended send time
+	 */
+	void record(String route, int status, long latencyMicros) {
+		if (!recording) {
+			return;
+		}
+
+		long latency = Math.min(Math.max(latencyMicros, 1), HIGHEST_TRACKABLE_MICROS);
+		latencies.recordValue(latency);
+		routeLatencies.computeIfAbsent(route, key -> newHistogram()).recordValue(latency);
+		statuses.computeIfAbsent(status < 0 ? "IO_ERROR" : Integer.toString(status), key -> new LongAdder())
+				.increment();
+		requests.increment();
+
+		if (status < 200 || status >= 400) {
+			errors.increment();
+			routeErrors.computeIfAbsent(route, key -> new LongAdder()).increment();
+		}
+	}
+
+	@Override
+	public void handleNotification(Notification notification, Object handback) {
+		if (!recording
+				|| !GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+			return;
+		}
+
+		GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+				.from((CompositeData) notification.getUserData());
+		gcPauses.computeIfAbsent(info.getGcName() + " (" + info.getGcAction() + ")", key -> new GcStats())
+				.record(info.getGcInfo().getDuration());
+	}
+
+	@Override
+	public void close() {
+		for (GarbageCollectorMXBean collector : collectors) {
+			if (collector instanceof NotificationEmitter emitter) {
+				try {
+					emitter.removeNotificationListener(this);
+				} catch (ListenerNotFoundException e) {
+					// Already removed.
+				}
+			}
+		}
+	}
+
+	private static Histogram newHistogram() {
+		return new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+	}
+
+	/**
+	 * Count, total and longest duration of one kind of GC event, in
+	 * milliseconds as reported by the JVM.
+	 */
+	static final class GcStats {
+
+		long count;
+
+		long totalMs;
+
+		long maxMs;
+
+		synchronized void record(long durationMs) {
+			count++;
+			totalMs += durationMs;
+			maxMs = Math.max(maxMs, durationMs);
+		}
+
+	}
+
+}
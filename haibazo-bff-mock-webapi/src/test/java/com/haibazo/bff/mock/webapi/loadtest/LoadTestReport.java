@@ -0,0 +1,145 @@
+package com.haibazo.bff.mock.webapi.loadtest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.springframework.web.util.HtmlUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Builds the load test report and writes it as JSON and HTML.
+ */
+class LoadTestReport {
+
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+	private final Map<String, Object> report = new LinkedHashMap<>();
+
+	LoadTestReport(Map<String, Object> configuration, LoadTestRecorder recorder, Duration elapsed) {
+		double seconds = elapsed.toNanos() / 1e9;
+		long requests = recorder.requests.sum();
+		long errors = recorder.errors.sum();
+
+		report.put("timestamp", Instant.now().toString());
+		report.put("configuration", configuration);
+		report.put("durationSeconds", round(seconds));
+		report.put("requests", requests);
+		report.put("rps", round(requests / seconds));
+		report.put("errorRate", requests == 0 ? 0 : round((double) errors / requests));
+		report.put("latencyMs", latency(recorder.latencies));
+		report.put("statuses", new TreeMap<>(sums(recorder.statuses)));
+
+		Map<String, Object> routes = new TreeMap<>();
+		recorder.routeLatencies.forEach((route, histogram) -> {
+			Map<String, Object> routeReport = new LinkedHashMap<>();
+			routeReport.put("requests", histogram.getTotalCount());
+			routeReport.put("errors", recorder.routeErrors.containsKey(route)
+					? recorder.routeErrors.get(route).sum() : 0);
+			routeReport.put("latencyMs", latency(histogram));
+			routes.put(route, routeReport);
+		});
+		report.put("routes", routes);
+
+		Map<String, Object> gcPauses = new TreeMap<>();
+		recorder.gcPauses.forEach((collector, stats) -> gcPauses.put(collector,
+				Map.of("count", stats.count, "totalMs", stats.totalMs, "maxMs", stats.maxMs)));
+		report.put("gcPauses", gcPauses);
+	}
+
+	Map<String, Object> asMap() {
+		return report;
+	}
+
+	/**
+	 * Writes {@code <name>.json} and {@code <name>.html} to the folder.
+	 *
+	 * @return The JSON report file
+	 */
+	Path write(Path folder, String name) throws IOException {
+		Files.createDirectories(folder);
+		Path json = folder.resolve(name + ".json");
+		new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(json.toFile(), report);
+		Files.writeString(folder.resolve(name + ".html"), html(), StandardCharsets.UTF_8);
+		return json;
+	}
+
+	@SuppressWarnings("unchecked")
+	private String html() {
+		StringBuilder html = new StringBuilder("<!DOCTYPE html><html><head><meta charset=\"utf-8\">"
+				+ "<title>Mock load test</title><style>body{font-family:sans-serif}"
+				+ "table{border-collapse:collapse;margin-bottom:1.5em}td,th{border:1px solid #ccc;padding:4px 8px;"
+				+ "text-align:right}td:first-child,th:first-child{text-align:left}</style></head><body>"
+				+ "<h1>Mock load test</h1>");
+
+		html.append("<h2>Summary</h2><table>");
+		for (String key : new String[] { "timestamp", "durationSeconds", "requests", "rps", "errorRate" }) {
+			row(html, key, report.get(key));
+		}
+		((Map<String, Object>) report.get("latencyMs")).forEach((key, value) -> row(html, "latency " + key + " ms",
+				value));
+		html.append("</table><h2>Configuration</h2><table>");
+		((Map<String, Object>) report.get("configuration")).forEach((key, value) -> row(html, key, value));
+		html.append("</table><h2>Statuses</h2><table>");
+		((Map<String, Object>) report.get("statuses")).forEach((key, value) -> row(html, key, value));
+		html.append("</table><h2>GC pauses</h2><table><tr><th>Collector</th><th>Count</th><th>Total ms</th>"
+				+ "<th>Max ms</th></tr>");
+		((Map<String, Map<String, Object>>) report.get("gcPauses")).forEach((collector, stats) -> html
+				.append("<tr><td>").append(HtmlUtils.htmlEscape(collector)).append("</td><td>")
+				.append(stats.get("count")).append("</td><td>").append(stats.get("totalMs")).append("</td><td>")
+				.append(stats.get("maxMs")).append("</td></tr>"));
+		html.append("</table><h2>Routes</h2><table><tr><th>Route</th><th>Requests</th><th>Errors</th>");
+		for (double percentile : PERCENTILES) {
+			html.append("<th>p").append(label(percentile)).append(" ms</th>");
+		}
+		html.append("<th>max ms</th></tr>");
+		((Map<String, Map<String, Object>>) report.get("routes")).forEach((route, stats) -> {
+			html.append("<tr><td>").append(HtmlUtils.htmlEscape(route)).append("</td><td>")
+					.append(stats.get("requests")).append("</td><td>").append(stats.get("errors")).append("</td>");
+			((Map<String, Object>) stats.get("latencyMs")).values()
+					.forEach(value -> html.append("<td>").append(value).append("</td>"));
+			html.append("</tr>");
+		});
+
+		return html.append("</table></body></html>").toString();
+	}
+
+	private static void row(StringBuilder html, String key, Object value) {
+		html.append("<tr><td>").append(HtmlUtils.htmlEscape(key)).append("</td><td>")
+				.append(HtmlUtils.htmlEscape(String.valueOf(value))).append("</td></tr>");
+	}
+
+	private static Map<String, Object> latency(Histogram histogram) {
+		Map<String, Object> latency = new LinkedHashMap<>();
+		for (double percentile : PERCENTILES) {
+			latency.put("p" + label(percentile), round(histogram.getValueAtPercentile(percentile) / 1000.0));
+		}
+		latency.put("max", round(histogram.getMaxValue() / 1000.0));
+		return latency;
+	}
+
+	private static Map<String, Long> sums(Map<String, LongAdder> adders) {
+		Map<String, Long> sums = new LinkedHashMap<>();
+		adders.forEach((key, adder) -> sums.put(key, adder.sum()));
+		return sums;
+	}
+
+	private static String label(double percentile) {
+		return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+	}
+
+	private static double round(double value) {
+		return Math.round(value * 1000) / 1000.0;
+	}
+
+}
@@ -0,0 +1,146 @@
+package com.haibazo.bff.mock.webapi.loadtest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvException;
+
+/**
+ * Weighted mix of the routes declared in a mock settings file.
+ *
+ * <p>
+ * Every active row becomes a route with weight 1 unless the mix specification
+ * names it. The specification is a comma separated list of
+ * {@code METHOD /uri/pattern=weight} or {@code /uri/pattern=weight} entries;
+ * when given, only the routes it names are replayed. Path variables are filled
+ * with values 0 to 3 so both exact and fallback fixtures are exercised.
+ * </p>
+ */
+class LoadTestRouteMix {
+
+	private static final Pattern PATH_VARIABLE = Pattern.compile("\\{[^}]+}");
+
+	private final List<Route> routes = new ArrayList<>();
+
+	private final double[] cumulativeWeights;
+
+	LoadTestRouteMix(Path settingFile, String specification) throws IOException {
+		Map<String, Double> weights = parseSpecification(specification);
+
+		try (CSVReader reader = new CSVReader(Files.newBufferedReader(settingFile, StandardCharsets.UTF_8))) {
+			String[] header = reader.readNext();
+			Map<String, Integer> columns = new HashMap<>();
+			for (int i = 0; i < header.length; i++) {
+				columns.put(header[i].trim().toLowerCase(Locale.ROOT), i);
+			}
+
+			String[] line;
+			while ((line = reader.readNext()) != null) {
+				String uri = line[columns.get("uri")].trim();
+				if (uri.isEmpty() || uri.startsWith("#")) {
+					continue;
+				}
+				String method = line[columns.get("method")].trim();
+
+				Double weight = weights.isEmpty() ? Double.valueOf(1)
+						: weights.getOrDefault(method + " " + uri, weights.get(uri));
+				if (weight != null && weight > 0) {
+					routes.add(new Route(method, uri, weight));
+				}
+			}
+		} catch (CsvException e) {
+			throw new IOException(e);
+		}
+
+		if (routes.isEmpty()) {
+			throw new IllegalArgumentException("No routes selected from " + settingFile + " by [" + specification + "]");
+		}
+
+		cumulativeWeights = new double[routes.size()];
+		double total = 0;
+		for (int i = 0; i < routes.size(); i++) {
+			total += routes.get(i).weight;
+			cumulativeWeights[i] = total;
+		}
+	}
+
+	List<Route> getRoutes() {
+		return routes;
+	}
+
+	/**
+	 * Picks a route according to the weights.
+	 */
+	Route next() {
+		double point = ThreadLocalRandom.current().nextDouble(cumulativeWeights[cumulativeWeights.length - 1]);
+		int low = 0;
+		int high = cumulativeWeights.length - 1;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (cumulativeWeights[middle] <= point) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return routes.get(low);
+	}
+
+	private static Map<String, Double> parseSpecification(String specification) {
+		Map<String, Double> weights = new HashMap<>();
+		if (specification == null || specification.isBlank()) {
+			return weights;
+		}
+
+		for (String entry : specification.split(",")) {
+			int separator = entry.lastIndexOf('=');
+			String route = (separator < 0 ? entry : entry.substring(0, separator)).trim();
+			weights.put(route, separator < 0 ? 1 : Double.parseDouble(entry.substring(separator + 1).trim()));
+		}
+		return weights;
+	}
+
+	/**
+	 * A route of the mix and its request path generator.
+	 */
+	static final class Route {
+
+		final String method;
+
+		final String uri;
+
+		final double weight;
+
+		Route(String method, String uri, double weight) {
+			this.method = method;
+			this.uri = uri;
+			this.weight = weight;
+		}
+
+		String samplePath() {
+			Matcher matcher = PATH_VARIABLE.matcher(uri);
+			StringBuilder path = new StringBuilder();
+			while (matcher.find()) {
+				matcher.appendReplacement(path, Integer.toString(ThreadLocalRandom.current().nextInt(4)));
+			}
+			return matcher.appendTail(path).toString();
+		}
+
+		String name() {
+			return method + " " + uri;
+		}
+
+	}
+
+}
@@ -0,0 +1,142 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockBundleFixtureDto;
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockSettingDto;
+
+class ApiMockBundleTests {
+
+	private static final byte[] BODY = "{\"status\":200,\"data\":{\"theme\":\"dark\"}}".getBytes(StandardCharsets.UTF_8);
+
+	@TempDir
+	Path tempDir;
+
+	private Path bundleFile;
+
+	private String hash;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		bundleFile = tempDir.resolve("bff-mock.bundle");
+		hash = ApiMockBundle.write(bundleFile, List.of(ApiMockSettingDto.builder()
+				.uri("/its-rct/v1/configs")
+				.filePath("./its-rct/configs.json")
+				.method(HttpMethod.GET)
+				.build()), List.of(ApiMockBundleFixtureDto.builder()
+						.path(tempDir.resolve("its-rct/configs.json").toString())
+						.charset("UTF-8")
+						.status(HttpStatus.OK)
+						.lastModified(1_000L)
+						.contentHash("5d41402abc4b2a76")
+						.body(ByteBuffer.wrap(BODY))
+						.dataOffset(23)
+						.dataLength(16)
+						.build()));
+	}
+
+	@Test
+	void writtenBundleIsReadBack() throws IOException {
+		ApiMockBundle bundle = ApiMockBundle.open(bundleFile, true);
+
+		assertThat(bundle.getHash()).isEqualTo(hash);
+		assertThat(bundle.getMockSettings()).extracting(ApiMockSettingDto::getUri)
+				.containsExactly("/its-rct/v1/configs");
+		ApiMockBundleFixtureDto fixture = bundle.getFixtures().get(0);
+		assertThat(fixture.getStatus()).isEqualTo(HttpStatus.OK);
+		assertThat(fixture.getBody()).isEqualTo(ByteBuffer.wrap(BODY));
+		assertThat(fixture.getGzipBody()).isNull();
+		assertThat(fixture.getItemEnds()).isNull();
+	}
+
+	@Test
+	void modifiedContentFailsVerification() throws IOException {
+		byte[] bytes = Files.readAllBytes(bundleFile);
+		bytes[bytes.length - 2] ^= 1;
+		Files.write(bundleFile, bytes);
+
+		assertThatIllegalArgumentException().isThrownBy(() -> ApiMockBundle.open(bundleFile, true))
+				.withMessageStartingWith("MOCK_BUNDLE_HASH_MISMATCH");
+		assertThat(ApiMockBundle.open(bundleFile, false).getHash()).isEqualTo(hash);
+	}
+
+	@Test
+	void otherFormatVersionsAreRejected() throws IOException {
+		writeInt(4, 3);
+
+		assertThatIllegalArgumentException().isThrownBy(() -> ApiMockBundle.open(bundleFile, false))
+				.withMessage("UNSUPPORTED_MOCK_BUNDLE_VERSION: 3");
+	}
+
+	@Test
+	void corruptBundlesAreRejectedWithoutVerification() throws IOException {
+		byte[] bytes = Files.readAllBytes(bundleFile);
+		Files.write(bundleFile, Arrays.copyOf(bytes, bytes.length - 8));
+
+		assertThatIllegalArgumentException().isThrownBy(() -> ApiMockBundle.open(bundleFile, false))
+				.withMessageStartingWith("MOCK_BUNDLE_CORRUPT");
+
+		Files.write(bundleFile, bytes);
+		writeInt(40, Integer.MAX_VALUE);
+
+		assertThatIllegalArgumentException().isThrownBy(() -> ApiMockBundle.open(bundleFile, false))
+				.withMessageStartingWith("MOCK_BUNDLE_CORRUPT");
+
+		Files.write(bundleFile, "not a bundle".getBytes(StandardCharsets.UTF_8));
+
+		assertThatIllegalArgumentException().isThrownBy(() -> ApiMockBundle.open(bundleFile, false))
+				.withMessageStartingWith("NOT_A_MOCK_BUNDLE");
+	}
+
+	@Test
+	void serviceRejectsBundlesWithAnotherHash() throws IOException {
+		ApiMockBundleService bundleService = bundleService("0".repeat(64));
+
+		assertThatIllegalStateException().isThrownBy(bundleService::initialize)
+				.withMessageStartingWith("MOCK_BUNDLE_HASH_MISMATCH: expected " + "0".repeat(64));
+		assertThat(bundleService.getBundle()).isNull();
+
+		bundleService = bundleService(hash.toUpperCase());
+		bundleService.initialize();
+
+		assertThat(bundleService.getBundle().getHash()).isEqualTo(hash);
+		assertThat(bundleService.contains(tempDir.resolve("its-rct/configs.json").toString())).isTrue();
+	}
+
+	private ApiMockBundleService bundleService(String expectedHash) {
+		ApiMockBundleService bundleService = new ApiMockBundleService();
+		ReflectionTestUtils.setField(bundleService, "mockStorage", "bundle");
+		ReflectionTestUtils.setField(bundleService, "bundlePath", "./bff-mock.bundle");
+		ReflectionTestUtils.setField(bundleService, "verify", true);
+		ReflectionTestUtils.setField(bundleService, "expectedHash", expectedHash);
+		ReflectionTestUtils.setField(bundleService, "localStorageService",
+				new ApiMockLocalStorageService(tempDir.toString()));
+		return bundleService;
+	}
+
+	private void writeInt(long position, int value) throws IOException {
+		try (FileChannel channel = FileChannel.open(bundleFile, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, value), position);
+		}
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockCachedResponseDto;
+
+class ApiMockCompressionServiceTests {
+
+	private final ApiMockCompressionService compressionService = new ApiMockCompressionService();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(compressionService, "enabled", true);
+		ReflectionTestUtils.setField(compressionService, "minBytes", 1024);
+	}
+
+	@Test
+	void compressBuildsVariantsThatDecodeToIdentityBody() throws IOException {
+		byte[] body = "{\"id\":1,\"name\":\"spring\"},".repeat(200).getBytes(StandardCharsets.UTF_8);
+
+		ApiMockCachedResponseDto entry = compressionService.compress(entry(body));
+
+		assertThat(entry.getGzipBody()).hasSizeLessThan(body.length);
+		assertThat(entry.getDeflateBody()).hasSizeLessThan(body.length);
+		assertThat(decode(new GZIPInputStream(new ByteArrayInputStream(entry.getGzipBody())))).isEqualTo(body);
+		assertThat(decode(new InflaterInputStream(new ByteArrayInputStream(entry.getDeflateBody()))))
+				.isEqualTo(body);
+		assertThat(entry.getWeight())
+				.isEqualTo(body.length + entry.getGzipBody().length + entry.getDeflateBody().length);
+	}
+
+	@Test
+	void compressSkipsSmallBodies() throws IOException {
+		ApiMockCachedResponseDto entry = entry("{\"status\":\"OK\"}".getBytes(StandardCharsets.UTF_8));
+
+		assertThat(compressionService.compress(entry)).isSameAs(entry);
+		assertThat(compressionService.isCompressed(entry)).isFalse();
+		assertThat(compressionService.negotiate(entry, "gzip")).isNull();
+	}
+
+	@Test
+	void negotiateHonorsQualityValues() throws IOException {
+		ApiMockCachedResponseDto entry = compressionService.compress(entry(new byte[4096]));
+
+		assertThat(compressionService.negotiate(entry, null)).isNull();
+		assertThat(compressionService.negotiate(entry, "gzip, deflate, br")).isEqualTo("gzip");
+		assertThat(compressionService.negotiate(entry, "deflate")).isEqualTo("deflate");
+		assertThat(compressionService.negotiate(entry, "gzip;q=0.5, deflate")).isEqualTo("deflate");
+		assertThat(compressionService.negotiate(entry, "gzip;q=0, deflate;q=0")).isNull();
+		assertThat(compressionService.negotiate(entry, "*")).isEqualTo("gzip");
+		assertThat(compressionService.negotiate(entry, "gzip;q=0, *")).isEqualTo("deflate");
+		assertThat(compressionService.negotiate(entry, "br, identity")).isNull();
+	}
+
+	private static ApiMockCachedResponseDto entry(byte[] body) {
+		return ApiMockCachedResponseDto.builder()
+				.status(HttpStatus.OK)
+				.body(body)
+				.build();
+	}
+
+	private static byte[] decode(InputStream input) throws IOException {
+		try (input) {
+			return input.readAllBytes();
+		}
+	}
+
+}
@@ -0,0 +1,137 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockCachedResponseDto;
+import com.haibazo.bff.mock.webapi.dto.request.PageableRequestDto;
+import com.haibazo.bff.mock.webapi.dto.response.ApiResponseDto;
+import com.haibazo.bff.mock.webapi.dto.response.MetadataDto;
+
+class ApiMockEnvelopeServiceTests {
+
+	private static final Path MOCK_STATIC_FOLDER = Path.of("../haibazo-bff-mock-static");
+
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+	private final ApiMockEnvelopeService envelopeService = new ApiMockEnvelopeService();
+
+	@TempDir
+	Path tempDir;
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(envelopeService, "objectMapper", objectMapper);
+	}
+
+	@Test
+	void loadIsByteCompatibleWithSerializedDtoForAllFixtures() throws IOException {
+		List<Path> fixtures;
+		try (Stream<Path> files = Files.walk(MOCK_STATIC_FOLDER)) {
+			fixtures = files.filter(file -> file.toString().endsWith(".json")).toList();
+		}
+
+		assertThat(fixtures).isNotEmpty();
+		for (Path fixture : fixtures) {
+			assertCompatible(fixture, HttpStatus.OK);
+		}
+	}
+
+	@Test
+	void loadIsByteCompatibleForEdgeCases() throws IOException {
+		assertCompatible(write("{\n  \"price\": 1.50, \"big\": 12345678901234567890,\n  \"text\": \"\\u00e9\\n\" }"),
+				HttpStatus.CREATED);
+		assertCompatible(write("[ ]"), HttpStatus.OK);
+		assertCompatible(write("\"plain\""), HttpStatus.OK);
+		assertCompatible(write("null"), HttpStatus.OK);
+		assertCompatible(write("{\"id\": 1, \"id\": 2}"), HttpStatus.OK);
+		assertCompatible(write("{\"id\": 1,"), HttpStatus.OK);
+	}
+
+	@Test
+	void rewrapMatchesDirectLoad() throws IOException {
+		Path fixture = write("[{\"id\":1},{\"id\":2}]");
+		ApiMockCachedResponseDto cachedResponse = load(fixture, HttpStatus.OK);
+
+		byte[] rewrapped = envelopeService.rewrap(cachedResponse, HttpStatus.ACCEPTED);
+
+		assertThat(rewrapped).isEqualTo(load(fixture, HttpStatus.ACCEPTED).getBody());
+	}
+
+	@Test
+	void pageMatchesSerializedSubList() throws IOException {
+		List<Path> fixtures = List.of(
+				write("[" + "{\"id\": 1, \"tags\": [\"a\", \"b,c\"]},".repeat(24) + "{\"id\": 2}]"),
+				write("[{\"id\": 1, \"id\": 2}, {\"id\": 3}, 4, \"five\"]"),
+				write("[]"));
+
+		for (Path fixture : fixtures) {
+			List<?> items = objectMapper.readValue(Files.readString(fixture), List.class);
+			ApiMockCachedResponseDto cachedResponse = load(fixture, HttpStatus.OK);
+			for (int[] page : new int[][] { { 1, 10 }, { 2, 10 }, { 3, 10 }, { 4, 10 }, { 1, 100 }, { 2, 3 },
+					{ 1, 1 }, { Integer.MAX_VALUE, 100 } }) {
+				PageableRequestDto pageable = new PageableRequestDto(page[0], page[1]);
+				long offset = (long) (page[0] - 1) * page[1];
+				List<?> expectedItems = items.subList((int) Math.min(offset, items.size()),
+						(int) Math.min(offset + page[1], items.size()));
+
+				ApiResponseDto responseDto = ApiResponseDto.status(HttpStatus.OK).body(expectedItems);
+				responseDto.metadata(new MetadataDto(page[0], page[1], items.size()));
+				byte[] expected = objectMapper.writeValueAsBytes(responseDto.build().getBody());
+
+				assertThat(new String(envelopeService.page(cachedResponse, HttpStatus.OK, pageable),
+						StandardCharsets.UTF_8))
+						.as("%s page %d size %d", fixture, page[0], page[1])
+						.isEqualTo(new String(expected, StandardCharsets.UTF_8));
+			}
+		}
+	}
+
+	private void assertCompatible(Path fixture, HttpStatus status) throws IOException {
+		Object parsedContent;
+		try {
+			parsedContent = objectMapper.readValue(Files.readString(fixture, StandardCharsets.UTF_8), Object.class);
+		} catch (JsonProcessingException e) {
+			assertThatThrownBy(() -> load(fixture, status)).as(fixture.toString()).isInstanceOf(IOException.class);
+			return;
+		}
+
+		MetadataDto metadata = parsedContent instanceof List<?> dataList ? new MetadataDto(1, 1, dataList.size())
+				: null;
+		ApiResponseDto responseDto = ApiResponseDto.status(status).body(parsedContent);
+		responseDto.metadata(metadata);
+		byte[] expected = objectMapper.writeValueAsBytes(responseDto.build().getBody());
+
+		assertThat(new String(load(fixture, status).getBody(), StandardCharsets.UTF_8))
+				.as(fixture.toString())
+				.isEqualTo(new String(expected, StandardCharsets.UTF_8));
+	}
+
+	private ApiMockCachedResponseDto load(Path fixture, HttpStatus status) throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes(fixture, BasicFileAttributes.class);
+		return envelopeService.load(fixture.toString(), "UTF-8", status, attributes);
+	}
+
+	private Path write(String content) throws IOException {
+		Path fixture = Files.createTempFile(tempDir, "fixture", ".json");
+		return Files.writeString(fixture, content);
+	}
+
+}
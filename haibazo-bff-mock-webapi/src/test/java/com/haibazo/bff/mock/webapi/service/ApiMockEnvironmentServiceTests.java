@@ -0,0 +1,175 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockCachedResponseDto;
+import com.haibazo.bff.mock.webapi.exception.NotFoundException;
+import com.haibazo.bff.mock.webapi.metrics.ApiMockMetrics;
+import com.haibazo.bff.mock.webapi.service.ApiMockEnvironmentService.MockEnvironment;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import jakarta.validation.Validation;
+
+class ApiMockEnvironmentServiceTests {
+
+	@TempDir
+	Path tempDir;
+
+	private final ApiMockEnvironmentService environmentService = new ApiMockEnvironmentService();
+
+	@BeforeEach
+	void setUp() throws IOException {
+		String baseFolder = tempDir.resolve("mock").toString();
+		writeEnvironment(tempDir.resolve("mock"), "/its-rct/v1/configs");
+		writeEnvironment(tempDir.resolve("mock-st-a"), "/its-rct/v1/configs", "/its-rct/v1/st-a");
+		writeEnvironment(tempDir.resolve("st-b"), "/its-rct/v1/configs", "/its-rct/v1/st-b");
+
+		ApiMockLocalStorageService localStorageService = new ApiMockLocalStorageService(baseFolder);
+
+		ApiMockFileIndex fileIndex = new ApiMockFileIndex("local", baseFolder, true);
+
+		ApiMockS3Service s3Service = new ApiMockS3Service("local", null, null, null, null, "./bff/development", null,
+				false, 0, false, 1, localStorageService, null, null);
+
+		ApiMockSettingService settingService = new ApiMockSettingService("local", "./bff-mock-setting.csv", true, null,
+				localStorageService, s3Service, fileIndex, null, Validation.buildDefaultValidatorFactory().getValidator(),
+				new ApiMockMetrics(new SimpleMeterRegistry()));
+
+		StandardEnvironment environment = new StandardEnvironment();
+		environment.getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+				"haibazo.bff.mock.environments.st-b.base-folder-path", tempDir.resolve("st-b").toString(),
+				"haibazo.bff.mock.environments.st-b.hosts", "st-b.mock.local, ST-B.example.com")));
+
+		ReflectionTestUtils.setField(environmentService, "environmentNames", "st-a, st-b");
+		ReflectionTestUtils.setField(environmentService, "environmentHeader", "X-Mock-Environment");
+		ReflectionTestUtils.setField(environmentService, "basePath", "/its-rct");
+		ReflectionTestUtils.setField(environmentService, "mockStorage", "local");
+		ReflectionTestUtils.setField(environmentService, "mockBaseFolder", baseFolder);
+		ReflectionTestUtils.setField(environmentService, "mockSettingFileName", "./bff-mock-setting.csv");
+		ReflectionTestUtils.setField(environmentService, "s3Folder", "./bff/development");
+		ReflectionTestUtils.setField(environmentService, "environment", environment);
+		ReflectionTestUtils.setField(environmentService, "localStorageService", localStorageService);
+		ReflectionTestUtils.setField(environmentService, "fileIndex", fileIndex);
+		ReflectionTestUtils.setField(environmentService, "s3Service", s3Service);
+		ReflectionTestUtils.setField(environmentService, "settingService", settingService);
+		environmentService.initialize();
+	}
+
+	@Test
+	void requestsAreResolvedByHeaderPathPrefixAndHost() {
+		assertThat(resolve("/its-rct/v1/configs", "st-a", "localhost").getName()).isEqualTo("st-a");
+		assertThat(resolve("/st-b/its-rct/v1/configs", "st-a", "localhost").getName()).isEqualTo("st-a");
+		assertThat(resolve("/st-b/its-rct/v1/configs", null, "localhost").getName()).isEqualTo("st-b");
+		assertThat(resolve("/its-rct/v1/configs", null, "st-b.example.com").getName()).isEqualTo("st-b");
+		assertThat(resolve("/its-rct/v1/configs", null, "localhost")).isNull();
+
+		assertThatThrownBy(() -> resolve("/its-rct/v1/configs", "st-c", "localhost"))
+				.isInstanceOf(NotFoundException.class)
+				.hasMessage("MOCK_ENVIRONMENT_NOT_FOUND");
+
+		MockEnvironment stB = environmentService.getEnvironment("st-b");
+		assertThat(stB.getMatchPath("/st-b/its-rct/v1/configs")).isEqualTo("/its-rct/v1/configs");
+		assertThat(stB.getMatchPath("/its-rct/v1/configs")).isEqualTo("/its-rct/v1/configs");
+	}
+
+	@Test
+	void unknownPathPrefixesAreNotFound() {
+		assertThatThrownBy(() -> resolve("/st-c/its-rct/v1/configs", null, "localhost"))
+				.isInstanceOf(NotFoundException.class)
+				.hasMessage("MOCK_ENVIRONMENT_NOT_FOUND");
+		assertThatThrownBy(() -> resolve("/anything/its-rct/v1/configs", "st-a", "st-b.example.com"))
+				.isInstanceOf(NotFoundException.class);
+		assertThatThrownBy(() -> resolve("/its-rct-v2/its-rct/v1/configs", null, "localhost"))
+				.isInstanceOf(NotFoundException.class);
+
+		ApiMockEnvironmentService defaultOnly = new ApiMockEnvironmentService();
+		ReflectionTestUtils.setField(defaultOnly, "basePath", "/its-rct");
+		assertThat(defaultOnly.resolve(new MockHttpServletRequest("GET", "/its-rct/v1/configs"))).isNull();
+		MockHttpServletRequest outside = new MockHttpServletRequest("GET", "/anything/its-rct/v1/configs");
+		assertThatThrownBy(() -> defaultOnly.resolve(outside))
+				.isInstanceOf(NotFoundException.class);
+	}
+
+	@Test
+	void eachEnvironmentServesItsOwnRouteTableAndFolder() {
+		ApiMockSettingService stA = environmentService.getEnvironment("st-a").getSettingService();
+		ApiMockSettingService stB = environmentService.getEnvironment("st-b").getSettingService();
+
+		assertThat(stA.findMatchingMock("/its-rct/v1/st-a", HttpMethod.GET)).isNotNull();
+		assertThat(stA.findMatchingMock("/its-rct/v1/st-b", HttpMethod.GET)).isNull();
+		assertThat(stB.findMatchingMock("/its-rct/v1/st-b", HttpMethod.GET)).isNotNull();
+
+		assertThat(stA.getMockFilePathWithFallback(stA.findMatchingMock("/its-rct/v1/configs", HttpMethod.GET)))
+				.isEqualTo(tempDir.resolve("mock-st-a/its-rct/configs.json").toString());
+		assertThat(stB.getMockFilePathWithFallback(stB.findMatchingMock("/its-rct/v1/configs", HttpMethod.GET)))
+				.isEqualTo(tempDir.resolve("st-b/its-rct/configs.json").toString());
+	}
+
+	@Test
+	void identicalFixturesShareTheirBodiesInTheResponseCache() throws IOException {
+		ApiMockResponseCache responseCache = new ApiMockResponseCache();
+		ReflectionTestUtils.setField(responseCache, "enabled", true);
+		ReflectionTestUtils.setField(responseCache, "maxBytes", 1024L * 1024);
+		ReflectionTestUtils.setField(responseCache, "revalidateIntervalMs", 2000L);
+
+		ApiMockEnvelopeService envelopeService = new ApiMockEnvelopeService();
+		ReflectionTestUtils.setField(envelopeService, "objectMapper", Jackson2ObjectMapperBuilder.json().build());
+
+		String stA = tempDir.resolve("mock-st-a/its-rct/configs.json").toString();
+		String stB = tempDir.resolve("st-b/its-rct/configs.json").toString();
+		Files.writeString(tempDir.resolve("st-b/its-rct/other.json"), "{\"theme\":\"light\"}");
+		String other = tempDir.resolve("st-b/its-rct/other.json").toString();
+
+		ApiMockCachedResponseDto first = responseCache.get(stA, "UTF-8",
+				attributes -> envelopeService.load(stA, "UTF-8", HttpStatus.OK, attributes));
+		ApiMockCachedResponseDto second = responseCache.get(stB, "UTF-8",
+				attributes -> envelopeService.load(stB, "UTF-8", HttpStatus.OK, attributes));
+		ApiMockCachedResponseDto third = responseCache.get(other, "UTF-8",
+				attributes -> envelopeService.load(other, "UTF-8", HttpStatus.OK, attributes));
+
+		assertThat(second).isNotSameAs(first);
+		assertThat(second.getBody()).isSameAs(first.getBody());
+		assertThat(third.getBody()).isNotSameAs(first.getBody());
+		assertThat(responseCache.getShared()).isEqualTo(1);
+	}
+
+	private MockEnvironment resolve(String uri, String header, String host) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+		request.setServerName(host);
+		if (header != null) {
+			request.addHeader("X-Mock-Environment", header);
+		}
+		return environmentService.resolve(request);
+	}
+
+	private static void writeEnvironment(Path folder, String... uris) throws IOException {
+		Files.createDirectories(folder.resolve("its-rct"));
+		Files.writeString(folder.resolve("its-rct/configs.json"), "{\"theme\":\"dark\"}", StandardCharsets.UTF_8);
+
+		StringBuilder settings = new StringBuilder("URI,File,Charset,Method,Status\n");
+		for (String uri : uris) {
+			settings.append(uri).append(",./its-rct/configs.json,UTF-8,GET,200\n");
+		}
+		Files.writeString(folder.resolve("bff-mock-setting.csv"), settings, StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,255 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockSettingDto;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import jakarta.validation.Validation;
+
+class ApiMockProxyServiceTests {
+
+	@TempDir
+	Path tempDir;
+
+	private final AtomicInteger upstreamRequests = new AtomicInteger();
+
+	private HttpServer upstream;
+
+	private ApiMockProxyService proxyService;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		upstream = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		upstream.createContext("/", this::handle);
+		upstream.setExecutor(Executors.newCachedThreadPool());
+		upstream.start();
+
+		// The settings file deliberately has no trailing newline.
+		Files.writeString(tempDir.resolve("bff-mock-setting.csv"), """
+				URI,File,Charset,Method,Status
+				/its-rct/v1/configs,./its-rct/configs.json,UTF-8,GET,200""");
+
+		ApiMockLocalStorageService localStorageService = new ApiMockLocalStorageService(tempDir.toString());
+
+		proxyService = new ApiMockProxyService();
+		ReflectionTestUtils.setField(proxyService, "enabled", true);
+		ReflectionTestUtils.setField(proxyService, "upstreamUrl",
+				"http://localhost:" + upstream.getAddress().getPort() + "/");
+		ReflectionTestUtils.setField(proxyService, "connectTimeoutMs", 2000L);
+		ReflectionTestUtils.setField(proxyService, "timeoutMs", 5000L);
+		ReflectionTestUtils.setField(proxyService, "recordEnabled", true);
+		ReflectionTestUtils.setField(proxyService, "recordFolder", "./recorded");
+		ReflectionTestUtils.setField(proxyService, "maxRecordings", 100);
+		ReflectionTestUtils.setField(proxyService, "maxBodyBytes", 1024);
+		ReflectionTestUtils.setField(proxyService, "queueCapacity", 16);
+		ReflectionTestUtils.setField(proxyService, "mockStorage", "local");
+		ReflectionTestUtils.setField(proxyService, "mockSettingFileName", "./bff-mock-setting.csv");
+		ReflectionTestUtils.setField(proxyService, "localStorageService", localStorageService);
+		proxyService.initialize();
+	}
+
+	@AfterEach
+	void tearDown() throws InterruptedException {
+		proxyService.shutdown();
+		upstream.stop(0);
+	}
+
+	@Test
+	void upstreamResponsesAreReplayedAndPersistedAsFixtures() throws IOException, InterruptedException {
+		ResponseEntity<?> first = proxy("GET", "/its-rct/v1/products", "keyword=green%20tea&page=2", null);
+		assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(first.getHeaders().getFirst("X-Upstream")).isEqualTo("products");
+		assertThat(new String((byte[]) first.getBody(), StandardCharsets.UTF_8))
+				.isEqualTo("{\"status\":\"OK\",\"data\":[{\"id\":1}]}");
+
+		ResponseEntity<?> replayed = proxy("GET", "/its-rct/v1/products", "keyword=green%20tea&page=2", null);
+		assertThat(replayed.getBody()).isEqualTo(first.getBody());
+		assertThat(replayed.getHeaders().getFirst("X-Upstream")).isEqualTo("products");
+		assertThat(upstreamRequests).hasValue(1);
+
+		// The query string and the body are part of what makes requests identical.
+		proxy("GET", "/its-rct/v1/products", null, null);
+		proxy("POST", "/its-rct/v1/carts", null, "{\"id\":1}");
+		proxy("POST", "/its-rct/v1/carts", null, "{\"id\":1}");
+		proxy("POST", "/its-rct/v1/carts", null, "{\"id\":2}");
+		assertThat(upstreamRequests).hasValue(4);
+		assertThat(proxyService.getRecordingCount()).isEqualTo(4);
+
+		proxyService.shutdown();
+
+		List<ApiMockSettingDto> settings = ApiMockSettingService.parse(tempDir.resolve("bff-mock-setting.csv"),
+				Validation.buildDefaultValidatorFactory().getValidator());
+		// Bodies are not conditions, so only the first cart gets a row.
+		assertThat(settings).extracting(ApiMockSettingDto::getUri).containsExactly("/its-rct/v1/configs",
+				"/its-rct/v1/products", "/its-rct/v1/products", "/its-rct/v1/carts");
+		ApiMockSettingDto products = settings.get(1);
+		assertThat(products.getRequestQuery()).isEqualTo("keyword=green tea;page=2");
+		assertThat(products.getContentType()).isEqualTo("application/json");
+		assertThat(products.getCacheControl()).isEqualTo("max-age=60, private");
+		assertThat(ApiMockService.isEnveloped(products)).isFalse();
+		assertThat(settings.get(2).getRequestQuery()).isNull();
+		assertThat(settings.get(3).getStatus()).isEqualTo(HttpStatus.CREATED);
+		assertThat(settings.get(3).getCacheControl()).isNull();
+
+		// The upstream body is kept as it was sent, envelope included, and replayed without another one.
+		assertThat(Files.readString(tempDir.resolve(products.getFilePath())))
+				.isEqualTo("{\"status\":\"OK\",\"data\":[{\"id\":1}]}");
+		MockHttpServletResponse reloaded = new MockHttpServletResponse();
+		new ApiMockRawFileService().serve(tempDir.resolve(products.getFilePath()).toString(),
+				products.getContentType(), products.getStatus(),
+				new MockHttpServletRequest("GET", "/its-rct/v1/products"), reloaded);
+		assertThat(reloaded.getContentAsByteArray()).isEqualTo(first.getBody());
+		assertThat(reloaded.getContentType()).isEqualTo("application/json");
+		assertThat(products.getFilePath()).startsWith("./recorded/GET/its-rct/v1/products_").endsWith(".json");
+		assertThat(settings.get(2).getFilePath()).isEqualTo("./recorded/GET/its-rct/v1/products.json");
+
+		// Every body still gets its own fixture.
+		Path carts = tempDir.resolve("recorded/POST/its-rct/v1");
+		List<Path> cartFixtures;
+		try (Stream<Path> files = Files.list(carts)) {
+			cartFixtures = files.sorted().toList();
+		}
+		assertThat(cartFixtures).hasSize(2)
+				.allSatisfy(path -> assertThat(path.getFileName().toString()).matches("carts_[0-9a-f]{8}\\.json"));
+		assertThat(cartFixtures).extracting(Files::readString)
+				.containsExactlyInAnyOrder("{\"id\":1}", "{\"id\":2}");
+		assertThat(Files.readString(tempDir.resolve(settings.get(3).getFilePath()))).isEqualTo("{\"id\":1}");
+	}
+
+	@Test
+	void nonJsonRecordingsAreReplayedRawAfterReload() throws IOException, InterruptedException {
+		ResponseEntity<?> recorded = proxy("GET", "/its-rct/v1/page", null, null);
+		assertThat(recorded.getHeaders().getContentType()).hasToString("text/html;charset=UTF-8");
+
+		proxyService.shutdown();
+
+		// The settings file had no ContentType and Raw columns, so the recording adds them.
+		assertThat(Files.readAllLines(tempDir.resolve("bff-mock-setting.csv")).get(0))
+				.isEqualTo("URI,File,Charset,Method,Status,ContentType,Raw");
+		List<ApiMockSettingDto> settings = ApiMockSettingService.parse(tempDir.resolve("bff-mock-setting.csv"),
+				Validation.buildDefaultValidatorFactory().getValidator());
+		assertThat(settings.get(0).getContentType()).isEqualTo("application/json");
+		assertThat(ApiMockService.isEnveloped(settings.get(0))).isTrue();
+		ApiMockSettingDto page = settings.get(1);
+		assertThat(page.getFilePath()).isEqualTo("./recorded/GET/its-rct/v1/page.bin");
+		assertThat(ApiMockService.isEnveloped(page)).isFalse();
+
+		MockHttpServletResponse replayed = new MockHttpServletResponse();
+		new ApiMockRawFileService().serve(tempDir.resolve(page.getFilePath()).toString(), page.getContentType(),
+				page.getStatus(), new MockHttpServletRequest("GET", "/its-rct/v1/page"), replayed);
+		assertThat(replayed.getStatus()).isEqualTo(200);
+		assertThat(replayed.getContentType()).isEqualTo("text/html;charset=UTF-8");
+		assertThat(replayed.getContentAsByteArray()).isEqualTo(recorded.getBody());
+	}
+
+	@Test
+	void failuresAreNotRecorded() throws IOException {
+		assertThat(proxy("GET", "/its-rct/v1/unavailable", null, null).getStatusCode().value()).isEqualTo(503);
+		assertThat(proxy("GET", "/its-rct/v1/unavailable", null, null).getStatusCode().value()).isEqualTo(503);
+		assertThat(upstreamRequests).hasValue(2);
+		assertThat(proxyService.getRecordingCount()).isZero();
+
+		upstream.stop(0);
+		assertThat(proxy("GET", "/its-rct/v1/products", null, null).getStatusCode())
+				.isEqualTo(HttpStatus.BAD_GATEWAY);
+	}
+
+	@Test
+	void bodiesOverTheLimitAreNotBuffered() throws IOException {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		assertThat(proxyService.proxy(content("GET", "/its-rct/v1/large", null, null), response)).isNull();
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getContentType()).isEqualTo("application/json");
+		assertThat(response.getContentAsString()).isEqualTo("x".repeat(4096));
+
+		// Streamed responses are not recorded, so the upstream is asked again.
+		proxyService.proxy(content("GET", "/its-rct/v1/large", null, null), new MockHttpServletResponse());
+		assertThat(upstreamRequests).hasValue(2);
+		assertThat(proxyService.getRecordingCount()).isZero();
+
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/its-rct/v1/carts");
+		request.setContent(new byte[2048]);
+		ResponseEntity<?> tooLarge = proxyService.proxy(new ApiMockRequestContent(request, null, 1024),
+				new MockHttpServletResponse());
+		assertThat(tooLarge.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+		assertThat(upstreamRequests).hasValue(2);
+	}
+
+	private ResponseEntity<?> proxy(String method, String uri, String query, String body) {
+		return proxyService.proxy(content(method, uri, query, body), new MockHttpServletResponse());
+	}
+
+	private ApiMockRequestContent content(String method, String uri, String query, String body) {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+		request.setQueryString(query);
+		request.addHeader("Accept-Encoding", "gzip");
+		if (body != null) {
+			request.setContentType("application/json");
+			request.setContent(body.getBytes(StandardCharsets.UTF_8));
+		}
+		return new ApiMockRequestContent(request);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		upstreamRequests.incrementAndGet();
+		byte[] request = exchange.getRequestBody().readAllBytes();
+		String path = exchange.getRequestURI().getPath();
+
+		int status;
+		String body;
+		String contentType = "application/json";
+		if (path.endsWith("/unavailable")) {
+			status = 503;
+			body = "{\"status\":\"ERROR\"}";
+		} else if (path.endsWith("/page")) {
+			status = 200;
+			body = "<p>Xin chào</p>";
+			contentType = "text/html;charset=UTF-8";
+		} else if (path.endsWith("/large")) {
+			status = 200;
+			body = "x".repeat(4096);
+		} else if (exchange.getRequestMethod().equals("POST")) {
+			status = 201;
+			body = new String(request, StandardCharsets.UTF_8);
+		} else {
+			status = 200;
+			body = "{\"status\":\"OK\",\"data\":[{\"id\":1}]}";
+			exchange.getResponseHeaders().add("X-Upstream", "products");
+			exchange.getResponseHeaders().add("Cache-Control", "max-age=60, private");
+		}
+
+		// Accept-Encoding is not forwarded, so the upstream answers identity-encoded.
+		assertThat(exchange.getRequestHeaders().containsKey("Accept-Encoding")).isFalse();
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", contentType);
+		// The large body is sent chunked, so only reading it tells it is over the limit.
+		exchange.sendResponseHeaders(status, path.endsWith("/large") ? 0 : bytes.length);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(bytes);
+		}
+	}
+
+}
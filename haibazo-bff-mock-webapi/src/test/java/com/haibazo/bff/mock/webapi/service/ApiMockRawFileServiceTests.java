@@ -0,0 +1,115 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class ApiMockRawFileServiceTests {
+
+	private static final byte[] CONTENT = "0123456789abcdefghij".getBytes();
+
+	private final ApiMockRawFileService rawFileService = new ApiMockRawFileService();
+
+	@TempDir
+	Path tempDir;
+
+	private Path fixture;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		ReflectionTestUtils.setField(rawFileService, "sendfileMinBytes", 16L);
+		fixture = Files.write(tempDir.resolve("export.ndjson"), CONTENT);
+	}
+
+	@Test
+	void serveWritesWholeFile() throws IOException {
+		MockHttpServletResponse response = serve("GET", null, HttpStatus.OK);
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getContentType()).isEqualTo("application/x-ndjson");
+		assertThat(response.getContentLengthLong()).isEqualTo(CONTENT.length);
+		assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+		assertThat(response.getContentAsByteArray()).isEqualTo(CONTENT);
+	}
+
+	@Test
+	void serveHonorsSingleRange() throws IOException {
+		MockHttpServletResponse response = serve("GET", "bytes=2-5", HttpStatus.OK);
+
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/20");
+		assertThat(response.getContentAsString()).isEqualTo("2345");
+
+		assertThat(serve("GET", "bytes=15-", HttpStatus.OK).getContentAsString()).isEqualTo("fghij");
+		assertThat(serve("GET", "bytes=-3", HttpStatus.OK).getContentAsString()).isEqualTo("hij");
+		assertThat(serve("GET", "bytes=18-99", HttpStatus.OK).getContentAsString()).isEqualTo("ij");
+	}
+
+	@Test
+	void serveRejectsUnsatisfiableRange() throws IOException {
+		MockHttpServletResponse response = serve("GET", "bytes=20-", HttpStatus.OK);
+
+		assertThat(response.getStatus()).isEqualTo(416);
+		assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */20");
+		assertThat(response.getContentAsByteArray()).isEmpty();
+	}
+
+	@Test
+	void serveIgnoresMultipleRangesAndNonOkStatus() throws IOException {
+		MockHttpServletResponse multiple = serve("GET", "bytes=0-1,4-5", HttpStatus.OK);
+		assertThat(multiple.getStatus()).isEqualTo(200);
+		assertThat(multiple.getContentAsByteArray()).isEqualTo(CONTENT);
+
+		MockHttpServletResponse created = serve("GET", "bytes=0-1", HttpStatus.CREATED);
+		assertThat(created.getStatus()).isEqualTo(201);
+		assertThat(created.getContentAsByteArray()).isEqualTo(CONTENT);
+	}
+
+	@Test
+	void serveSkipsBodyForHead() throws IOException {
+		MockHttpServletResponse response = serve("HEAD", null, HttpStatus.OK);
+
+		assertThat(response.getContentLengthLong()).isEqualTo(CONTENT.length);
+		assertThat(response.getContentAsByteArray()).isEmpty();
+	}
+
+	@Test
+	void serveDelegatesToSendfileWhenSupported() throws IOException {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/its-rct/v1/export");
+		request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+		request.addHeader(HttpHeaders.RANGE, "bytes=0-");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		rawFileService.serve(fixture.toString(), "application/x-ndjson", HttpStatus.OK, request, response);
+
+		assertThat(response.getContentAsByteArray()).isEmpty();
+		assertThat(request.getAttribute("org.apache.tomcat.sendfile.filename"))
+				.isEqualTo(fixture.toAbsolutePath().toString());
+		assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(0L);
+		assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo((long) CONTENT.length);
+	}
+
+	private MockHttpServletResponse serve(String method, String range, HttpStatus status) throws IOException {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, "/its-rct/v1/export");
+		if (range != null) {
+			request.addHeader(HttpHeaders.RANGE, range);
+		}
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		rawFileService.serve(fixture.toString(), "application/x-ndjson", status, request, response);
+
+		return response;
+	}
+
+}
@@ -0,0 +1,89 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockRequestStatsDto;
+import com.haibazo.bff.mock.webapi.dto.response.ApiMockRequestRecordDto;
+
+class ApiMockRequestJournalTests {
+
+	private final ApiMockRequestJournal journal = new ApiMockRequestJournal();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(journal, "enabled", true);
+		ReflectionTestUtils.setField(journal, "capacity", 6);
+		journal.initialize();
+	}
+
+	@Test
+	void keepsTheMostRecentRequestsNewestFirst() {
+		for (int i = 0; i < 20; i++) {
+			journal.record("GET", "/its-rct/v1/products/" + i, "/its-rct/v1/products/{id}", stats(), 200, 1_000);
+		}
+
+		// The capacity is rounded up to a power of two.
+		assertThat(journal.find(100, null, null, 0)).extracting(ApiMockRequestRecordDto::getSequence)
+				.containsExactly(19L, 18L, 17L, 16L, 15L, 14L, 13L, 12L);
+		assertThat(journal.find(2, null, null, 0)).extracting(ApiMockRequestRecordDto::getPath)
+				.containsExactly("/its-rct/v1/products/19", "/its-rct/v1/products/18");
+	}
+
+	@Test
+	void findAppliesFilters() {
+		journal.record("GET", "/its-rct/v1/configs", "/its-rct/v1/configs", stats(), 200, 3_000_000);
+		journal.record("GET", "/its-rct/v1/products", "/its-rct/v1/products", stats(), 200, 1_000);
+		journal.record("GET", "/its-rct/v1/unknown", null, stats(), 404, 1_000);
+
+		assertThat(journal.find(10, "products", null, 0)).extracting(ApiMockRequestRecordDto::getPath)
+				.containsExactly("/its-rct/v1/products");
+		assertThat(journal.find(10, null, 404, 0)).extracting(ApiMockRequestRecordDto::getPath)
+				.containsExactly("/its-rct/v1/unknown");
+		assertThat(journal.find(10, null, null, 2)).extracting(ApiMockRequestRecordDto::getPath)
+				.containsExactly("/its-rct/v1/configs");
+	}
+
+	@Test
+	void concurrentWritersNeverPublishTornRecords() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> writers = new ArrayList<>();
+			for (int writer = 0; writer < 4; writer++) {
+				String path = "/its-rct/v1/writer-" + writer;
+				int status = 200 + writer;
+				writers.add(executor.submit(() -> {
+					for (int i = 0; i < 20_000; i++) {
+						journal.record("GET", path, path, stats(), status, i);
+					}
+				}));
+			}
+
+			while (writers.stream().anyMatch(writer -> !writer.isDone())) {
+				for (ApiMockRequestRecordDto record : journal.find(8, null, null, 0)) {
+					assertThat(record.getPath()).isEqualTo("/its-rct/v1/writer-" + (record.getStatus() - 200));
+					assertThat(record.getRoute()).isEqualTo(record.getPath());
+				}
+			}
+			for (Future<?> writer : writers) {
+				writer.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static ApiMockRequestStatsDto stats() {
+		return new ApiMockRequestStatsDto();
+	}
+
+}
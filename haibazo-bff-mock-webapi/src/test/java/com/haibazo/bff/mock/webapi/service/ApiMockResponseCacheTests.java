@@ -0,0 +1,218 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.DigestUtils;
+
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockCachedResponseDto;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ApiMockResponseCacheTests {
+
+	private static final String CHARSET = "UTF-8";
+
+	@TempDir
+	Path tempDir;
+
+	private final ApiMockResponseCache cache = new ApiMockResponseCache();
+
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(cache, "enabled", true);
+		ReflectionTestUtils.setField(cache, "maxBytes", 250L);
+		ReflectionTestUtils.setField(cache, "revalidateIntervalMs", 60_000L);
+	}
+
+	@Test
+	void evictsTheLeastRecentlyUsedEntryOnceOverBudget() throws IOException {
+		String first = fixture("first.json", 100);
+		String second = fixture("second.json", 100);
+		String third = fixture("third.json", 100);
+
+		get(first);
+		get(second);
+		// Touching the first entry leaves the second as the least recently used.
+		get(first);
+		get(third);
+
+		assertThat(cache.getEvictions()).isEqualTo(1);
+		assertThat(cache.getUsedBytes()).isEqualTo(200);
+		assertThat(loads).hasValue(3);
+
+		get(first);
+		get(third);
+		assertThat(loads).hasValue(3);
+
+		get(second);
+		assertThat(loads).hasValue(4);
+		assertThat(cache.getEvictions()).isEqualTo(2);
+		assertThat(cache.getUsedBytes()).isEqualTo(200);
+	}
+
+	@Test
+	void entriesLargerThanTheBudgetAreNotCached() throws IOException {
+		String large = fixture("large.json", 300);
+
+		get(large);
+		get(large);
+
+		assertThat(loads).hasValue(2);
+		assertThat(cache.getUsedBytes()).isZero();
+		assertThat(cache.getEvictions()).isZero();
+	}
+
+	@Test
+	void fixturesGrownPastTheBudgetLeaveTheCache() throws IOException {
+		ReflectionTestUtils.setField(cache, "revalidateIntervalMs", 0L);
+		String filePath = fixture("products.json", 100);
+
+		get(filePath);
+		assertThat(cache.getUsedBytes()).isEqualTo(100);
+
+		Files.writeString(Path.of(filePath), "x".repeat(300), StandardCharsets.UTF_8);
+
+		assertThat(get(filePath).getBody()).hasSize(300);
+		assertThat(cache.getUsedBytes()).isZero();
+		assertThat(loads).hasValue(2);
+
+		// Shrunk back within the budget, the fixture is cached again.
+		Files.writeString(Path.of(filePath), "x".repeat(120), StandardCharsets.UTF_8);
+
+		get(filePath);
+		get(filePath);
+		assertThat(loads).hasValue(3);
+		assertThat(cache.getUsedBytes()).isEqualTo(120);
+	}
+
+	@Test
+	void onlyCachedEntriesOfferTheirBodiesForSharing() throws IOException {
+		ReflectionTestUtils.setField(cache, "revalidateIntervalMs", 0L);
+		Map<?, ?> bodies = (Map<?, ?>) ReflectionTestUtils.getField(cache, "bodies");
+		String first = fixture("first.json", 100);
+		String second = fixture("second.json", 100);
+
+		get(first);
+		assertThat(get(second).getBody()).isSameAs(get(first).getBody());
+		assertThat(bodies).hasSize(1);
+
+		// Each edit replaces the entry, and with it the bodies it offers.
+		for (int size = 101; size <= 103; size++) {
+			Files.writeString(Path.of(first), "y".repeat(size), StandardCharsets.UTF_8);
+			get(first);
+		}
+		assertThat(bodies).hasSize(1);
+
+		get(fixture("third.json", 110));
+		get(fixture("fourth.json", 120));
+		assertThat(cache.getEvictions()).isEqualTo(2);
+		assertThat(bodies).hasSize(2);
+
+		cache.invalidateAll();
+		assertThat(bodies).isEmpty();
+	}
+
+	@Test
+	void editedFixturesArePickedUpAfterTheRevalidationInterval() throws Exception {
+		ReflectionTestUtils.setField(cache, "revalidateIntervalMs", 200L);
+		String filePath = fixture("products.json", 100);
+
+		assertThat(get(filePath).getBody()).hasSize(100);
+
+		Files.writeString(Path.of(filePath), "x".repeat(120), StandardCharsets.UTF_8);
+
+		// Within the interval the file is not looked at.
+		assertThat(get(filePath).getBody()).hasSize(100);
+		assertThat(loads).hasValue(1);
+
+		Thread.sleep(300);
+
+		assertThat(get(filePath).getBody()).hasSize(120);
+		assertThat(loads).hasValue(2);
+		assertThat(cache.getUsedBytes()).isEqualTo(120);
+
+		// An unchanged file is revalidated without being loaded again.
+		Thread.sleep(300);
+
+		assertThat(get(filePath).getBody()).hasSize(120);
+		assertThat(loads).hasValue(2);
+	}
+
+	@Test
+	void countersArePublishedAsMeters() throws IOException {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		cache.bindTo(registry);
+		String first = fixture("first.json", 100);
+		String second = fixture("second.json", 100);
+		String third = fixture("third.json", 100);
+
+		get(first);
+		get(first);
+		get(second);
+		get(third);
+		get(third);
+
+		assertThat(cache.getHits()).isEqualTo(2);
+		assertThat(cache.getMisses()).isEqualTo(3);
+		assertThat(cache.getEvictions()).isEqualTo(1);
+		assertThat(registry.get("haibazo.bff.mock.cache.requests").tag("result", "hit").functionCounter().count())
+				.isEqualTo(2);
+		assertThat(registry.get("haibazo.bff.mock.cache.requests").tag("result", "miss").functionCounter().count())
+				.isEqualTo(3);
+		assertThat(registry.get("haibazo.bff.mock.cache.evictions").functionCounter().count()).isEqualTo(1);
+		assertThat(registry.get("haibazo.bff.mock.cache.size").gauge().value()).isEqualTo(200);
+
+		cache.invalidateAll();
+
+		assertThat(registry.get("haibazo.bff.mock.cache.size").gauge().value()).isZero();
+	}
+
+	@Test
+	void disabledCacheLoadsEveryTime() throws IOException {
+		ReflectionTestUtils.setField(cache, "enabled", false);
+		String filePath = fixture("products.json", 100);
+
+		get(filePath);
+		get(filePath);
+
+		assertThat(loads).hasValue(2);
+		assertThat(cache.getHits()).isZero();
+		assertThat(cache.getMisses()).isZero();
+		assertThat(cache.getUsedBytes()).isZero();
+	}
+
+	private String fixture(String name, int size) throws IOException {
+		Path path = tempDir.resolve(name);
+		Files.writeString(path, "x".repeat(size), StandardCharsets.UTF_8);
+		return path.toString();
+	}
+
+	private ApiMockCachedResponseDto get(String filePath) throws IOException {
+		return cache.get(filePath, CHARSET, attributes -> {
+			loads.incrementAndGet();
+			byte[] body = Files.readAllBytes(Path.of(filePath));
+			return ApiMockCachedResponseDto.builder()
+					.status(HttpStatus.OK)
+					.body(body)
+					.contentHash(DigestUtils.md5DigestAsHex(body))
+					.lastModified(attributes.lastModifiedTime().toMillis())
+					.size(attributes.size())
+					.build();
+		});
+	}
+
+}
@@ -0,0 +1,110 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.AntPathMatcher;
+
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockSettingDto;
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockSettingMatchDto;
+
+class ApiMockRouteIndexTests {
+
+	private static final List<ApiMockSettingDto> SETTINGS = List.of(
+			setting("# /its-rct/v1/notifications", HttpMethod.GET),
+			setting("/its-rct/v1/notifications", HttpMethod.GET),
+			setting("/its-rct/v1/products/{products_id}", HttpMethod.GET),
+			setting("/its-rct/v1/products/suggestions", HttpMethod.GET),
+			setting("/its-rct/v1/products/{products_id}/reviews", HttpMethod.GET),
+			setting("/its-rct/v1/products/{products_id}/reviews", HttpMethod.POST),
+			setting("/its-rct/v1/countries/{countries_id}/cities/{cities_id}/districts", HttpMethod.GET),
+			setting("/its-rct/v1/files/*.json", HttpMethod.GET),
+			setting("/its-rct/v1/files/{name}", HttpMethod.GET),
+			setting("/its-rct/v1/orders/{id:\\d+}", HttpMethod.GET),
+			setting("/its-rct/v1/orders/{order_id}", HttpMethod.GET),
+			setting("/its-rct/v1/assets/**", HttpMethod.GET),
+			setting("/its-rct/v1/trailing/", HttpMethod.GET));
+
+	private static final List<String> PATHS = List.of(
+			"/its-rct/v1/notifications",
+			"/its-rct/v1/notifications/",
+			"//its-rct//v1/notifications",
+			"/its-rct/v1/products/1",
+			"/its-rct/v1/products/suggestions",
+			"/its-rct/v1/products/1/reviews",
+			"/its-rct/v1/countries/3/cities/7/districts",
+			"/its-rct/v1/countries/3/cities/districts",
+			"/its-rct/v1/files/data.json",
+			"/its-rct/v1/files/data.txt",
+			"/its-rct/v1/orders/42",
+			"/its-rct/v1/orders/abc",
+			"/its-rct/v1/assets/a/b/c.png",
+			"/its-rct/v1/trailing",
+			"/its-rct/v1/trailing/",
+			"/its-rct/v1/unknown",
+			"its-rct/v1/notifications");
+
+	@Test
+	void findMatchesLinearAntPathScan() {
+		ApiMockRouteIndex index = new ApiMockRouteIndex(SETTINGS);
+
+		for (HttpMethod method : List.of(HttpMethod.GET, HttpMethod.POST, HttpMethod.DELETE)) {
+			for (String path : PATHS) {
+				ApiMockSettingMatchDto expected = linearScan(path, method);
+				ApiMockSettingMatchDto actual = index.find(path, method);
+
+				if (expected == null) {
+					assertThat(actual).as("%s %s", method, path).isNull();
+					continue;
+				}
+
+				assertThat(actual).as("%s %s", method, path).isNotNull();
+				assertThat(actual.getMockSetting()).isSameAs(expected.getMockSetting());
+				assertThat(actual.getMatchedPattern()).isEqualTo(expected.getMatchedPattern());
+				assertThat(actual.getPathVariables()).containsExactlyEntriesOf(expected.getPathVariables());
+			}
+		}
+	}
+
+	@Test
+	void findPrefersFirstRowInFileOrder() {
+		ApiMockSettingDto first = setting("/its-rct/v1/products/{products_id}", HttpMethod.GET);
+		ApiMockSettingDto second = setting("/its-rct/v1/products/{id}", HttpMethod.GET);
+		ApiMockRouteIndex index = new ApiMockRouteIndex(List.of(first, second));
+
+		ApiMockSettingMatchDto match = index.find("/its-rct/v1/products/5", HttpMethod.GET);
+
+		assertThat(match.getMockSetting()).isSameAs(first);
+		assertThat(match.getPathVariables()).containsExactlyEntriesOf(Map.of("products_id", "5"));
+	}
+
+	private static ApiMockSettingMatchDto linearScan(String path, HttpMethod method) {
+		return SETTINGS.stream()
+				.filter(mock -> mock.getMethod() == method)
+				.map(mock -> {
+					AntPathMatcher matcher = new AntPathMatcher();
+					if (matcher.match(mock.getUri(), path)) {
+						Map<String, String> variables = matcher.extractUriTemplateVariables(mock.getUri(), path);
+						return new ApiMockSettingMatchDto(mock, mock.getUri(), variables);
+					}
+					return null;
+				})
+				.filter(Objects::nonNull)
+				.findFirst()
+				.orElse(null);
+	}
+
+	private static ApiMockSettingDto setting(String uri, HttpMethod method) {
+		return ApiMockSettingDto.builder()
+				.uri(uri)
+				.filePath("./its-rct/mock.json")
+				.method(method)
+				.build();
+	}
+
+}
@@ -0,0 +1,173 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.haibazo.bff.mock.webapi.metrics.ApiMockMetrics;
+import com.haibazo.bff.mock.webapi.tracing.ApiMockTracing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+
+class ApiMockS3ServiceTests {
+
+	private static final String BUCKET = "haibazo";
+
+	private static final String KEY = "bff/st-a/its-rct/products.json";
+
+	@TempDir
+	Path tempDir;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private FakeS3Server s3Server;
+
+	private ApiMockS3Service s3Service;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		s3Server = new FakeS3Server(BUCKET);
+		s3Server.putObject(KEY, "[{\"id\":0}]");
+
+		s3Service = s3Service(60_000L, false, null);
+		s3Service.initiate();
+	}
+
+	@AfterEach
+	void tearDown() {
+		s3Service.destroy();
+		s3Server.close();
+	}
+
+	@Test
+	void getObjectBytesServesFreshObjectsFromDisk() throws IOException {
+		Path localFile = tempDir.resolve("its-rct/products.json");
+
+		assertThat(s3Service.getObjectBytes("./its-rct/products.json", localFile.toString())).isTrue();
+		assertThat(s3Service.getObjectBytes("./its-rct/products.json", localFile.toString())).isTrue();
+
+		assertThat(Files.readString(localFile)).isEqualTo("[{\"id\":0}]");
+		assertThat(s3Server.getRequests()).isEqualTo(1);
+	}
+
+	@Test
+	void getObjectBytesRevalidatesStaleObjectsWithETag() throws IOException {
+		s3Service = s3Service(0L, false, null);
+		s3Service.initiate();
+		Path localFile = tempDir.resolve("products.json");
+
+		s3Service.getObjectBytes("./its-rct/products.json", localFile.toString());
+		s3Service.getObjectBytes("./its-rct/products.json", localFile.toString());
+		assertThat(s3Server.notModifiedResponses()).isEqualTo(1);
+
+		s3Server.putObject(KEY, "[{\"id\":1}]");
+		s3Service.getObjectBytes("./its-rct/products.json", localFile.toString());
+
+		assertThat(Files.readString(localFile)).isEqualTo("[{\"id\":1}]");
+		assertThat(s3Server.getRequests()).isEqualTo(3);
+	}
+
+	@Test
+	void getObjectBytesCoalescesConcurrentDownloads() throws Exception {
+		s3Server.setResponseDelayMs(300);
+		Path localFile = tempDir.resolve("products.json");
+
+		ExecutorService executor = Executors.newFixedThreadPool(16);
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int i = 0; i < 16; i++) {
+				results.add(executor.submit(() -> s3Service.getObjectBytes("./its-rct/products.json",
+						localFile.toString())));
+			}
+			for (Future<Boolean> result : results) {
+				assertThat(result.get()).isTrue();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(s3Server.getRequests()).isEqualTo(1);
+	}
+
+	@Test
+	void getObjectBytesCachesMissingObjects() {
+		Path localFile = tempDir.resolve("missing.json");
+
+		assertThat(s3Service.getObjectBytes("./its-rct/missing.json", localFile.toString())).isFalse();
+		assertThat(s3Service.getObjectBytes("./its-rct/missing.json", localFile.toString())).isFalse();
+
+		assertThat(localFile).doesNotExist();
+		assertThat(s3Server.getRequests()).isEqualTo(1);
+	}
+
+	@Test
+	void getObjectBytesReportsFailedDownloadsAsMissing() {
+		Path localFile = tempDir.resolve("its-rct/products.json");
+		s3Server.setFailing(true);
+
+		assertThat(s3Service.getObjectBytes("./its-rct/products.json", localFile.toString())).isFalse();
+		assertThat(localFile).doesNotExist();
+		assertThat(meterRegistry.get("haibazo.bff.mock.s3.download").tag("result", "failed").timer().count())
+				.isEqualTo(1);
+
+		// Failures are not cached, so the object is fetched once S3 answers again.
+		s3Server.setFailing(false);
+
+		assertThat(s3Service.getObjectBytes("./its-rct/products.json", localFile.toString())).isTrue();
+		assertThat(localFile).exists();
+	}
+
+	@Test
+	void synchronizeMirrorsFolderAndServesFromManifest() throws IOException {
+		ApiMockLocalStorageService localStorageService = new ApiMockLocalStorageService(tempDir.toString());
+		s3Service = s3Service(60_000L, true, localStorageService);
+		s3Service.initiate();
+		s3Server.putObject("bff/st-a/account/profile.json", "{\"id\":2}");
+		s3Server.putObject("bff/st-b/its-rct/other.json", "{}");
+
+		assertThat(s3Service.isReady()).isFalse();
+		s3Service.synchronize();
+
+		assertThat(s3Service.isReady()).isTrue();
+		assertThat(Files.readString(tempDir.resolve("its-rct/products.json"))).isEqualTo("[{\"id\":0}]");
+		assertThat(Files.readString(tempDir.resolve("account/profile.json"))).isEqualTo("{\"id\":2}");
+		assertThat(tempDir.resolve("its-rct/other.json")).doesNotExist();
+		assertThat(s3Server.getRequests()).isEqualTo(2);
+
+		assertThat(s3Service.getObjectBytes("./its-rct/products.json",
+				tempDir.resolve("its-rct/products.json").toString())).isTrue();
+		assertThat(s3Service.getObjectBytes("./its-rct/missing.json",
+				tempDir.resolve("its-rct/missing.json").toString())).isFalse();
+		assertThat(s3Server.getRequests()).isEqualTo(2);
+
+		s3Server.putObject(KEY, "[{\"id\":1}]");
+		s3Server.deleteObject("bff/st-a/account/profile.json");
+		s3Service.synchronize();
+
+		assertThat(Files.readString(tempDir.resolve("its-rct/products.json"))).isEqualTo("[{\"id\":1}]");
+		assertThat(tempDir.resolve("account/profile.json")).doesNotExist();
+		assertThat(s3Server.getRequests()).isEqualTo(3);
+		assertThat(s3Server.listRequests()).isEqualTo(2);
+	}
+
+	private ApiMockS3Service s3Service(long cacheTtlMs, boolean syncEnabled,
+			ApiMockLocalStorageService localStorageService) {
+		return new ApiMockS3Service("s3", "ap-southeast-1", "test", "test", BUCKET, "./bff/st-a", s3Server.endpoint(),
+				true, cacheTtlMs, syncEnabled, 4, localStorageService, new ApiMockMetrics(meterRegistry),
+				new ApiMockTracing(OpenTelemetry.noop()));
+	}
+
+}
@@ -0,0 +1,125 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockSettingDto;
+
+import jakarta.servlet.http.Cookie;
+
+class ApiMockScenarioServiceTests {
+
+	private static final ApiMockSettingDto ADD_TO_CART = transition("cart", null, "ITEM_ADDED");
+
+	private static final ApiMockSettingDto CHECKOUT = transition("cart", "ITEM_ADDED", "CHECKED_OUT");
+
+	private final ApiMockScenarioService scenarioService = new ApiMockScenarioService();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(scenarioService, "sessionHeader", "X-Mock-Session");
+		ReflectionTestUtils.setField(scenarioService, "sessionCookie", "MOCK_SESSION");
+		ReflectionTestUtils.setField(scenarioService, "ttlMs", 60_000L);
+		ReflectionTestUtils.setField(scenarioService, "maxSessions", 100);
+	}
+
+	@Test
+	void sessionsAreNamedByTheHeaderThenTheCookie() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/its-rct/v1/my/carts");
+		assertThat(scenarioService.getSessionId(request)).isEqualTo(ApiMockScenarioService.DEFAULT_SESSION);
+
+		request.setCookies(new Cookie("MOCK_SESSION", "cookie-session"));
+		assertThat(scenarioService.getSessionId(request)).isEqualTo("cookie-session");
+
+		request.addHeader("X-Mock-Session", "header-session");
+		assertThat(scenarioService.getSessionId(request)).isEqualTo("header-session");
+	}
+
+	@Test
+	void transitionsOnlyFireFromTheirRequiredState() {
+		assertThat(scenarioService.getState("a", "cart")).isEqualTo(ApiMockScenarioService.STARTED);
+
+		scenarioService.transition("a", CHECKOUT);
+		assertThat(scenarioService.getState("a", "cart")).isEqualTo(ApiMockScenarioService.STARTED);
+
+		scenarioService.transition("a", ADD_TO_CART);
+		scenarioService.transition("a", CHECKOUT);
+		assertThat(scenarioService.getState("a", "cart")).isEqualTo("CHECKED_OUT");
+		assertThat(scenarioService.getStates("a")).containsExactly(Map.entry("cart", "CHECKED_OUT"));
+
+		// Other sessions and scenarios are not affected.
+		assertThat(scenarioService.getState("b", "cart")).isEqualTo(ApiMockScenarioService.STARTED);
+		assertThat(scenarioService.getState("a", "addresses")).isEqualTo(ApiMockScenarioService.STARTED);
+
+		assertThat(scenarioService.reset("a")).isEqualTo(1);
+		assertThat(scenarioService.getState("a", "cart")).isEqualTo(ApiMockScenarioService.STARTED);
+	}
+
+	@Test
+	void idleSessionsExpireAndTheirNumberIsBounded() {
+		scenarioService.transition("a", ADD_TO_CART);
+		ReflectionTestUtils.setField(scenarioService, "ttlMs", -1L);
+
+		assertThat(scenarioService.getState("a", "cart")).isEqualTo(ApiMockScenarioService.STARTED);
+		scenarioService.expireSessions();
+		assertThat(scenarioService.reset(null)).isZero();
+
+		ReflectionTestUtils.setField(scenarioService, "ttlMs", 60_000L);
+		ReflectionTestUtils.setField(scenarioService, "maxSessions", 2);
+		scenarioService.transition("a", ADD_TO_CART);
+		scenarioService.transition("b", ADD_TO_CART);
+		scenarioService.transition("c", ADD_TO_CART);
+
+		assertThat(scenarioService.getState("b", "cart")).isEqualTo("ITEM_ADDED");
+		assertThat(scenarioService.getState("c", "cart")).isEqualTo(ApiMockScenarioService.STARTED);
+		assertThat(scenarioService.reset(null)).isEqualTo(2);
+	}
+
+	@Test
+	void concurrentSessionsKeepTheirOwnStates() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> states = new ArrayList<>();
+			for (int i = 0; i < 64; i++) {
+				String session = "session-" + i;
+				states.add(executor.submit(() -> {
+					for (int j = 0; j < 100; j++) {
+						scenarioService.transition(session, ADD_TO_CART);
+						scenarioService.transition(session, CHECKOUT);
+						scenarioService.reset(session);
+					}
+					scenarioService.transition(session, ADD_TO_CART);
+					return scenarioService.getState(session, "cart");
+				}));
+			}
+
+			for (Future<String> state : states) {
+				assertThat(state.get()).isEqualTo("ITEM_ADDED");
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static ApiMockSettingDto transition(String scenario, String requiredState, String newState) {
+		return ApiMockSettingDto.builder()
+				.uri("/its-rct/v1/my/carts")
+				.filePath("./its-rct/carts.json")
+				.scenario(scenario)
+				.requiredState(requiredState)
+				.newState(newState)
+				.build();
+	}
+
+}
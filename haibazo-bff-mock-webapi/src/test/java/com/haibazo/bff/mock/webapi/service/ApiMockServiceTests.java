@@ -0,0 +1,464 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockCachedResponseDto;
+import com.haibazo.bff.mock.webapi.dto.response.ApiMockRequestRecordDto;
+import com.haibazo.bff.mock.webapi.dto.response.ApiResponseBaseDto;
+import com.haibazo.bff.mock.webapi.metrics.ApiMockMetrics;
+import com.haibazo.bff.mock.webapi.tracing.ApiMockTracing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import jakarta.validation.Validation;
+
+class ApiMockServiceTests {
+
+	@TempDir
+	Path tempDir;
+
+	private final AtomicInteger loads = new AtomicInteger();
+
+	private final ApiMockService mockService = new ApiMockService();
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final ApiMockMetrics metrics = new ApiMockMetrics(meterRegistry);
+
+	private final ApiMockRequestJournal journal = new ApiMockRequestJournal();
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Files.createDirectories(tempDir.resolve("its-rct"));
+		Files.writeString(tempDir.resolve("its-rct/configs.json"), "{\"theme\":\"dark\"}");
+		Files.writeString(tempDir.resolve("its-rct/products.json"), "[" + "{\"id\":1},".repeat(300) + "{\"id\":2}]");
+		Files.writeString(tempDir.resolve("bff-mock-setting.csv"), """
+				URI,File,Charset,Method,Status,DelayMs,ContentType,CacheControl
+				/its-rct/v1/configs,./its-rct/configs.json,UTF-8,GET,200,,,max-age=60
+				/its-rct/v1/products,./its-rct/products.json,UTF-8,GET,200,,,
+				/its-rct/v1/products,./its-rct/products.json,UTF-8,POST,201,,,
+				""");
+
+		ApiMockLocalStorageService localStorageService = new ApiMockLocalStorageService(tempDir.toString());
+
+		ApiMockFileIndex fileIndex = new ApiMockFileIndex("local", tempDir.toString(), true);
+		fileIndex.initialize();
+
+		ApiMockSettingService settingService = new ApiMockSettingService("local", "./bff-mock-setting.csv", true, null,
+				localStorageService, null, fileIndex, null, Validation.buildDefaultValidatorFactory().getValidator(),
+				metrics);
+		settingService.reload();
+
+		// The cache is disabled so every full response has to load the fixture again.
+		ApiMockResponseCache responseCache = new ApiMockResponseCache();
+		ReflectionTestUtils.setField(responseCache, "enabled", false);
+		ReflectionTestUtils.setField(responseCache, "revalidateIntervalMs", 0L);
+
+		ApiMockEnvelopeService envelopeService = new ApiMockEnvelopeService() {
+
+			@Override
+			public ApiMockCachedResponseDto load(String filePath, String charset, HttpStatus status,
+					BasicFileAttributes attributes) throws IOException {
+				loads.incrementAndGet();
+				return super.load(filePath, charset, status, attributes);
+			}
+
+		};
+		ReflectionTestUtils.setField(envelopeService, "objectMapper", Jackson2ObjectMapperBuilder.json().build());
+
+		ApiMockStreamingService streamingService = new ApiMockStreamingService();
+		ReflectionTestUtils.setField(streamingService, "objectMapper", Jackson2ObjectMapperBuilder.json().build());
+		ReflectionTestUtils.setField(streamingService, "envelopeService", envelopeService);
+		ReflectionTestUtils.setField(streamingService, "minBytes", Long.MAX_VALUE);
+
+		ApiMockCompressionService compressionService = new ApiMockCompressionService();
+		ReflectionTestUtils.setField(compressionService, "enabled", true);
+		ReflectionTestUtils.setField(compressionService, "minBytes", 1024);
+
+		ReflectionTestUtils.setField(mockService, "apiMockSettingService", settingService);
+		ApiMockEnvironmentService environmentService = new ApiMockEnvironmentService();
+		ReflectionTestUtils.setField(environmentService, "basePath", "/its-rct");
+		ReflectionTestUtils.setField(mockService, "environmentService", environmentService);
+		ReflectionTestUtils.setField(mockService, "responseCache", responseCache);
+		ReflectionTestUtils.setField(mockService, "envelopeService", envelopeService);
+		ReflectionTestUtils.setField(mockService, "rawFileService", new ApiMockRawFileService());
+		ReflectionTestUtils.setField(mockService, "compressionService", compressionService);
+		ReflectionTestUtils.setField(mockService, "streamingService", streamingService);
+		ReflectionTestUtils.setField(mockService, "bundleService", new ApiMockBundleService());
+		ReflectionTestUtils.setField(mockService, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+		ReflectionTestUtils.setField(mockService, "metrics", metrics);
+		ReflectionTestUtils.setField(mockService, "tracing", new ApiMockTracing(OpenTelemetry.noop()));
+
+		ReflectionTestUtils.setField(journal, "enabled", true);
+		ReflectionTestUtils.setField(journal, "capacity", 16);
+		journal.initialize();
+		ReflectionTestUtils.setField(mockService, "journal", journal);
+
+		ApiMockScenarioService scenarioService = new ApiMockScenarioService();
+		ReflectionTestUtils.setField(scenarioService, "sessionHeader", "X-Mock-Session");
+		ReflectionTestUtils.setField(scenarioService, "sessionCookie", "MOCK_SESSION");
+		ReflectionTestUtils.setField(scenarioService, "ttlMs", 60_000L);
+		ReflectionTestUtils.setField(scenarioService, "maxSessions", 100);
+		ReflectionTestUtils.setField(mockService, "scenarioService", scenarioService);
+		ReflectionTestUtils.setField(mockService, "proxyService", new ApiMockProxyService());
+	}
+
+	@Test
+	void conditionalRequestIsAnsweredWithoutLoadingFixture() {
+		ResponseEntity<?> first = serve("GET", "/its-rct/v1/configs", null, null);
+		String eTag = first.getHeaders().getETag();
+
+		assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(eTag).matches("\"[0-9a-f]{32}\"");
+		assertThat(first.getHeaders().getLastModified()).isPositive();
+		assertThat(first.getHeaders().getCacheControl()).isEqualTo("max-age=60");
+		assertThat(loads).hasValue(1);
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		ResponseEntity<?> second = serve("GET", "/its-rct/v1/configs", eTag, null, response);
+
+		assertThat(second.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+		assertThat(second.getBody()).isNull();
+		assertThat(second.getHeaders().getCacheControl()).isEqualTo("max-age=60");
+		assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(eTag);
+		assertThat(loads).hasValue(1);
+
+		assertThat(serve("GET", "/its-rct/v1/configs", "\"stale\"", null).getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(loads).hasValue(2);
+	}
+
+	@Test
+	void conditionalRequestIsRevalidatedWhenFixtureChanges() throws IOException {
+		String eTag = serve("GET", "/its-rct/v1/configs", null, null).getHeaders().getETag();
+
+		Files.writeString(tempDir.resolve("its-rct/configs.json"), "{\"theme\":\"light\"}");
+
+		ResponseEntity<?> changed = serve("GET", "/its-rct/v1/configs", eTag, null);
+		assertThat(changed.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(changed.getHeaders().getETag()).isNotEqualTo(eTag);
+	}
+
+	@Test
+	void eTagsDifferPerEncodingAndStatus() {
+		ResponseEntity<?> identity = serve("GET", "/its-rct/v1/products", null, null);
+		ResponseEntity<?> gzip = serve("GET", "/its-rct/v1/products", null, "gzip");
+		ResponseEntity<?> created = serve("POST", "/its-rct/v1/products", null, null);
+
+		assertThat(gzip.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+		assertThat(gzip.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+		assertThat(gzip.getHeaders().getETag()).isEqualTo(
+				identity.getHeaders().getETag().replaceFirst("\"$", "-gzip\""));
+		assertThat(created.getHeaders().getETag()).isNotIn(identity.getHeaders().getETag(),
+				gzip.getHeaders().getETag());
+
+		ResponseEntity<?> notModified = serve("GET", "/its-rct/v1/products", gzip.getHeaders().getETag(), "gzip");
+		assertThat(notModified.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+		assertThat(notModified.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+	}
+
+	@Test
+	void listIsPaginatedOnlyWhenRequested() {
+		String full = body(serve("GET", "/its-rct/v1/products", null, null));
+		assertThat(full).endsWith("\"metadata\":{\"pageIndex\":1,\"pageSize\":1,\"totalItems\":301},\"error\":null}");
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/its-rct/v1/products");
+		request.setParameter("page_index", "31");
+		ResponseEntity<?> lastPage = mockService.mockItsRctApi(request, new MockHttpServletResponse());
+
+		assertThat(body(lastPage)).contains("\"data\":[{\"id\":2}]")
+				.contains("\"metadata\":{\"pageIndex\":31,\"pageSize\":10,\"totalItems\":301}");
+		assertThat(lastPage.getHeaders().getETag()).endsWith("-p31.10\"");
+		assertThat(lastPage.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+
+		MockHttpServletRequest configs = new MockHttpServletRequest("GET", "/its-rct/v1/configs");
+		configs.setParameter("page_size", "5");
+		assertThat(body(mockService.mockItsRctApi(configs, new MockHttpServletResponse())))
+				.isEqualTo(body(serve("GET", "/its-rct/v1/configs", null, null)));
+	}
+
+	@Test
+	void invalidPaginationIsRejected() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/its-rct/v1/products");
+		request.setParameter("page_index", "0");
+		request.setParameter("page_size", "101");
+
+		ResponseEntity<?> response = mockService.mockItsRctApi(request, new MockHttpServletResponse());
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+		ApiResponseBaseDto<?> body = (ApiResponseBaseDto<?>) response.getBody();
+		assertThat(body.getCode()).isEqualTo("HBZE000001I");
+		assertThat(body.getData()).isEqualTo(Map.of("page_index", "HBZE100001I", "page_size", "HBZE100002I"));
+
+		request.setParameter("page_index", "first");
+		request.setParameter("page_size", "10");
+		assertThat(mockService.mockItsRctApi(request, new MockHttpServletResponse()).getStatusCode())
+				.isEqualTo(HttpStatus.BAD_REQUEST);
+		assertThat(loads).hasValue(0);
+	}
+
+	@Test
+	void requestsAreCountedPerRouteAndStatus() {
+		String eTag = serve("GET", "/its-rct/v1/configs", null, null).getHeaders().getETag();
+		serve("GET", "/its-rct/v1/configs", eTag, null);
+		serve("GET", "/its-rct/v1/configs", null, null);
+		serve("POST", "/its-rct/v1/products", null, null);
+		serve("GET", "/its-rct/v1/unknown", null, null);
+
+		assertThat(requests("GET", "/its-rct/v1/configs", "200")).isEqualTo(2);
+		assertThat(requests("GET", "/its-rct/v1/configs", "304")).isEqualTo(1);
+		assertThat(requests("POST", "/its-rct/v1/products", "201")).isEqualTo(1);
+		assertThat(meterRegistry.get("haibazo.bff.mock.unmatched").counter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("haibazo.bff.mock.stage").tag("stage", "match").timer().count()).isEqualTo(5);
+		assertThat(meterRegistry.get("haibazo.bff.mock.stage").tag("stage", "parse").timer().count()).isEqualTo(3);
+	}
+
+	@Test
+	void requestsAreJournaled() {
+		serve("GET", "/its-rct/v1/configs", null, null);
+		serve("GET", "/its-rct/v1/unknown", null, null);
+
+		List<ApiMockRequestRecordDto> records = journal.find(10, null, null, 0);
+
+		assertThat(records).extracting(ApiMockRequestRecordDto::getPath)
+				.containsExactly("/its-rct/v1/unknown", "/its-rct/v1/configs");
+		assertThat(records.get(0).getRoute()).isNull();
+		assertThat(records.get(0).getStatus()).isEqualTo(404);
+		assertThat(records.get(1).getRoute()).isEqualTo("/its-rct/v1/configs");
+		assertThat(records.get(1).getFile()).endsWith("configs.json");
+		assertThat(records.get(1).getStatus()).isEqualTo(200);
+		assertThat(records.get(1).getStagesMs()).containsOnlyKeys("match", "resolve", "read", "parse", "write");
+		assertThat(records.get(1).getStagesMs().get("parse")).isPositive();
+	}
+
+	@Test
+	void requestSpansJoinCallerTrace() {
+		List<SpanData> spans = new CopyOnWriteArrayList<>();
+		SpanExporter exporter = new SpanExporter() {
+
+			@Override
+			public CompletableResultCode export(Collection<SpanData> batch) {
+				spans.addAll(batch);
+				return CompletableResultCode.ofSuccess();
+			}
+
+			@Override
+			public CompletableResultCode flush() {
+				return CompletableResultCode.ofSuccess();
+			}
+
+			@Override
+			public CompletableResultCode shutdown() {
+				return CompletableResultCode.ofSuccess();
+			}
+
+		};
+		OpenTelemetrySdk openTelemetry = OpenTelemetrySdk.builder()
+				.setTracerProvider(SdkTracerProvider.builder().addSpanProcessor(SimpleSpanProcessor.create(exporter))
+						.build())
+				.setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+				.build();
+		ReflectionTestUtils.setField(mockService, "tracing", new ApiMockTracing(openTelemetry));
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/its-rct/v1/products");
+		request.addHeader("traceparent", "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01");
+		mockService.mockItsRctApi(request, new MockHttpServletResponse());
+		openTelemetry.close();
+
+		assertThat(spans).extracting(SpanData::getName).containsExactlyInAnyOrder("GET /its-rct/v1/products",
+				"mock.match", "mock.resolve", "mock.read", "mock.parse", "mock.write");
+		assertThat(spans).extracting(SpanData::getTraceId).containsOnly("0af7651916cd43dd8448eb211c80319c");
+
+		SpanData server = span(spans, "GET /its-rct/v1/products");
+		assertThat(server.getKind()).isEqualTo(SpanKind.SERVER);
+		assertThat(server.getParentSpanId()).isEqualTo("b7ad6b7169203331");
+		assertThat(span(spans, "mock.read").getParentSpanId()).isEqualTo(server.getSpanId());
+		assertThat(span(spans, "mock.parse").getParentSpanId()).isEqualTo(span(spans, "mock.read").getSpanId());
+	}
+
+	@Test
+	void scenarioStatesSelectFixturesPerSession() throws IOException {
+		Files.writeString(tempDir.resolve("its-rct/carts.json"), "[]");
+		Files.writeString(tempDir.resolve("its-rct/carts-added.json"), "[{\"id\":1}]");
+		Files.writeString(tempDir.resolve("bff-mock-setting.csv"), """
+				URI,File,Charset,Method,Status,Scenario,RequiredState,NewState
+				/its-rct/v1/my/carts,./its-rct/carts-added.json,UTF-8,GET,200,cart,ITEM_ADDED,
+				/its-rct/v1/my/carts,./its-rct/carts.json,UTF-8,GET,200,,,
+				/its-rct/v1/my/carts,./its-rct/carts-added.json,UTF-8,POST,201,cart,,ITEM_ADDED
+				""");
+		((ApiMockSettingService) ReflectionTestUtils.getField(mockService, "apiMockSettingService")).reload();
+
+		assertThat(body(carts("GET", "alice"))).contains("\"data\":[]");
+		assertThat(carts("POST", "alice").getStatusCode()).isEqualTo(HttpStatus.CREATED);
+		assertThat(body(carts("GET", "alice"))).contains("\"data\":[{\"id\":1}]");
+		assertThat(body(carts("GET", "bob"))).contains("\"data\":[]");
+	}
+
+	@Test
+	void rawJsonFixturesAreSentAsTheyAre() throws IOException {
+		Files.writeString(tempDir.resolve("bff-mock-setting.csv"), """
+				URI,File,Charset,Method,Status,ContentType,Raw
+				/its-rct/v1/configs,./its-rct/configs.json,UTF-8,GET,200,application/json;charset=UTF-8,true
+				/its-rct/v1/products,./its-rct/products.json,UTF-8,GET,200,,false
+				""");
+		((ApiMockSettingService) ReflectionTestUtils.getField(mockService, "apiMockSettingService")).reload();
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		assertThat(serve("GET", "/its-rct/v1/configs", null, null, response)).isNull();
+		assertThat(response.getContentType()).isEqualTo("application/json;charset=UTF-8");
+		assertThat(response.getContentAsString()).isEqualTo("{\"theme\":\"dark\"}");
+
+		assertThat(body(serve("GET", "/its-rct/v1/products", null, null))).startsWith("{\"status\":");
+	}
+
+	@Test
+	void bundledResponsesMatchTheMockFolder() throws IOException {
+		Files.writeString(tempDir.resolve("its-rct/terms.txt"), "Terms of use");
+		Files.writeString(tempDir.resolve("bff-mock-setting.csv"),
+				"/its-rct/v1/terms,./its-rct/terms.txt,UTF-8,GET,200,,text/plain,\n", StandardOpenOption.APPEND);
+		ApiMockSettingService settingService = (ApiMockSettingService) ReflectionTestUtils.getField(mockService,
+				"apiMockSettingService");
+		settingService.reload();
+
+		ResponseEntity<?> configs = serve("GET", "/its-rct/v1/configs", null, null);
+		ResponseEntity<?> gzip = serve("GET", "/its-rct/v1/products", null, "gzip");
+		ResponseEntity<?> created = serve("POST", "/its-rct/v1/products", null, null);
+		MockHttpServletRequest pageRequest = new MockHttpServletRequest("GET", "/its-rct/v1/products");
+		pageRequest.setParameter("page_index", "31");
+		ResponseEntity<?> lastPage = mockService.mockItsRctApi(pageRequest, new MockHttpServletResponse());
+
+		ApiMockLocalStorageService localStorageService = (ApiMockLocalStorageService) ReflectionTestUtils
+				.getField(settingService, "localStorageService");
+		String hash = ApiMockBundlePacker.pack(settingService, localStorageService,
+				(ApiMockEnvelopeService) ReflectionTestUtils.getField(mockService, "envelopeService"),
+				(ApiMockCompressionService) ReflectionTestUtils.getField(mockService, "compressionService"),
+				tempDir.resolve("bff-mock.bundle"));
+
+		ApiMockBundleService bundleService = new ApiMockBundleService();
+		ReflectionTestUtils.setField(bundleService, "mockStorage", "bundle");
+		ReflectionTestUtils.setField(bundleService, "bundlePath", "./bff-mock.bundle");
+		ReflectionTestUtils.setField(bundleService, "verify", true);
+		ReflectionTestUtils.setField(bundleService, "expectedHash", hash);
+		ReflectionTestUtils.setField(bundleService, "localStorageService", localStorageService);
+		bundleService.initialize();
+		settingService = new ApiMockSettingService("bundle", "./bff-mock-setting.csv", true, null, localStorageService,
+				null, (ApiMockFileIndex) ReflectionTestUtils.getField(settingService, "fileIndex"), bundleService,
+				Validation.buildDefaultValidatorFactory().getValidator(), metrics);
+		ReflectionTestUtils.setField(mockService, "apiMockSettingService", settingService);
+		ReflectionTestUtils.setField(mockService, "bundleService", bundleService);
+
+		// Everything is served from the bundle from now on.
+		for (String file : List.of("bff-mock-setting.csv", "its-rct/configs.json", "its-rct/products.json",
+				"its-rct/terms.txt")) {
+			Files.delete(tempDir.resolve(file));
+		}
+		assertThat(settingService.reload()).isEqualTo(4);
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		assertThat(serve("GET", "/its-rct/v1/configs", null, null, response)).isNull();
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getContentAsByteArray()).isEqualTo(configs.getBody());
+		assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(configs.getHeaders().getETag());
+		assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("max-age=60");
+
+		response = new MockHttpServletResponse();
+		assertThat(serve("GET", "/its-rct/v1/products", null, "gzip", response)).isNull();
+		assertThat(response.getContentAsByteArray()).isEqualTo(gzip.getBody());
+		assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+		assertThat(response.getHeader(HttpHeaders.VARY)).isEqualTo(HttpHeaders.ACCEPT_ENCODING);
+		assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(gzip.getHeaders().getETag());
+
+		ResponseEntity<?> bundledCreated = serve("POST", "/its-rct/v1/products", null, null);
+		assertThat(bundledCreated.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+		assertThat(body(bundledCreated)).isEqualTo(body(created));
+		assertThat(bundledCreated.getHeaders().getETag()).isEqualTo(created.getHeaders().getETag());
+
+		pageRequest = new MockHttpServletRequest("GET", "/its-rct/v1/products");
+		pageRequest.setParameter("page_index", "31");
+		assertThat(body(mockService.mockItsRctApi(pageRequest, new MockHttpServletResponse())))
+				.isEqualTo(body(lastPage));
+
+		assertThat(serve("GET", "/its-rct/v1/configs", configs.getHeaders().getETag(), null).getStatusCode())
+				.isEqualTo(HttpStatus.NOT_MODIFIED);
+
+		response = new MockHttpServletResponse();
+		MockHttpServletRequest range = new MockHttpServletRequest("GET", "/its-rct/v1/terms");
+		range.addHeader(HttpHeaders.RANGE, "bytes=0-4");
+		mockService.mockItsRctApi(range, response);
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(response.getContentAsString()).isEqualTo("Terms");
+
+		// Four requests served from the folder, then one load per JSON fixture by the packer.
+		assertThat(loads).hasValue(6);
+	}
+
+	private static SpanData span(List<SpanData> spans, String name) {
+		return spans.stream().filter(span -> span.getName().equals(name)).findFirst().orElseThrow();
+	}
+
+	private double requests(String method, String route, String status) {
+		return meterRegistry.get("haibazo.bff.mock.requests")
+				.tags("method", method, "route", route, "status", status)
+				.counter()
+				.count();
+	}
+
+	private static String body(ResponseEntity<?> response) {
+		return new String((byte[]) response.getBody(), StandardCharsets.UTF_8);
+	}
+
+	private ResponseEntity<?> carts(String method, String session) {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, "/its-rct/v1/my/carts");
+		request.addHeader("X-Mock-Session", session);
+		return mockService.mockItsRctApi(request, new MockHttpServletResponse());
+	}
+
+	private ResponseEntity<?> serve(String method, String uri, String ifNoneMatch, String acceptEncoding) {
+		return serve(method, uri, ifNoneMatch, acceptEncoding, new MockHttpServletResponse());
+	}
+
+	private ResponseEntity<?> serve(String method, String uri, String ifNoneMatch, String acceptEncoding,
+			MockHttpServletResponse response) {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+		if (ifNoneMatch != null) {
+			request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+		}
+		if (acceptEncoding != null) {
+			request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+		}
+		return mockService.mockItsRctApi(request, response);
+	}
+
+}
@@ -0,0 +1,422 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockSettingDto;
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockSettingMatchDto;
+import com.haibazo.bff.mock.webapi.metrics.ApiMockMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import jakarta.validation.Validation;
+
+class ApiMockSettingServiceTests {
+
+	private static final List<String> FILES = List.of(
+			"its-rct/products_1.json",
+			"its-rct/products_0.json",
+			"its-rct/countries_0_cities_0_districts.json",
+			"its-rct/countries_3_cities_7_districts.json",
+			"its-rct/orders_0_items.json",
+			"its-rct/v1_0/reviews_0.json");
+
+	private static final List<String> FILE_PATHS = List.of(
+			"./its-rct/products_0.json",
+			"./its-rct/countries_0_cities_0_districts.json",
+			"./its-rct/orders_0_items.json",
+			"./its-rct/v1_0/reviews_0.json",
+			"./its-rct/notifications.json",
+			"./its-rct/missing_0.json",
+			"./its-rct/a__0_.json");
+
+	private static final List<Map<String, String>> PATH_VARIABLES = List.of(
+			Map.of(),
+			variables("1"),
+			variables("2"),
+			variables("3", "7"),
+			variables("3", "8"),
+			variables("3", "7", "9"));
+
+	@TempDir
+	Path tempDir;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final ApiMockMetrics metrics = new ApiMockMetrics(meterRegistry);
+
+	private ApiMockLocalStorageService localStorageService;
+
+	private ApiMockFileIndex fileIndex;
+
+	private ApiMockSettingService settingService;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		for (String file : FILES) {
+			Path path = tempDir.resolve(file);
+			Files.createDirectories(path.getParent());
+			Files.writeString(path, "{}");
+		}
+
+		localStorageService = new ApiMockLocalStorageService(tempDir.toString());
+
+		fileIndex = new ApiMockFileIndex("local", tempDir.toString(), true);
+		fileIndex.initialize();
+
+		settingService = settingService(null);
+	}
+
+	@Test
+	void reloadPublishesValidSettingsAndSkipsComments() throws IOException {
+		writeSettings("""
+				URI,File,Charset,Method,Status,
+				# /its-rct/v1/products,./its-rct/old.json,UTF-8,GET,200,
+				/its-rct/v1/products/{id},./its-rct/products_0.json,UTF-8,GET,200,
+				/its-rct/v1/products,./its-rct/products_0.json,,POST,201,
+				""");
+
+		assertThat(settingService.reload()).isEqualTo(2);
+
+		ApiMockSettingMatchDto match = settingService.findMatchingMock("/its-rct/v1/products/1", HttpMethod.GET);
+		assertThat(settingService.getMockFilePathWithFallback(match))
+				.isEqualTo(tempDir.resolve("its-rct/products_1.json").toString());
+		assertThat(settingService.findMatchingMock("/its-rct/v1/products", HttpMethod.POST).getMockSetting()
+				.getCharset()).isEqualTo("UTF-8");
+	}
+
+	@Test
+	void reloadRejectsInvalidSettingsAndKeepsCurrentTable() throws IOException {
+		writeSettings("""
+				URI,File,Charset,Method,Status
+				/its-rct/v1/products,./its-rct/products_0.json,UTF-8,GET,200
+				""");
+		settingService.reload();
+
+		writeSettings("""
+				URI,File,Charset,Method,Status
+				its-rct/v1/products,./its-rct/products_0.json,UTF-8,GET,200
+				/its-rct/v1/orders,./its-rct/orders_0_items.json,UTF-8,FETCH,200
+				/its-rct/v1/tags,./its-rct/tags.json,UTF-8,GET,999
+				""");
+
+		assertThatThrownBy(settingService::reload)
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("line 2: uri")
+				.hasMessageContaining("line 3: unknown method FETCH")
+				.hasMessageContaining("line 4: unknown status 999");
+		assertThat(settingService.findMatchingMock("/its-rct/v1/products", HttpMethod.GET)).isNotNull();
+	}
+
+	@Test
+	void reloadIfChangedSwapsTableWhenFileChanges() throws IOException {
+		Path settingFile = writeSettings("""
+				URI,File,Charset,Method,Status
+				/its-rct/v1/products,./its-rct/products_0.json,UTF-8,GET,200
+				""");
+		settingService.initialize();
+		assertThat(settingService.findMatchingMock("/its-rct/v1/orders", HttpMethod.GET)).isNull();
+
+		writeSettings("""
+				URI,File,Charset,Method,Status
+				/its-rct/v1/orders,./its-rct/orders_0_items.json,UTF-8,GET,200
+				""");
+		Files.setLastModifiedTime(settingFile, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+		settingService.reloadIfChanged();
+
+		assertThat(settingService.findMatchingMock("/its-rct/v1/orders", HttpMethod.GET)).isNotNull();
+		assertThat(settingService.findMatchingMock("/its-rct/v1/products", HttpMethod.GET)).isNull();
+	}
+
+	@Test
+	void fixturesAddedWithTheirRowsAreFoundOnReload() throws IOException {
+		writeSettings("""
+				URI,File,Charset,Method,Status
+				/its-rct/v1/products,./its-rct/products_0.json,UTF-8,GET,200
+				""");
+		settingService.reload();
+
+		Files.writeString(tempDir.resolve("its-rct/brands.json"), "[]");
+		writeSettings("""
+				URI,File,Charset,Method,Status
+				/its-rct/v1/products,./its-rct/products_0.json,UTF-8,GET,200
+				/its-rct/v1/brands,./its-rct/brands.json,UTF-8,GET,200
+				""");
+		settingService.reload();
+
+		ApiMockSettingMatchDto match = settingService.findMatchingMock("/its-rct/v1/brands", HttpMethod.GET);
+		assertThat(settingService.getMockFilePathWithFallback(match))
+				.isEqualTo(tempDir.resolve("its-rct/brands.json").toString());
+	}
+
+	@Test
+	void reloadDropsTheRequestCountersOfRemovedRoutes() throws IOException {
+		writeSettings("""
+				URI,File,Charset,Method,Status
+				/its-rct/v1/products,./its-rct/products_0.json,UTF-8,GET,200
+				/its-rct/v1/orders,./its-rct/orders_0_items.json,UTF-8,GET,200
+				""");
+		settingService.reload();
+		ApiMockSettingDto products = settingService.getMockSettings().get(0);
+		metrics.recordRequest(settingService.getRouteMeters(products), 200);
+		metrics.recordRequest(settingService.getRouteMeters(settingService.getMockSettings().get(1)), 200);
+
+		writeSettings("""
+				URI,File,Charset,Method,Status
+				/its-rct/v1/products,./its-rct/products_0.json,UTF-8,GET,200
+				""");
+		settingService.reload();
+
+		// The route is kept, with its count, by the setting replacing the one it was counted for.
+		assertThat(settingService.getRouteMeters(products)).isNull();
+		metrics.recordRequest(settingService.getRouteMeters(settingService.getMockSettings().get(0)), 200);
+		assertThat(meterRegistry.find("haibazo.bff.mock.requests").tag("route", "/its-rct/v1/products").counter()
+				.count()).isEqualTo(2);
+		assertThat(meterRegistry.find("haibazo.bff.mock.requests").tag("route", "/its-rct/v1/orders").counter())
+				.isNull();
+	}
+
+	@Test
+	void reloadUsesCompiledRouteTableWhileItMatchesTheSettingsFile() throws IOException {
+		Path settingFile = writeSettings("""
+				URI,File,Charset,Method,Status,DelayMs,ContentType,CacheControl,RequestBody,RequestQuery,RequestHeaders
+				/its-rct/v1/products/{id},./its-rct/products_0.json,UTF-8,GET,200,5,,max-age=60,,status=active,X-Tenant=vn
+				/its-rct/v1/products,./its-rct/products_0.json,,POST,201,,text/plain,,$.name=Tea;~green,,
+				""");
+		Path compiledFile = tempDir.resolve("bff-mock-setting.routes");
+		ApiMockSettingCompiler.main(new String[] { settingFile.toString(), compiledFile.toString() });
+		List<ApiMockSettingDto> parsed = ApiMockSettingService.parse(settingFile,
+				Validation.buildDefaultValidatorFactory().getValidator());
+
+		assertThat(ApiMockSettingCompiler.read(compiledFile, ApiMockSettingCompiler.hash(settingFile)))
+				.isEqualTo(parsed);
+
+		// A table compiled for this settings file is trusted as is.
+		ApiMockSettingCompiler.write(List.of(ApiMockSettingDto.builder()
+				.uri("/its-rct/v1/compiled")
+				.filePath("./its-rct/products_0.json")
+				.method(HttpMethod.GET)
+				.build()), ApiMockSettingCompiler.hash(settingFile), compiledFile);
+		settingService = settingService("./bff-mock-setting.routes");
+
+		assertThat(settingService.reload()).isEqualTo(1);
+		assertThat(settingService.findMatchingMock("/its-rct/v1/compiled", HttpMethod.GET)).isNotNull();
+
+		// Once the settings file changes, it is parsed again.
+		writeSettings("""
+				URI,File,Charset,Method,Status
+				/its-rct/v1/orders,./its-rct/orders_0_items.json,UTF-8,GET,200
+				""");
+
+		assertThat(settingService.reload()).isEqualTo(1);
+		assertThat(settingService.findMatchingMock("/its-rct/v1/orders", HttpMethod.GET)).isNotNull();
+		assertThat(settingService.findMatchingMock("/its-rct/v1/compiled", HttpMethod.GET)).isNull();
+	}
+
+	@Test
+	void requestBodyPredicatesSelectAmongTheSettingsOfARoute() throws IOException {
+		writeSettings("""
+				URI,File,Charset,Method,Status,ValidateRequest,RequestBody
+				/its-rct/v1/sign-in,./its-rct/sign-in.json,UTF-8,POST,200,,
+				/its-rct/v1/sign-in,./its-rct/sign-in-locked.json,UTF-8,POST,423,,$.email=locked@example.com
+				/its-rct/v1/sign-in,./its-rct/sign-in-failed.json,UTF-8,POST,401,,$.email=alice@example.com;$.password=wrong
+				/its-rct/v1/sign-in,./its-rct/sign-in-short.json,UTF-8,POST,400,,"$['password']~^.{0,5}$"
+				/its-rct/v1/sign-in,./its-rct/sign-in-otp.json,UTF-8,POST,202,,$.otp
+				/its-rct/v1/sign-in,./its-rct/sign-in-disabled.json,UTF-8,POST,403,false,$.email=alice@example.com
+				/its-rct/v1/sign-up,./its-rct/sign-up-taken.json,UTF-8,POST,409,,~duplicate
+				""");
+		settingService.reload();
+
+		assertThat(signIn("{\"email\":\"alice@example.com\",\"password\":\"wrong\"}")).isEqualTo(401);
+		assertThat(signIn("{\"email\":\"alice@example.com\",\"password\":\"secret123\"}")).isEqualTo(200);
+		assertThat(signIn("{\"email\":\"locked@example.com\",\"password\":\"wrong\"}")).isEqualTo(423);
+		assertThat(signIn("{\"email\":\"bob@example.com\",\"password\":\"abc\"}")).isEqualTo(400);
+		assertThat(signIn("{\"otp\":123}")).isEqualTo(202);
+		assertThat(signIn("email=alice@example.com")).isEqualTo(200);
+
+		assertThat(post("/its-rct/v1/sign-up", "duplicate email").getMockSetting().getStatus().value())
+				.isEqualTo(409);
+		// A route without a setting that accepts any body leaves the request unmatched.
+		assertThat(post("/its-rct/v1/sign-up", "{}")).isNull();
+
+		writeSettings("""
+				URI,File,Charset,Method,Status,ValidateRequest,RequestBody
+				/its-rct/v1/sign-in,./its-rct/sign-in.json,UTF-8,POST,200,maybe,$.items[*].id
+				/its-rct/v1/sign-up,./its-rct/sign-up.json,UTF-8,POST,200,,~[
+				""");
+
+		assertThatThrownBy(settingService::reload)
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("line 2: unsupported requestBody path $.items[*].id")
+				.hasMessageContaining("line 3: invalid requestBody regex ~[");
+	}
+
+	@Test
+	void queryParametersAndHeadersSelectAmongTheSettingsOfARoute() throws IOException {
+		StringBuilder settings = new StringBuilder("""
+				URI,File,Charset,Method,Status,RequestQuery,RequestHeaders,RequestBody
+				/its-rct/v1/orders,./its-rct/orders_0_items.json,UTF-8,GET,200,,,
+				/its-rct/v1/orders,./its-rct/orders-active-vi.json,UTF-8,GET,202,status=active,Accept-Language=vi,
+				/its-rct/v1/orders,./its-rct/orders-tea.json,UTF-8,GET,203,status=active;keyword=green tea,,
+				/its-rct/v1/orders,./its-rct/orders-active.json,UTF-8,GET,201,status=active,,
+				/its-rct/v1/orders,./its-rct/orders-admin.json,UTF-8,POST,200,,X-Role=admin,$.confirm=true
+				/its-rct/v1/orders,./its-rct/orders-export.json,UTF-8,POST,204,,,~export
+				""");
+		for (int i = 0; i < 500; i++) {
+			settings.append("/its-rct/v1/orders,./its-rct/orders-").append(i)
+					.append(".json,UTF-8,GET,206,keyword=k").append(i).append(",,\n");
+		}
+		writeSettings(settings.toString());
+		settingService.reload();
+
+		assertThat(get(null)).isEqualTo(200);
+		assertThat(get("status=active")).isEqualTo(201);
+		assertThat(get("status=closed")).isEqualTo(200);
+		assertThat(get("status=active", "Accept-Language", "vi")).isEqualTo(202);
+		assertThat(get("status=active", "accept-language", "en")).isEqualTo(201);
+		assertThat(get("keyword=green+tea&status=active&status=closed")).isEqualTo(203);
+		assertThat(get("keyword=green%20tea&page=2&status=active")).isEqualTo(203);
+		assertThat(get("keyword=k499")).isEqualTo(206);
+		// Headers the route does not declare are ignored.
+		assertThat(get("keyword=k499", "X-Role", "admin")).isEqualTo(206);
+
+		// The key and the body predicates of a setting must all hold.
+		MockHttpServletRequest admin = new MockHttpServletRequest("POST", "/its-rct/v1/orders");
+		admin.addHeader("X-Role", "admin");
+		admin.setContent("{\"confirm\":true}".getBytes(StandardCharsets.UTF_8));
+		assertThat(settingService.findMatchingMock("/its-rct/v1/orders", HttpMethod.POST,
+				new ApiMockRequestContent(admin)).getMockSetting().getStatus().value()).isEqualTo(200);
+		assertThat(post("/its-rct/v1/orders", "{\"confirm\":true}")).isNull();
+		assertThat(post("/its-rct/v1/orders", "export").getMockSetting().getStatus().value()).isEqualTo(204);
+
+		writeSettings("""
+				URI,File,Charset,Method,Status,RequestQuery,RequestHeaders
+				/its-rct/v1/orders,./its-rct/orders.json,UTF-8,GET,200,status,
+				/its-rct/v1/orders,./its-rct/orders.json,UTF-8,GET,200,,X-Role=admin;x-role=user
+				""");
+
+		assertThatThrownBy(settingService::reload)
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("line 2: invalid requestQuery status")
+				.hasMessageContaining("line 3: duplicate requestHeaders x-role");
+	}
+
+	@Test
+	void scenarioStatesOnlyApplyToRowsNamingAScenario() throws IOException {
+		writeSettings("""
+				URI,File,Charset,Method,Status,Scenario,RequiredState,NewState
+				/its-rct/v1/addresses,./its-rct/addresses.json,UTF-8,GET,200,,ADDED,
+				/its-rct/v1/add-addresses,./its-rct/addresses.json,UTF-8,POST,200,,,ADDED
+				""");
+
+		assertThatThrownBy(settingService::reload)
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("line 2: requiredState ADDED without scenario")
+				.hasMessageContaining("line 3: newState ADDED without scenario");
+	}
+
+	@Test
+	void getMockFilePathWithFallbackMatchesFileSystemResolution() {
+		for (String filePath : FILE_PATHS) {
+			ApiMockSettingDto setting = ApiMockSettingDto.builder()
+					.uri("/its-rct/v1/resources")
+					.filePath(filePath)
+					.method(HttpMethod.GET)
+					.build();
+
+			for (Map<String, String> pathVariables : PATH_VARIABLES) {
+				ApiMockSettingMatchDto match = new ApiMockSettingMatchDto(setting, setting.getUri(), pathVariables);
+
+				assertThat(settingService.getMockFilePathWithFallback(match))
+						.as("%s %s", filePath, pathVariables)
+						.isEqualTo(resolveOnFileSystem(filePath, pathVariables));
+			}
+		}
+	}
+
+	/**
+	 * Reference resolution that splits the file name and checks the file system
+	 * on every call.
+	 */
+	private String resolveOnFileSystem(String filePath, Map<String, String> pathVariables) {
+		String fileName = filePath.substring(0, filePath.lastIndexOf('.'));
+		String extension = filePath.substring(filePath.lastIndexOf('.'));
+		if (pathVariables.isEmpty()) {
+			return tempDir.resolve(filePath).normalize().toString();
+		}
+
+		List<String> values = new ArrayList<>(pathVariables.values());
+		String[] parts = fileName.split("_");
+		List<String> primary = new ArrayList<>(List.of(parts[0]));
+		List<String> fallback = new ArrayList<>(List.of(parts[0]));
+		int valueIndex = 0;
+		for (int i = 1; i < parts.length; i++) {
+			boolean slot = parts[i].matches("\\d+");
+			primary.add(slot ? (valueIndex < values.size() ? values.get(valueIndex++) : "0") : parts[i]);
+			fallback.add(slot ? "0" : parts[i]);
+		}
+
+		for (List<String> candidate : List.of(primary, fallback)) {
+			Path path = tempDir.resolve(String.join("_", candidate) + extension).normalize();
+			if (Files.exists(path)) {
+				return path.toString();
+			}
+		}
+		return null;
+	}
+
+	private int signIn(String body) {
+		return post("/its-rct/v1/sign-in", body).getMockSetting().getStatus().value();
+	}
+
+	private int get(String query, String... headers) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/its-rct/v1/orders");
+		request.setQueryString(query);
+		for (int i = 0; i < headers.length; i += 2) {
+			request.addHeader(headers[i], headers[i + 1]);
+		}
+		return settingService.findMatchingMock("/its-rct/v1/orders", HttpMethod.GET,
+				new ApiMockRequestContent(request)).getMockSetting().getStatus().value();
+	}
+
+	private ApiMockSettingMatchDto post(String uri, String body) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+		request.setContent(body.getBytes(StandardCharsets.UTF_8));
+		return settingService.findMatchingMock(uri, HttpMethod.POST, new ApiMockRequestContent(request));
+	}
+
+	private ApiMockSettingService settingService(String compiledSettingFileName) {
+		return new ApiMockSettingService("local", "./bff-mock-setting.csv", true, compiledSettingFileName,
+				localStorageService, null, fileIndex, null, Validation.buildDefaultValidatorFactory().getValidator(),
+				metrics);
+	}
+
+	private Path writeSettings(String content) throws IOException {
+		return Files.writeString(tempDir.resolve("bff-mock-setting.csv"), content);
+	}
+
+	private static Map<String, String> variables(String... values) {
+		Map<String, String> variables = new LinkedHashMap<>();
+		for (int i = 0; i < values.length; i++) {
+			variables.put("id" + i, values[i]);
+		}
+		return variables;
+	}
+
+}
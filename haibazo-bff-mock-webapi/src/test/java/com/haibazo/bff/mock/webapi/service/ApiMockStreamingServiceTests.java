@@ -0,0 +1,114 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockCachedResponseDto;
+import com.haibazo.bff.mock.webapi.dto.internal.ApiMockStreamIndexDto;
+import com.haibazo.bff.mock.webapi.dto.request.PageableRequestDto;
+
+class ApiMockStreamingServiceTests {
+
+	private static final String PRODUCTS = "[\n" + "  { \"id\": 1, \"name\": \"café, [new]\", \"tags\": [\"a\", {}] },\n"
+			.repeat(57) + "  { \"id\": 2, \"price\": 1.50 }\n]";
+
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+	private final ApiMockEnvelopeService envelopeService = new ApiMockEnvelopeService();
+
+	private final ApiMockStreamingService streamingService = new ApiMockStreamingService();
+
+	@TempDir
+	Path tempDir;
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(envelopeService, "objectMapper", objectMapper);
+		ReflectionTestUtils.setField(streamingService, "objectMapper", objectMapper);
+		ReflectionTestUtils.setField(streamingService, "envelopeService", envelopeService);
+		ReflectionTestUtils.setField(streamingService, "minBytes", 1024L);
+		ReflectionTestUtils.setField(streamingService, "revalidateIntervalMs", 0L);
+	}
+
+	@Test
+	void streamedListMatchesInMemoryEnvelope() throws IOException {
+		for (String charset : new String[] { "UTF-8", "UTF-16" }) {
+			Path fixture = Files.writeString(tempDir.resolve("products-" + charset + ".json"), PRODUCTS,
+					Charset.forName(charset));
+
+			ApiMockStreamIndexDto index = streamingService.getIndex(fixture.toString(), charset);
+			ApiMockCachedResponseDto cachedResponse = load(fixture, charset, HttpStatus.OK);
+
+			assertThat(index.getTotalItems()).isEqualTo(58);
+			// Offsets are only recorded for UTF-8, other charsets skip to the page instead.
+			assertThat(index.getItemOffsets() == null ? 0 : index.getItemOffsets().length).as(charset)
+					.isEqualTo("UTF-8".equals(charset) ? 58 : 0);
+			assertThat(index.getContentHash()).isEqualTo(cachedResponse.getContentHash());
+			assertThat(write(index, fixture, charset, HttpStatus.OK, null)).as(charset)
+					.isEqualTo(utf8(cachedResponse.getBody()));
+			assertThat(write(index, fixture, charset, HttpStatus.CREATED, null)).as(charset)
+					.isEqualTo(utf8(envelopeService.rewrap(cachedResponse, HttpStatus.CREATED)));
+
+			for (int[] page : new int[][] { { 1, 10 }, { 6, 10 }, { 7, 10 }, { 2, 57 }, { 1, 100 } }) {
+				PageableRequestDto pageable = new PageableRequestDto(page[0], page[1]);
+				assertThat(write(index, fixture, charset, HttpStatus.OK, pageable))
+						.as("%s page %d size %d", charset, page[0], page[1])
+						.isEqualTo(utf8(envelopeService.page(cachedResponse, HttpStatus.OK, pageable)));
+			}
+		}
+	}
+
+	@Test
+	void streamedObjectMatchesInMemoryEnvelope() throws IOException {
+		Path fixture = Files.writeString(tempDir.resolve("configs.json"),
+				"{ \"themes\": " + PRODUCTS + ", \"version\": 3 }");
+
+		ApiMockStreamIndexDto index = streamingService.getIndex(fixture.toString(), "UTF-8");
+
+		assertThat(index.getTotalItems()).isEqualTo(-1);
+		assertThat(write(index, fixture, "UTF-8", HttpStatus.OK, new PageableRequestDto(1, 10)))
+				.isEqualTo(utf8(load(fixture, "UTF-8", HttpStatus.OK).getBody()));
+	}
+
+	@Test
+	void smallFixturesAreNotStreamed() throws IOException {
+		Path fixture = Files.writeString(tempDir.resolve("tags.json"), "[{\"id\":1}]");
+
+		assertThat(streamingService.getIndex(fixture.toString(), "UTF-8")).isNull();
+
+		Files.writeString(fixture, PRODUCTS);
+		assertThat(streamingService.getIndex(fixture.toString(), "UTF-8")).isNotNull();
+	}
+
+	private String write(ApiMockStreamIndexDto index, Path fixture, String charset, HttpStatus status,
+			PageableRequestDto page) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		streamingService.write(index, fixture.toString(), charset, status, page, output);
+		return utf8(output.toByteArray());
+	}
+
+	private ApiMockCachedResponseDto load(Path fixture, String charset, HttpStatus status) throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes(fixture, BasicFileAttributes.class);
+		return envelopeService.load(fixture.toString(), charset, status, attributes);
+	}
+
+	private static String utf8(byte[] bytes) {
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
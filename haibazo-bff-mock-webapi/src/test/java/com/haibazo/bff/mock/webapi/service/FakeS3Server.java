@@ -0,0 +1,184 @@
+package com.haibazo.bff.mock.webapi.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.util.DigestUtils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Minimal path-style S3 stand-in for tests: serves GetObject with ETags and
+ * If-None-Match revalidation, and a single-page ListObjectsV2.
+ */
+class FakeS3Server implements AutoCloseable {
+
+	private final HttpServer server;
+
+	private final String bucket;
+
+	private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+
+	private final AtomicInteger getRequests = new AtomicInteger();
+
+	private final AtomicInteger notModifiedResponses = new AtomicInteger();
+
+	private final AtomicInteger listRequests = new AtomicInteger();
+
+	private volatile long responseDelayMs;
+
+	private volatile boolean failing;
+
+	FakeS3Server(String bucket) throws IOException {
+		this.bucket = bucket;
+		this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		this.server.createContext("/", this::handle);
+		this.server.setExecutor(Executors.newCachedThreadPool());
+		this.server.start();
+	}
+
+	String endpoint() {
+		return "http://localhost:" + server.getAddress().getPort();
+	}
+
+	void putObject(String key, String content) {
+		objects.put(key, content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	void deleteObject(String key) {
+		objects.remove(key);
+	}
+
+	void setResponseDelayMs(long responseDelayMs) {
+		this.responseDelayMs = responseDelayMs;
+	}
+
+	/**
+	 * Makes object requests fail with an error the SDK does not retry.
+	 */
+	void setFailing(boolean failing) {
+		this.failing = failing;
+	}
+
+	int getRequests() {
+		return getRequests.get();
+	}
+
+	int notModifiedResponses() {
+		return notModifiedResponses.get();
+	}
+
+	int listRequests() {
+		return listRequests.get();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			sleep();
+			String prefix = "/" + bucket + "/";
+			String path = exchange.getRequestURI().getPath();
+			String query = exchange.getRequestURI().getQuery();
+			if ("GET".equals(exchange.getRequestMethod()) && path.replaceAll("/$", "").equals("/" + bucket)
+					&& query != null && query.contains("list-type=2")) {
+				listRequests.incrementAndGet();
+				exchange.getResponseHeaders().add("Content-Type", "application/xml");
+				send(exchange, 200, listXml(queryParameter(query, "prefix")));
+				return;
+			}
+
+			if (!"GET".equals(exchange.getRequestMethod()) || !path.startsWith(prefix)) {
+				send(exchange, 400, errorXml("InvalidRequest"));
+				return;
+			}
+
+			getRequests.incrementAndGet();
+			if (failing) {
+				send(exchange, 403, errorXml("AccessDenied"));
+				return;
+			}
+
+			byte[] content = objects.get(path.substring(prefix.length()));
+			if (content == null) {
+				send(exchange, 404, errorXml("NoSuchKey"));
+				return;
+			}
+
+			String eTag = eTag(content);
+			exchange.getResponseHeaders().add("ETag", eTag);
+			if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+				notModifiedResponses.incrementAndGet();
+				exchange.sendResponseHeaders(304, -1);
+				return;
+			}
+
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			send(exchange, 200, content);
+		}
+	}
+
+	private void sleep() {
+		if (responseDelayMs > 0) {
+			try {
+				Thread.sleep(responseDelayMs);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static String eTag(byte[] content) {
+		return "\"" + DigestUtils.md5DigestAsHex(content) + "\"";
+	}
+
+	private byte[] listXml(String prefix) {
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+				+ "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\"><Name>" + bucket
+				+ "</Name><Prefix>" + prefix + "</Prefix><IsTruncated>false</IsTruncated>");
+		for (Map.Entry<String, byte[]> object : new TreeMap<>(objects).entrySet()) {
+			if (object.getKey().startsWith(prefix)) {
+				xml.append("<Contents><Key>").append(object.getKey())
+						.append("</Key><LastModified>2024-01-01T00:00:00.000Z</LastModified><ETag>")
+						.append(eTag(object.getValue()).replace("\"", "&quot;"))
+						.append("</ETag><Size>").append(object.getValue().length)
+						.append("</Size><StorageClass>STANDARD</StorageClass></Contents>");
+			}
+		}
+		return xml.append("<KeyCount>").append(objects.size()).append("</KeyCount></ListBucketResult>").toString()
+				.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String queryParameter(String query, String name) {
+		for (String parameter : query.split("&")) {
+			if (parameter.startsWith(name + "=")) {
+				return parameter.substring(name.length() + 1);
+			}
+		}
+		return "";
+	}
+
+	private static byte[] errorXml(String code) {
+		return ("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Error><Code>" + code + "</Code><Message>" + code
+				+ "</Message></Error>").getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(body);
+		}
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+
+}